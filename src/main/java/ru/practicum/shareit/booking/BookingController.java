@@ -2,11 +2,17 @@ package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dto.NewBookingRequest;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
+import ru.practicum.shareit.booking.dto.BookingUpdateResultDto;
+import ru.practicum.shareit.booking.dto.BulkStatusUpdateRequest;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.ratelimit.RequestCost;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
@@ -22,6 +28,7 @@ public class BookingController {
     private final BookingService bookingService;
     private static final String DEFAULT_SEARCH_VALUE = "ALL";
     private static final String HEADER_WITH_USER_ID_NAME = "X-Sharer-User-Id";
+    private static final String HEADER_WITH_LAST_EVENT_ID_NAME = "Last-Event-ID";
 
     @PostMapping
     public BookingDto createBooking(@Valid @RequestBody NewBookingRequest bookingDto,
@@ -30,6 +37,16 @@ public class BookingController {
         return bookingService.createBooking(bookingDto, userId);
     }
 
+    @RequestCost(5)
+    @PatchMapping("/bulk")
+    public List<BookingUpdateResultDto> updateBookingStatuses(@Valid @RequestBody BulkStatusUpdateRequest request,
+                                                              @RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive
+                                                              long userId) {
+        log.info("Attempt to change status of {} bookings by user with id = {}", request.getBookingIds().size(),
+                userId);
+        return bookingService.updateBookingStatuses(userId, request.getBookingIds(), request.getApproved());
+    }
+
     @PatchMapping("/{bookingId}")
     public BookingDto updateBookingStatus(@PathVariable @Positive long bookingId, @RequestParam boolean approved,
                                           @RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId) {
@@ -44,6 +61,7 @@ public class BookingController {
         return bookingService.retrieveBooking(userId, bookingId);
     }
 
+    @RequestCost(5)
     @GetMapping
     public List<BookingDto> retrieveBookingsByBookerId(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId,
                                                        @RequestParam(defaultValue = DEFAULT_SEARCH_VALUE) String state) {
@@ -51,11 +69,33 @@ public class BookingController {
         return bookingService.retrieveBookingsByBookerId(userId, state);
     }
 
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBookingEvents(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId,
+                                          @RequestHeader(value = HEADER_WITH_LAST_EVENT_ID_NAME, required = false)
+                                          Long lastEventId) {
+        log.info("Attempt to subscribe to booking events by user with id = {}", userId);
+        return bookingService.subscribeToBookingEvents(userId, lastEventId);
+    }
+
+    @RequestCost(5)
     @GetMapping("/owner")
     public List<BookingDto> retrieveBookingsByOwnerId(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId,
                                                       @RequestParam(defaultValue = DEFAULT_SEARCH_VALUE) String state) {
         log.info("Attempt to retrieve all bookings with {} status by item owner with id = {}", state, userId);
         return bookingService.retrieveBookingsByOwnerId(userId, state);
     }
-}
 
+    @RequestCost(3)
+    @GetMapping("/stats")
+    public BookingStatsDto retrieveBookerStats(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId) {
+        log.info("Attempt to retrieve booking counts by state for booking author with id = {}", userId);
+        return bookingService.retrieveBookerStats(userId);
+    }
+
+    @RequestCost(3)
+    @GetMapping("/owner/stats")
+    public BookingStatsDto retrieveOwnerStats(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId) {
+        log.info("Attempt to retrieve booking counts by state for item owner with id = {}", userId);
+        return bookingService.retrieveOwnerStats(userId);
+    }
+}
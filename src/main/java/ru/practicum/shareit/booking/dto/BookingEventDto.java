@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.*;
+import ru.practicum.shareit.booking.status.Status;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingEventDto {
+    private long bookingId;
+    private long itemId;
+    private long bookerId;
+    private Status status;
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.*;
+import ru.practicum.shareit.booking.status.BookingUpdateResult;
+import ru.practicum.shareit.booking.status.Status;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingUpdateResultDto {
+    private long bookingId;
+    private BookingUpdateResult result;
+    private Status status;
+}
@@ -0,0 +1,34 @@
+package ru.practicum.shareit.booking.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class BookingChangedEvent {
+    private final long bookingId;
+    private final long itemId;
+    private final long ownerId;
+    private final long bookerId;
+    private final Status status;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    public static BookingChangedEvent of(Booking booking) {
+        return new BookingChangedEvent(
+                booking.getId(),
+                booking.getItem().getId(),
+                booking.getItem().getUser().getId(),
+                booking.getBooker().getId(),
+                booking.getStatus(),
+                booking.getStart(),
+                booking.getEnd()
+        );
+    }
+}
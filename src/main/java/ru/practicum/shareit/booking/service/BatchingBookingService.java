@@ -0,0 +1,101 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
+import ru.practicum.shareit.booking.dto.BookingUpdateResultDto;
+import ru.practicum.shareit.booking.dto.NewBookingRequest;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+import ru.practicum.shareit.utils.Constants;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends new bookings through the {@link BookingIngestionQueue}, so concurrent requests for one item share a
+ * transaction. Enabled with shareit.booking-ingestion.enabled=true. A request waits at most
+ * shareit.booking-ingestion.timeout for its batch and answers 503 after that.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "shareit.booking-ingestion.enabled", havingValue = "true")
+@Slf4j
+public class BatchingBookingService implements BookingService {
+    private final BookingServiceImpl bookingService;
+    private final BookingIngestionQueue ingestionQueue;
+    private final long timeoutMillis;
+
+    public BatchingBookingService(BookingServiceImpl bookingService, BookingIngestionQueue ingestionQueue,
+                                  @Value("${shareit.booking-ingestion.timeout}") Duration timeout) {
+        this.bookingService = bookingService;
+        this.ingestionQueue = ingestionQueue;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    @Override
+    public BookingDto createBooking(NewBookingRequest bookingDto, long userId) {
+        try {
+            return ingestionQueue.submit(bookingDto, userId).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Booking of item with id = {} by user with id = {} was not created within {} ms",
+                    bookingDto.getItemId(), userId, timeoutMillis);
+            throw new ServiceUnavailableException(Constants.BOOKING_NOT_CONFIRMED_MESSAGE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the booking to be created", e);
+        }
+    }
+
+    @Override
+    public BookingDto updateBookingStatus(long userId, long bookingId, boolean approved) {
+        return bookingService.updateBookingStatus(userId, bookingId, approved);
+    }
+
+    @Override
+    public List<BookingUpdateResultDto> updateBookingStatuses(long userId, List<Long> bookingIds, boolean approved) {
+        return bookingService.updateBookingStatuses(userId, bookingIds, approved);
+    }
+
+    @Override
+    public BookingDto retrieveBooking(long userId, long bookingId) {
+        return bookingService.retrieveBooking(userId, bookingId);
+    }
+
+    @Override
+    public List<BookingDto> retrieveBookingsByBookerId(long userId, String state) {
+        return bookingService.retrieveBookingsByBookerId(userId, state);
+    }
+
+    @Override
+    public List<BookingDto> retrieveBookingsByOwnerId(long userId, String state) {
+        return bookingService.retrieveBookingsByOwnerId(userId, state);
+    }
+
+    @Override
+    public BookingStatsDto retrieveBookerStats(long userId) {
+        return bookingService.retrieveBookerStats(userId);
+    }
+
+    @Override
+    public BookingStatsDto retrieveOwnerStats(long userId) {
+        return bookingService.retrieveOwnerStats(userId);
+    }
+
+    @Override
+    public SseEmitter subscribeToBookingEvents(long userId, Long lastEventId) {
+        return bookingService.subscribeToBookingEvents(userId, lastEventId);
+    }
+}
@@ -0,0 +1,165 @@
+package ru.practicum.shareit.booking.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.NewBookingRequest;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+import ru.practicum.shareit.utils.Constants;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects booking requests for the same item over a short window and creates them with one call to
+ * {@link BookingServiceImpl#createBookings}. A batch is flushed when the window ends or when it is full,
+ * whichever comes first. On shutdown new requests are refused, open batches are still created, and a batch that
+ * can no longer be handed to a worker fails its requests, so no caller is left waiting for a batch that never runs.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.booking-ingestion.enabled", havingValue = "true")
+@Slf4j
+public class BookingIngestionQueue {
+    private static final int WORKER_THREADS = 4;
+
+    private final BookingServiceImpl bookingService;
+    private final long windowMicros;
+    private final int maxBatchSize;
+    private final Duration timeout;
+    private final Map<Long, Batch> openBatches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            r -> new Thread(r, "booking-ingestion-timer"));
+    private final ExecutorService workers;
+    private final DistributionSummary batchSizes;
+    private volatile boolean stopped;
+
+    public BookingIngestionQueue(BookingServiceImpl bookingService,
+                                 @Value("${shareit.booking-ingestion.window}") Duration window,
+                                 @Value("${shareit.booking-ingestion.max-batch-size}") int maxBatchSize,
+                                 @Value("${shareit.booking-ingestion.timeout}") Duration timeout,
+                                 MeterRegistry meterRegistry) {
+        this.bookingService = bookingService;
+        this.windowMicros = TimeUnit.NANOSECONDS.toMicros(window.toNanos());
+        this.maxBatchSize = maxBatchSize;
+        this.timeout = timeout;
+
+        AtomicInteger workerNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(WORKER_THREADS,
+                r -> new Thread(r, "booking-ingestion-" + workerNumber.incrementAndGet()));
+        batchSizes = DistributionSummary.builder("shareit.booking.ingestion.batch.size")
+                .description("Booking requests created together in one transaction")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<BookingDto> submit(NewBookingRequest booking, long userId) {
+        long itemId = booking.getItemId();
+        PendingBooking request = new PendingBooking(booking, userId);
+        CompletableFuture<BookingDto> result = new CompletableFuture<>();
+
+        while (true) {
+            if (stopped) {
+                throw new ServiceUnavailableException(Constants.BOOKING_INGESTION_STOPPED_MESSAGE);
+            }
+            Batch batch = openBatches.computeIfAbsent(itemId, this::openBatch);
+            synchronized (batch) {
+                if (batch.closed) {
+                    // flushed by the timer before it was seen here or opened after shutdown, the next attempt opens
+                    // a new one or gives up
+                    openBatches.remove(itemId, batch);
+                    continue;
+                }
+
+                batch.requests.add(request);
+                batch.results.add(result);
+                // a batch opened while shutting down may have been missed by the shutdown, so it is flushed here
+                if (batch.requests.size() >= maxBatchSize || stopped) {
+                    flush(itemId, batch);
+                }
+                return result;
+            }
+        }
+    }
+
+    // runs before the web server and the beans the workers need are stopped, so waiting requests still get an answer
+    @EventListener(ContextClosedEvent.class)
+    public void shutdown() throws InterruptedException {
+        stopped = true;
+        timer.shutdownNow();
+        openBatches.forEach(this::flush);
+        workers.shutdown();
+        if (!workers.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Booking ingestion workers did not finish within {}", timeout);
+        }
+    }
+
+    private Batch openBatch(long itemId) {
+        Batch batch = new Batch();
+        try {
+            timer.schedule(() -> flush(itemId, batch), windowMicros, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException e) {
+            batch.closed = true;
+        }
+        return batch;
+    }
+
+    private void flush(long itemId, Batch batch) {
+        synchronized (batch) {
+            if (batch.closed) {
+                return;
+            }
+            batch.closed = true;
+        }
+
+        openBatches.remove(itemId, batch);
+        try {
+            workers.execute(() -> create(itemId, batch));
+        } catch (RejectedExecutionException e) {
+            log.warn("Booking ingestion is shut down, {} bookings for item with id = {} are not created",
+                    batch.requests.size(), itemId);
+            ServiceUnavailableException error =
+                    new ServiceUnavailableException(Constants.BOOKING_INGESTION_STOPPED_MESSAGE);
+            batch.results.forEach(result -> result.completeExceptionally(error));
+        }
+    }
+
+    private void create(long itemId, Batch batch) {
+        batchSizes.record(batch.requests.size());
+        try {
+            List<BookingOutcome> outcomes = bookingService.createBookings(itemId, batch.requests);
+            for (int i = 0; i < outcomes.size(); i++) {
+                BookingOutcome outcome = outcomes.get(i);
+                if (outcome.isCreated()) {
+                    batch.results.get(i).complete(outcome.getBooking());
+                } else {
+                    batch.results.get(i).completeExceptionally(outcome.getError());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to create {} bookings for item with id = {}: {}", batch.requests.size(), itemId,
+                    e.getMessage());
+            batch.results.forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    private static final class Batch {
+        private final List<PendingBooking> requests = new ArrayList<>();
+        private final List<CompletableFuture<BookingDto>> results = new ArrayList<>();
+        private boolean closed;
+    }
+}
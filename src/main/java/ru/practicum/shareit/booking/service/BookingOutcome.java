@@ -0,0 +1,27 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.booking.dto.BookingDto;
+
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BookingOutcome {
+    private final BookingDto booking;
+    private final RuntimeException error;
+
+    public static BookingOutcome created(BookingDto booking) {
+        return new BookingOutcome(booking, null);
+    }
+
+    public static BookingOutcome failed(RuntimeException error) {
+        return new BookingOutcome(null, error);
+    }
+
+    public boolean isCreated() {
+        return error == null;
+    }
+}
@@ -1,7 +1,10 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dto.NewBookingRequest;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
+import ru.practicum.shareit.booking.dto.BookingUpdateResultDto;
 
 import java.util.List;
 
@@ -10,9 +13,17 @@ public interface BookingService {
 
     BookingDto updateBookingStatus(long userId, long bookingId, boolean approved);
 
+    List<BookingUpdateResultDto> updateBookingStatuses(long userId, List<Long> bookingIds, boolean approved);
+
     BookingDto retrieveBooking(long userId, long bookingId);
 
     List<BookingDto> retrieveBookingsByBookerId(long userId, String state);
 
     List<BookingDto> retrieveBookingsByOwnerId(long userId, String state);
+
+    BookingStatsDto retrieveBookerStats(long userId);
+
+    BookingStatsDto retrieveOwnerStats(long userId);
+
+    SseEmitter subscribeToBookingEvents(long userId, Long lastEventId);
 }
\ No newline at end of file
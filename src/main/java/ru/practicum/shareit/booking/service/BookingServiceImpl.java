@@ -2,30 +2,54 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dto.NewBookingRequest;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
+import ru.practicum.shareit.booking.dto.BookingUpdateResultDto;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.status.BookingUpdateResult;
 import ru.practicum.shareit.booking.status.SearchingState;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingPeriod;
+import ru.practicum.shareit.booking.storage.BookingStatusRow;
 import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.booking.storage.SummedBookingStateCounts;
+import ru.practicum.shareit.booking.stream.BookingEventBroker;
+import ru.practicum.shareit.diagnostics.BookingOverlapCheckEvent;
 import ru.practicum.shareit.exception.AlreadyExistException;
 import ru.practicum.shareit.exception.NotAvailableException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.storage.ItemIdFilter;
 import ru.practicum.shareit.item.storage.ItemStorage;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.shard.ShardRouter;
+import ru.practicum.shareit.user.storage.UserIdFilter;
 import ru.practicum.shareit.user.storage.UserStorage;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.utils.Constants;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static ru.practicum.shareit.utils.Constants.USER_CANNOT_CHANGE_BOOKING_STATUS_TWICE_MESSAGE;
 
@@ -38,6 +62,12 @@ public class BookingServiceImpl implements BookingService {
     private final BookingStorage bookingStorage;
     private final ItemStorage itemStorage;
     private final UserStorage userStorage;
+    private final UserIdFilter userIdFilter;
+    private final ItemIdFilter itemIdFilter;
+    private final BookingStatsCache bookingStatsCache;
+    private final BookingEventBroker bookingEventBroker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
 
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ)
@@ -47,6 +77,80 @@ public class BookingServiceImpl implements BookingService {
         User user = getUserById(userId);
         Item item = getItemById(bookingDto.getItemId());
 
+        validateBookedItem(item, userId);
+
+        checkTimeOverlap(bookingDto.getStart(), bookingDto.getEnd(), item.getId(),
+                findApprovedBookingsEndingAfter(item.getId(), bookingDto.getStart()));
+
+        Booking createdBooking = bookingStorage.save(BookingMapper.toBooking(bookingDto, user, item));
+        eventPublisher.publishEvent(BookingChangedEvent.of(createdBooking));
+        log.info("Created booking with id = {} by user with id = {} for item with id = {}", createdBooking.getId(), userId, bookingDto.getItemId());
+        return BookingMapper.toBookingDto(createdBooking);
+    }
+
+    /**
+     * Creates bookings of one item requested at about the same time. Every request is validated exactly as in
+     * {@link #createBooking}, but the item, the bookers and the approved bookings are read once for the whole
+     * batch and all valid bookings are saved in one transaction. A rejected request does not affect the others.
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public List<BookingOutcome> createBookings(long itemId, List<PendingBooking> requests) {
+        Item item;
+        try {
+            item = getItemById(itemId);
+        } catch (NotFoundException e) {
+            return requests.stream().map(request -> BookingOutcome.failed(e)).collect(Collectors.toList());
+        }
+
+        Set<Long> bookerIds = requests.stream().map(PendingBooking::getUserId).collect(Collectors.toSet());
+        Map<Long, User> bookers = userStorage.findAllById(bookerIds).stream()
+                .filter(user -> !user.isDeleted())
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        LocalDateTime earliestStart = requests.stream()
+                .map(request -> request.getBooking().getStart())
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
+        List<Booking> approvedBookings = findApprovedBookingsEndingAfter(itemId, earliestStart);
+
+        Booking[] newBookings = new Booking[requests.size()];
+        RuntimeException[] errors = new RuntimeException[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            PendingBooking request = requests.get(i);
+            NewBookingRequest bookingDto = request.getBooking();
+            try {
+                validateBookingTime(bookingDto.getStart(), bookingDto.getEnd());
+                User user = bookers.get(request.getUserId());
+                if (user == null) {
+                    log.warn("Attempt to book item by user with non-existing id = {}", request.getUserId());
+                    throw new NotFoundException(String.format(Constants.USER_NOT_FOUND_MESSAGE, request.getUserId()));
+                }
+                validateBookedItem(item, request.getUserId());
+                checkTimeOverlap(bookingDto.getStart(), bookingDto.getEnd(), itemId, approvedBookings);
+                newBookings[i] = BookingMapper.toBooking(bookingDto, user, item);
+            } catch (RuntimeException e) {
+                errors[i] = e;
+            }
+        }
+
+        bookingStorage.saveAll(Arrays.stream(newBookings).filter(Objects::nonNull).collect(Collectors.toList()));
+
+        List<BookingOutcome> outcomes = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (newBookings[i] == null) {
+                outcomes.add(BookingOutcome.failed(errors[i]));
+                continue;
+            }
+
+            eventPublisher.publishEvent(BookingChangedEvent.of(newBookings[i]));
+            outcomes.add(BookingOutcome.created(BookingMapper.toBookingDto(newBookings[i])));
+        }
+
+        log.info("Created {} of {} bookings requested together for item with id = {}",
+                outcomes.stream().filter(BookingOutcome::isCreated).count(), requests.size(), itemId);
+        return outcomes;
+    }
+
+    private void validateBookedItem(Item item, long userId) {
         if (!item.isAvailable()) {
             log.warn("Attempt by user with id = {} to book unavailable item with id = {}", userId, item.getId());
             throw new NotAvailableException(String.format(Constants.ITEM_NOT_AVAILABLE_MESSAGE, item.getId()));
@@ -56,16 +160,15 @@ public class BookingServiceImpl implements BookingService {
             log.warn("Attempt by user with id = {} to book their own item with id = {}", userId, item.getId());
             throw new SecurityException(Constants.USER_CANNOT_BOOK_HIS_ITEM_MESSAGE);
         }
+    }
 
-        checkTimeOverlap(bookingDto.getStart(), bookingDto.getEnd(), item.getId());
-
-        Booking createdBooking = bookingStorage.save(BookingMapper.toBooking(bookingDto, user, item));
-        log.info("Created booking with id = {} by user with id = {} for item with id = {}", createdBooking.getId(), userId, bookingDto.getItemId());
-        return BookingMapper.toBookingDto(createdBooking);
+    private List<Booking> findApprovedBookingsEndingAfter(long itemId, LocalDateTime time) {
+        return bookingStorage.findByItem_IdAndEndAfterAndStatusOrderByStartAsc(itemId, time, Status.APPROVED);
     }
 
     private User getUserById(long userId) {
-        return userStorage.findById(userId)
+        return userIdFilter.find(userId, userStorage::findById)
+                .filter(user -> !user.isDeleted())
                 .orElseThrow(() -> {
                     log.warn("Attempt to book item by user with non-existing id = {}", userId);
                     return new NotFoundException(String.format(Constants.USER_NOT_FOUND_MESSAGE, userId));
@@ -73,25 +176,145 @@ public class BookingServiceImpl implements BookingService {
     }
 
     private Item getItemById(long itemId) {
-        return itemStorage.findById(itemId)
+        return itemIdFilter.find(itemId, itemStorage::findById)
                 .orElseThrow(() -> {
                     log.warn("Attempt to book non-existing item with id = {}", itemId);
                     return new NotFoundException(String.format(Constants.ITEM_NOT_FOUND_MESSAGE, itemId));
                 });
     }
 
+    /**
+     * The status is changed by an update of waiting bookings only, so of two requests deciding the same booking the
+     * later one gets 409. It runs in read committed, where that update sees the status committed by the other one.
+     */
     @Override
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public BookingDto updateBookingStatus(long userId, long bookingId, boolean approved) {
         Booking booking = getBookingById(bookingId);
+        long itemId = booking.getItem().getId();
 
-        validateOwnership(userId, booking.getItem().getId());
+        validateOwnership(userId, itemId);
 
         validateBookingStatus(booking);
 
-        updateBookingStatus(booking, approved);
+        Status newStatus = approved ? Status.APPROVED : Status.REJECTED;
+        if (bookingStorage.updateWaitingStatuses(List.of(bookingId), newStatus) == 0) {
+            log.warn("Booking with id = {} was decided by another request while user with id = {} changed its status",
+                    bookingId, userId);
+            throw new AlreadyExistException(Constants.BOOKING_CHANGED_CONCURRENTLY_MESSAGE);
+        }
+        log.info("Updated booking status for booking with id = {} to {}", bookingId, newStatus);
+
+        // the loaded booking is left unchanged, setting its status would write the row a second time on flush
+        eventPublisher.publishEvent(new BookingChangedEvent(bookingId, itemId, booking.getItem().getUser().getId(),
+                booking.getBooker().getId(), newStatus, booking.getStart(), booking.getEnd()));
+        BookingDto updatedBooking = BookingMapper.toBookingDto(booking);
+        updatedBooking.setStatus(newStatus);
+        return updatedBooking;
+    }
+
+    // locks the items of the approved bookings, so approvals of one item are checked for conflicts one after another
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public List<BookingUpdateResultDto> updateBookingStatuses(long userId, List<Long> bookingIds, boolean approved) {
+        Status newStatus = approved ? Status.APPROVED : Status.REJECTED;
+        Set<Long> requestedIds = new LinkedHashSet<>(bookingIds);
+        Map<Long, BookingStatusRow> rows = bookingStorage.findStatusRowsByIds(requestedIds).stream()
+                .collect(Collectors.toMap(BookingStatusRow::getId, Function.identity()));
+
+        Map<Long, BookingUpdateResult> results = new HashMap<>();
+        List<BookingStatusRow> candidates = new ArrayList<>();
+        for (Long bookingId : requestedIds) {
+            BookingStatusRow row = rows.get(bookingId);
+            if (row == null) {
+                results.put(bookingId, BookingUpdateResult.NOT_FOUND);
+            } else if (row.getOwnerId() != userId) {
+                results.put(bookingId, BookingUpdateResult.NOT_OWNER);
+            } else if (row.getStatus() != Status.WAITING) {
+                results.put(bookingId, BookingUpdateResult.ALREADY_DECIDED);
+            } else {
+                candidates.add(row);
+            }
+        }
 
-        return BookingMapper.toBookingDto(bookingStorage.save(booking));
+        if (approved) {
+            candidates = removeConflictingApprovals(candidates, results);
+        }
+
+        List<Long> updatedIds = candidates.stream().map(BookingStatusRow::getId).collect(Collectors.toList());
+        if (!updatedIds.isEmpty()) {
+            int updated = bookingStorage.updateWaitingStatuses(updatedIds, newStatus);
+            if (updated != updatedIds.size()) {
+                log.warn("Only {} of {} bookings were still waiting when changing their status by user with id = {}",
+                        updated, updatedIds.size(), userId);
+                throw new AlreadyExistException(Constants.BOOKINGS_CHANGED_CONCURRENTLY_MESSAGE);
+            }
+        }
+
+        for (BookingStatusRow row : candidates) {
+            results.put(row.getId(), BookingUpdateResult.UPDATED);
+            eventPublisher.publishEvent(new BookingChangedEvent(row.getId(), row.getItemId(), row.getOwnerId(),
+                    row.getBookerId(), newStatus, row.getStart(), row.getEnd()));
+        }
+
+        log.info("Changed status of {} of {} bookings to {} by user with id = {}", candidates.size(),
+                requestedIds.size(), newStatus, userId);
+        return requestedIds.stream()
+                .map(bookingId -> {
+                    BookingUpdateResult result = results.get(bookingId);
+                    BookingStatusRow row = rows.get(bookingId);
+                    Status status = result == BookingUpdateResult.UPDATED ? newStatus
+                            : row == null || result == BookingUpdateResult.NOT_OWNER ? null : row.getStatus();
+                    return new BookingUpdateResultDto(bookingId, result, status);
+                })
+                .collect(Collectors.toList());
+    }
+
+    // approves bookings in the order of their start, a booking overlapping an approved one is left waiting
+    private List<BookingStatusRow> removeConflictingApprovals(List<BookingStatusRow> candidates,
+                                                              Map<Long, BookingUpdateResult> results) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        Set<Long> itemIds = candidates.stream().map(BookingStatusRow::getItemId).collect(Collectors.toSet());
+        itemStorage.lockAllByIds(itemIds);
+        LocalDateTime from = candidates.stream().map(BookingStatusRow::getStart).min(Comparator.naturalOrder())
+                .orElseThrow();
+        LocalDateTime to = candidates.stream().map(BookingStatusRow::getEnd).max(Comparator.naturalOrder())
+                .orElseThrow();
+
+        Map<Long, List<BookingPeriod>> approvedPeriods = bookingStorage.findPeriodsByItemIdsAndStatusOverlapping(
+                        itemIds, Status.APPROVED, from, to).stream()
+                .collect(Collectors.groupingBy(BookingPeriod::getItemId));
+        Map<Long, List<BookingStatusRow>> acceptedPeriods = new HashMap<>();
+
+        List<BookingStatusRow> accepted = new ArrayList<>();
+        List<BookingStatusRow> sortedCandidates = new ArrayList<>(candidates);
+        sortedCandidates.sort(Comparator.comparing(BookingStatusRow::getStart));
+        for (BookingStatusRow candidate : sortedCandidates) {
+            boolean conflictsWithApproved = approvedPeriods.getOrDefault(candidate.getItemId(), List.of()).stream()
+                    .anyMatch(period -> overlaps(candidate.getStart(), candidate.getEnd(), period.getStart(),
+                            period.getEnd()));
+            boolean conflictsWithAccepted = acceptedPeriods.getOrDefault(candidate.getItemId(), List.of()).stream()
+                    .anyMatch(other -> overlaps(candidate.getStart(), candidate.getEnd(), other.getStart(),
+                            other.getEnd()));
+
+            if (conflictsWithApproved || conflictsWithAccepted) {
+                log.warn("Booking with id = {} cannot be approved, it overlaps an approved booking of item with id = {}",
+                        candidate.getId(), candidate.getItemId());
+                results.put(candidate.getId(), BookingUpdateResult.TIME_CONFLICT);
+            } else {
+                accepted.add(candidate);
+                acceptedPeriods.computeIfAbsent(candidate.getItemId(), id -> new ArrayList<>()).add(candidate);
+            }
+        }
+        return accepted;
+    }
+
+    private static boolean overlaps(LocalDateTime start, LocalDateTime end, LocalDateTime otherStart,
+                                    LocalDateTime otherEnd) {
+        return start.isBefore(otherEnd) && end.isAfter(otherStart);
     }
 
     private void validateOwnership(long userId, long itemId) {
@@ -108,11 +331,6 @@ public class BookingServiceImpl implements BookingService {
         }
     }
 
-    private void updateBookingStatus(Booking booking, boolean approved) {
-        booking.setStatus(approved ? Status.APPROVED : Status.REJECTED);
-        log.info("Updated booking status for booking with id = {} to {}", booking.getId(), booking.getStatus());
-    }
-
 
     @Override
     public BookingDto retrieveBooking(long userId, long bookingId) {
@@ -201,6 +419,35 @@ public class BookingServiceImpl implements BookingService {
         return BookingMapper.toBookingDto(bookings);
     }
 
+    @Override
+    public BookingStatsDto retrieveBookerStats(long userId) {
+        validateUserExistence(userId);
+
+        // the bookings of a booker are spread over the shards of the booked items
+        BookingStatsDto stats = bookingStatsCache.getBookerStats(userId, now -> SummedBookingStateCounts.of(
+                shardRouter.onEachShard(shard -> bookingStorage.countStatesByBookerId(userId, now))));
+        log.info("Received booking counts by state for booking author with id = {}, total {}", userId, stats.getAll());
+        return stats;
+    }
+
+    @Override
+    public BookingStatsDto retrieveOwnerStats(long userId) {
+        validateUserExistence(userId);
+
+        BookingStatsDto stats = bookingStatsCache.getOwnerStats(userId,
+                now -> bookingStorage.countStatesByOwnerId(userId, now));
+        log.info("Received booking counts by state for item owner with id = {}, total {}", userId, stats.getAll());
+        return stats;
+    }
+
+    @Override
+    public SseEmitter subscribeToBookingEvents(long userId, Long lastEventId) {
+        validateUserExistence(userId);
+
+        log.info("User with id = {} subscribed to booking events", userId);
+        return bookingEventBroker.subscribe(userId, lastEventId);
+    }
+
     private Status getStatusForState(SearchingState state) {
         return state == SearchingState.REJECTED ? Status.REJECTED : Status.WAITING;
     }
@@ -225,7 +472,7 @@ public class BookingServiceImpl implements BookingService {
     }
 
     private void validateUserExistence(long userId) {
-        if (!userStorage.existsById(userId)) {
+        if (!userIdFilter.exists(userId, userStorage::existsByIdAndDeletedFalse)) {
             log.warn("Attempt to retrieve bookings of non-existing user with id = {}", userId);
             throw new NotFoundException(String.format(Constants.USER_NOT_FOUND_MESSAGE, userId));
         }
@@ -240,17 +487,24 @@ public class BookingServiceImpl implements BookingService {
         }
     }
 
-    private void checkTimeOverlap(LocalDateTime bookingStart, LocalDateTime bookingEnd, long itemId) {
-        List<Booking> overlappingBookings = bookingStorage.findByItem_IdAndEndAfterAndStatusOrderByStartAsc(
-                itemId, bookingStart, Status.APPROVED);
-
-        for (Booking booking : overlappingBookings) {
-            boolean overlaps = bookingStart.isBefore(booking.getEnd()) && bookingEnd.isAfter(booking.getStart());
-            if (overlaps) {
-                log.warn("Attempt to create booking for item with id = {}, overlapping in time with already approved booking with id = {}", itemId, booking.getId());
-                throw new AlreadyExistException(String.format(Constants.TIME_NOT_AVAILABLE_FOR_BOOKING_MESSAGE,
-                        bookingStart.format(FORMATTER), bookingEnd.format(FORMATTER)));
+    private void checkTimeOverlap(LocalDateTime bookingStart, LocalDateTime bookingEnd, long itemId,
+                                  List<Booking> approvedBookings) {
+        BookingOverlapCheckEvent event = new BookingOverlapCheckEvent();
+        event.begin();
+        event.setItemId(itemId);
+        try {
+            for (Booking booking : approvedBookings) {
+                event.setRowsScanned(event.getRowsScanned() + 1);
+                boolean overlaps = bookingStart.isBefore(booking.getEnd()) && bookingEnd.isAfter(booking.getStart());
+                if (overlaps) {
+                    event.setOverlapFound(true);
+                    log.warn("Attempt to create booking for item with id = {}, overlapping in time with already approved booking with id = {}", itemId, booking.getId());
+                    throw new AlreadyExistException(String.format(Constants.TIME_NOT_AVAILABLE_FOR_BOOKING_MESSAGE,
+                            bookingStart.format(FORMATTER), bookingEnd.format(FORMATTER)));
+                }
             }
+        } finally {
+            event.commit();
         }
     }
 
@@ -0,0 +1,134 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.booking.dto.BookingStatsDto;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.booking.storage.BookingStateCounts;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+@Component
+@Slf4j
+public class BookingStatsCache {
+    private static final int MAX_ENTRIES = 10_000;
+    private static final Duration MAX_TTL = Duration.ofMinutes(10);
+
+    private final Map<Long, Entry> bookerStats = createLruMap();
+    private final Map<Long, Entry> ownerStats = createLruMap();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Duration ttl;
+
+    // bookings changed by other instances are not seen through the events, so their stats only live briefly
+    public BookingStatsCache(@Value("${shareit.single-instance}") boolean singleInstance,
+                             @Value("${shareit.cache.multi-instance-ttl}") Duration multiInstanceTtl) {
+        this.ttl = singleInstance ? MAX_TTL : multiInstanceTtl;
+    }
+
+    public BookingStatsDto getBookerStats(long bookerId, Function<LocalDateTime, BookingStateCounts> loader) {
+        return get(bookerStats, bookerId, loader);
+    }
+
+    public BookingStatsDto getOwnerStats(long ownerId, Function<LocalDateTime, BookingStateCounts> loader) {
+        return get(ownerStats, ownerId, loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        invalidate(event.getBookerId(), event.getOwnerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingDeleted(BookingDeletedEvent event) {
+        invalidate(event.getBookerId(), event.getOwnerId());
+    }
+
+    private void invalidate(long bookerId, long ownerId) {
+        invalidations.incrementAndGet();
+        synchronized (bookerStats) {
+            bookerStats.remove(bookerId);
+        }
+        synchronized (ownerStats) {
+            ownerStats.remove(ownerId);
+        }
+    }
+
+    private BookingStatsDto get(Map<Long, Entry> cache, long userId,
+                                Function<LocalDateTime, BookingStateCounts> loader) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(userId);
+        }
+        if (entry != null && now.isBefore(entry.validUntil)) {
+            return entry.stats;
+        }
+
+        long invalidationsBeforeLoad = invalidations.get();
+        BookingStateCounts counts = loader.apply(now);
+        entry = new Entry(toStatsDto(counts), getValidUntil(counts, now));
+
+        // a booking changed while loading, the counts may already be outdated
+        if (invalidationsBeforeLoad != invalidations.get()) {
+            return entry.stats;
+        }
+
+        synchronized (cache) {
+            cache.put(userId, entry);
+        }
+
+        log.debug("Cached booking stats for user with id = {} until {}", userId, entry.validUntil);
+        return entry.stats;
+    }
+
+    // CURRENT, PAST and FUTURE counts shift on their own once the nearest booking starts or ends
+    private LocalDateTime getValidUntil(BookingStateCounts counts, LocalDateTime now) {
+        LocalDateTime validUntil = now.plus(ttl);
+
+        if (counts.getNextStart() != null && counts.getNextStart().isBefore(validUntil)) {
+            validUntil = counts.getNextStart();
+        }
+
+        if (counts.getNextEnd() != null && counts.getNextEnd().isBefore(validUntil)) {
+            validUntil = counts.getNextEnd();
+        }
+
+        return validUntil;
+    }
+
+    private BookingStatsDto toStatsDto(BookingStateCounts counts) {
+        return new BookingStatsDto(
+                counts.getAllCount(),
+                counts.getCurrentCount(),
+                counts.getPastCount(),
+                counts.getFutureCount(),
+                counts.getWaitingCount(),
+                counts.getRejectedCount()
+        );
+    }
+
+    private static Map<Long, Entry> createLruMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final BookingStatsDto stats;
+        private final LocalDateTime validUntil;
+    }
+}
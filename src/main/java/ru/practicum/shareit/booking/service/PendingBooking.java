@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.booking.dto.NewBookingRequest;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class PendingBooking {
+    private final NewBookingRequest booking;
+    private final long userId;
+}
@@ -0,0 +1,9 @@
+package ru.practicum.shareit.booking.status;
+
+public enum BookingUpdateResult {
+    UPDATED,
+    NOT_FOUND,
+    NOT_OWNER,
+    ALREADY_DECIDED,
+    TIME_CONFLICT
+}
@@ -0,0 +1,184 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the monthly range partitions of the bookings table created by schema-postgresql.sql. Partitions are
+ * created ahead of time, bookings that landed in the default partition are moved to a partition of their own
+ * month, and partitions that ended long ago are moved to bookings_archive, so that queries by start date only
+ * scan the partitions of the months they ask for. Every instance runs the maintenance, so each change takes an
+ * advisory lock and checks again that it is still needed, as another instance may have made it meanwhile.
+ */
+@Component
+@Profile("postgres")
+@Slf4j
+public class BookingPartitionManager {
+    private static final Pattern PARTITION_NAME = Pattern.compile("bookings_p(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String MAINTENANCE_LOCK = "select pg_advisory_xact_lock(hashtext('bookings_partitions'))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+
+    public BookingPartitionManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   @Value("${shareit.booking-partitions.months-ahead}") int monthsAhead,
+                                   @Value("${shareit.booking-partitions.archive-after-months}")
+                                   int archiveAfterMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${shareit.booking-partitions.maintenance-cron}")
+    public void maintainPartitions() {
+        if (!isPartitioned()) {
+            log.warn("Table bookings is not partitioned, partition maintenance is skipped");
+            return;
+        }
+
+        YearMonth currentMonth = YearMonth.now();
+        TreeSet<YearMonth> partitions = findPartitions("bookings");
+
+        TreeSet<YearMonth> missing = new TreeSet<>(findMonthsInDefaultPartition());
+        for (int i = 0; i <= monthsAhead; i++) {
+            missing.add(currentMonth.plusMonths(i));
+        }
+        missing.removeAll(partitions);
+        missing.forEach(this::createPartition);
+        partitions.addAll(missing);
+
+        if (archiveAfterMonths > 0) {
+            YearMonth firstKeptMonth = currentMonth.minusMonths(archiveAfterMonths);
+            partitions.headSet(firstKeptMonth).forEach(this::archivePartition);
+        }
+    }
+
+    private boolean isPartitioned() {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from pg_partitioned_table t " +
+                "join pg_class c on c.oid = t.partrelid where c.relname = 'bookings'", Integer.class);
+        return count != null && count > 0;
+    }
+
+    private TreeSet<YearMonth> findPartitions(String parent) {
+        List<String> names = jdbcTemplate.queryForList("select c.relname from pg_inherits i " +
+                "join pg_class c on c.oid = i.inhrelid join pg_class p on p.oid = i.inhparent " +
+                "where p.relname = ?", String.class, parent);
+
+        return names.stream()
+                .map(BookingPartitionManager::toMonth)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private boolean isAttached(String partition, String parent) {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from pg_inherits i " +
+                "join pg_class c on c.oid = i.inhrelid join pg_class p on p.oid = i.inhparent " +
+                "where c.relname = ? and p.relname = ?", Integer.class, partition, parent);
+        return count != null && count > 0;
+    }
+
+    private List<YearMonth> findMonthsInDefaultPartition() {
+        return jdbcTemplate.queryForList("select distinct date_trunc('month', start_date) from bookings_default",
+                        Timestamp.class).stream()
+                .filter(Objects::nonNull)
+                .map(month -> YearMonth.from(month.toLocalDateTime()))
+                .collect(Collectors.toList());
+    }
+
+    // the default partition is locked first, so no booking of the month is inserted there while rows are moved
+    private void createPartition(YearMonth month) {
+        String partition = toPartitionName(month);
+        String from = toBound(month);
+        String to = toBound(month.plusMonths(1));
+
+        Integer moved = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(MAINTENANCE_LOCK);
+            if (isAttached(partition, "bookings")) {
+                return null;
+            }
+            jdbcTemplate.execute("lock table bookings_default in share row exclusive mode");
+            jdbcTemplate.execute("create table " + partition +
+                    " (like bookings including defaults including constraints)");
+            int rows = jdbcTemplate.update("insert into " + partition + " select * from bookings_default " +
+                    "where start_date >= '" + from + "' and start_date < '" + to + "'");
+            jdbcTemplate.update("delete from bookings_default " +
+                    "where start_date >= '" + from + "' and start_date < '" + to + "'");
+            jdbcTemplate.execute("alter table bookings attach partition " + partition +
+                    " for values from ('" + from + "') to ('" + to + "')");
+            return rows;
+        });
+
+        if (moved == null) {
+            log.info("Bookings partition {} was created by another instance", partition);
+            return;
+        }
+        log.info("Created bookings partition {} with {} bookings moved from the default partition", partition, moved);
+    }
+
+    // detaching and attaching only change the catalog, the rows of the partition are not copied
+    private void archivePartition(YearMonth month) {
+        String partition = toPartitionName(month);
+
+        Boolean archived = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(MAINTENANCE_LOCK);
+            if (!isAttached(partition, "bookings")) {
+                return false;
+            }
+            jdbcTemplate.execute("alter table bookings detach partition " + partition);
+            jdbcTemplate.execute("alter table bookings_archive attach partition " + partition +
+                    " for values from ('" + toBound(month) + "') to ('" + toBound(month.plusMonths(1)) + "')");
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(archived)) {
+            log.info("Moved bookings partition {} to the archive", partition);
+        } else {
+            log.info("Bookings partition {} was moved to the archive by another instance", partition);
+        }
+    }
+
+    static String toPartitionName(YearMonth month) {
+        return "bookings_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    static Optional<YearMonth> toMonth(String partition) {
+        Matcher matcher = PARTITION_NAME.matcher(partition);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        int month = Integer.parseInt(matcher.group(2));
+        if (month < 1 || month > 12) {
+            return Optional.empty();
+        }
+        return Optional.of(YearMonth.of(Integer.parseInt(matcher.group(1)), month));
+    }
+
+    static String toBound(YearMonth month) {
+        return month.atDay(1).atStartOfDay().format(BOUND);
+    }
+}
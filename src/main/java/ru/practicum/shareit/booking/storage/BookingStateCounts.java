@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.storage;
+
+import java.time.LocalDateTime;
+
+public interface BookingStateCounts {
+    long getAllCount();
+
+    long getCurrentCount();
+
+    long getPastCount();
+
+    long getFutureCount();
+
+    long getWaitingCount();
+
+    long getRejectedCount();
+
+    LocalDateTime getNextStart();
+
+    LocalDateTime getNextEnd();
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.storage;
+
+import ru.practicum.shareit.booking.status.Status;
+
+import java.time.LocalDateTime;
+
+public interface BookingStatusRow {
+    Long getId();
+
+    Long getItemId();
+
+    Long getOwnerId();
+
+    Long getBookerId();
+
+    Status getStatus();
+
+    LocalDateTime getStart();
+
+    LocalDateTime getEnd();
+}
@@ -1,33 +1,62 @@
 package ru.practicum.shareit.booking.storage;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.status.Status;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingStorage extends JpaRepository<Booking, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"item", "booker"})
+    Optional<Booking> findById(Long id);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByBooker_IdOrderByStartDesc(Long bookerId);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
+    List<Booking> findByBooker_IdOrderByStartDesc(Long bookerId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByBooker_IdAndEndBeforeOrderByStartDesc(Long bookerId, LocalDateTime time);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByBooker_IdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime time);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByBooker_IdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId, LocalDateTime time1,
                                                                            LocalDateTime time2);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByBooker_IdAndStatusOrderByStartDesc(Long bookerId, Status status);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByItem_User_IdOrderByStartDesc(Long ownerId);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
+    List<Booking> findByItem_User_IdOrderByStartDesc(Long ownerId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByItem_User_IdAndStatusOrderByStartDesc(Long ownerId, Status status);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByItem_User_IdAndStartAfterOrderByStartDesc(Long ownerId, LocalDateTime time);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByItem_User_IdAndEndBeforeOrderByStartDesc(Long ownerId, LocalDateTime time);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     List<Booking> findByItem_User_IdAndStartBeforeAndEndAfterOrderByStartDesc(Long ownerId, LocalDateTime time1,
                                                                               LocalDateTime time2);
 
@@ -37,8 +66,71 @@ public interface BookingStorage extends JpaRepository<Booking, Long> {
 
     List<Booking> findByItem_IdAndEndAfterAndStatusOrderByStartAsc(Long itemId, LocalDateTime end, Status status);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
+    List<Booking> findByItem_IdOrderByIdAsc(Long itemId, Pageable pageable);
+
+    List<Booking> findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(Long itemId, List<Status> statuses,
+                                                                     LocalDateTime end);
+
+    boolean existsByItem_IdAndStatusAndStartBeforeAndEndAfter(Long itemId, Status status, LocalDateTime end,
+                                                               LocalDateTime start);
+
+    @Query("select b.id as id, b.item.id as itemId, b.start as start, b.end as end from Booking b " +
+            "where b.status = :status and b.end > :end and b.id > :afterId order by b.id")
+    List<BookingPeriod> findPeriodsByStatusAndEndAfter(@Param("status") Status status, @Param("end") LocalDateTime end,
+                                                       @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select b.id as id, b.item.id as itemId, b.item.user.id as ownerId, b.booker.id as bookerId, " +
+            "b.status as status, b.start as start, b.end as end from Booking b where b.id in :ids")
+    List<BookingStatusRow> findStatusRowsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select b.id as id, b.item.id as itemId, b.start as start, b.end as end from Booking b " +
+            "where b.item.id in :itemIds and b.status = :status and b.end > :from and b.start < :to " +
+            "order by b.start")
+    List<BookingPeriod> findPeriodsByItemIdsAndStatusOverlapping(@Param("itemIds") Collection<Long> itemIds,
+                                                                 @Param("status") Status status,
+                                                                 @Param("from") LocalDateTime from,
+                                                                 @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query("update Booking b set b.status = :status " +
+            "where b.id in :ids and b.status = ru.practicum.shareit.booking.status.Status.WAITING")
+    int updateWaitingStatuses(@Param("ids") Collection<Long> ids, @Param("status") Status status);
+
+    // rows are locked in the order of their ids, rows removed by another transaction meanwhile are not returned
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Booking b where b.id in :ids order by b.id")
+    List<Booking> lockAllByIds(@Param("ids") Collection<Long> ids);
+
     List<Booking> findByItemIdInAndStartBeforeAndStatus(List<Long> itemIds, LocalDateTime now, Status status, Sort sort);
 
     List<Booking> findByItemIdInAndStartAfterAndStatus(List<Long> itemIds, LocalDateTime now, Status status, Sort sort);
 
+    Optional<Booking> findFirstByItem_IdAndStatusAndStartBeforeOrderByStartDesc(Long itemId, Status status,
+                                                                               LocalDateTime time);
+
+    Optional<Booking> findFirstByItem_IdAndStatusAndStartAfterOrderByStartAsc(Long itemId, Status status,
+                                                                             LocalDateTime time);
+
+    @Query("select count(b.id) as allCount, " +
+            "coalesce(sum(case when b.start < :now and b.end > :now then 1 else 0 end), 0) as currentCount, " +
+            "coalesce(sum(case when b.end < :now then 1 else 0 end), 0) as pastCount, " +
+            "coalesce(sum(case when b.start > :now then 1 else 0 end), 0) as futureCount, " +
+            "coalesce(sum(case when b.status = ru.practicum.shareit.booking.status.Status.WAITING then 1 else 0 end), 0) as waitingCount, " +
+            "coalesce(sum(case when b.status = ru.practicum.shareit.booking.status.Status.REJECTED then 1 else 0 end), 0) as rejectedCount, " +
+            "min(case when b.start > :now then b.start end) as nextStart, " +
+            "min(case when b.end > :now then b.end end) as nextEnd " +
+            "from Booking b where b.booker.id = :userId")
+    BookingStateCounts countStatesByBookerId(@Param("userId") Long bookerId, @Param("now") LocalDateTime now);
+
+    @Query("select count(b.id) as allCount, " +
+            "coalesce(sum(case when b.start < :now and b.end > :now then 1 else 0 end), 0) as currentCount, " +
+            "coalesce(sum(case when b.end < :now then 1 else 0 end), 0) as pastCount, " +
+            "coalesce(sum(case when b.start > :now then 1 else 0 end), 0) as futureCount, " +
+            "coalesce(sum(case when b.status = ru.practicum.shareit.booking.status.Status.WAITING then 1 else 0 end), 0) as waitingCount, " +
+            "coalesce(sum(case when b.status = ru.practicum.shareit.booking.status.Status.REJECTED then 1 else 0 end), 0) as rejectedCount, " +
+            "min(case when b.start > :now then b.start end) as nextStart, " +
+            "min(case when b.end > :now then b.end end) as nextEnd " +
+            "from Booking b where b.item.user.id = :userId")
+    BookingStateCounts countStatesByOwnerId(@Param("userId") Long ownerId, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+@Value
+public class SummedBookingStateCounts implements BookingStateCounts {
+    long allCount;
+    long currentCount;
+    long pastCount;
+    long futureCount;
+    long waitingCount;
+    long rejectedCount;
+    LocalDateTime nextStart;
+    LocalDateTime nextEnd;
+
+    public static BookingStateCounts of(List<BookingStateCounts> counts) {
+        if (counts.size() == 1) {
+            return counts.get(0);
+        }
+
+        return new SummedBookingStateCounts(
+                counts.stream().mapToLong(BookingStateCounts::getAllCount).sum(),
+                counts.stream().mapToLong(BookingStateCounts::getCurrentCount).sum(),
+                counts.stream().mapToLong(BookingStateCounts::getPastCount).sum(),
+                counts.stream().mapToLong(BookingStateCounts::getFutureCount).sum(),
+                counts.stream().mapToLong(BookingStateCounts::getWaitingCount).sum(),
+                counts.stream().mapToLong(BookingStateCounts::getRejectedCount).sum(),
+                counts.stream().map(BookingStateCounts::getNextStart).filter(Objects::nonNull)
+                        .min(Comparator.naturalOrder()).orElse(null),
+                counts.stream().map(BookingStateCounts::getNextEnd).filter(Objects::nonNull)
+                        .min(Comparator.naturalOrder()).orElse(null));
+    }
+}
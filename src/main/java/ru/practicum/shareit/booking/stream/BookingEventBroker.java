@@ -0,0 +1,275 @@
+package ru.practicum.shareit.booking.stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes booking changes to the booker and the item owner over server-sent events. Connections are held by
+ * servlet async requests, so an idle subscriber costs no thread. The subscribers, the replay buffers and the event
+ * ids are only changed on a single broker thread, which keeps events of one user in order and makes a replay after
+ * Last-Event-ID free of gaps and duplicates. The broker thread never writes to a connection: every stream has a
+ * bounded queue of its own that a pool of sender threads writes out, one stream at a time per thread. A stream
+ * whose queue overflows or whose write takes longer than the send timeout is closed, and its client reconnects
+ * with Last-Event-ID, so a slow client cannot hold up the events of the others.
+ */
+@Component
+@Slf4j
+public class BookingEventBroker {
+    private static final String EVENT_NAME = "booking";
+    private static final int MAX_BUFFERED_EVENTS_PER_USER = 100;
+    private static final int MAX_BUFFERED_USERS = 10_000;
+    private static final int MAX_QUEUED_EVENTS_PER_STREAM = 2 * MAX_BUFFERED_EVENTS_PER_USER;
+    private static final BufferedEvent HEARTBEAT = new BufferedEvent(0, null);
+
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final Map<Long, Set<EventStream>> subscribers = new HashMap<>();
+    private final Map<Long, Deque<BufferedEvent>> buffers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Deque<BufferedEvent>> eldest) {
+            return size() > MAX_BUFFERED_USERS;
+        }
+    };
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService broker = Executors.newSingleThreadExecutor(r -> new Thread(r, "booking-events"));
+    private final ExecutorService senders;
+    // ids keep growing across restarts, so a Last-Event-ID from a previous run never hides new events
+    private long lastEventId = System.currentTimeMillis() * 1000;
+
+    public BookingEventBroker(@Value("${shareit.booking-stream.timeout}") Duration timeout,
+                              @Value("${shareit.booking-stream.send-timeout}") Duration sendTimeout,
+                              @Value("${shareit.booking-stream.sender-threads}") int senderThreads,
+                              MeterRegistry meterRegistry) {
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads,
+                r -> new Thread(r, "booking-events-sender-" + senderCount.incrementAndGet()));
+
+        Gauge.builder("shareit.booking.stream.connections", connections, AtomicInteger::get)
+                .description("Open booking event streams")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(long userId, Long lastSeenEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        EventStream stream = new EventStream(userId, emitter);
+        emitter.onCompletion(() -> execute(() -> unsubscribe(stream)));
+        emitter.onTimeout(emitter::complete);
+
+        execute(() -> {
+            subscribers.computeIfAbsent(userId, id -> new HashSet<>()).add(stream);
+            connections.incrementAndGet();
+            log.debug("User with id = {} subscribed to booking events after event {}", userId, lastSeenEventId);
+
+            Deque<BufferedEvent> missed = buffers.get(userId);
+            if (lastSeenEventId != null && missed != null) {
+                missed.stream()
+                        .filter(event -> event.id > lastSeenEventId)
+                        .forEach(stream::enqueue);
+            }
+        });
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        BookingEventDto data = new BookingEventDto(event.getBookingId(), event.getItemId(), event.getBookerId(),
+                event.getStatus(), event.getStart(), event.getEnd());
+
+        execute(() -> {
+            BufferedEvent bufferedEvent = new BufferedEvent(++lastEventId, data);
+            publish(event.getBookerId(), bufferedEvent);
+            if (event.getOwnerId() != event.getBookerId()) {
+                publish(event.getOwnerId(), bufferedEvent);
+            }
+        });
+    }
+
+    // lets proxies and the servlet container notice dead connections of idle subscribers
+    @Scheduled(fixedDelayString = "${shareit.booking-stream.heartbeat-interval}")
+    public void sendHeartbeats() {
+        execute(() -> {
+            long now = System.nanoTime();
+            subscribers.values().forEach(streams -> Set.copyOf(streams).forEach(stream -> {
+                if (stream.isStalled(now)) {
+                    stream.close("write did not finish within the send timeout");
+                } else {
+                    stream.enqueue(HEARTBEAT);
+                }
+            }));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        broker.shutdownNow();
+        senders.shutdownNow();
+        subscribers.values().forEach(streams -> streams.forEach(stream -> stream.emitter.complete()));
+    }
+
+    private void publish(long userId, BufferedEvent event) {
+        Deque<BufferedEvent> buffer = buffers.computeIfAbsent(userId, id -> new ArrayDeque<>());
+        buffer.addLast(event);
+        if (buffer.size() > MAX_BUFFERED_EVENTS_PER_USER) {
+            buffer.removeFirst();
+        }
+
+        Set<EventStream> streams = subscribers.get(userId);
+        if (streams != null) {
+            Set.copyOf(streams).forEach(stream -> stream.enqueue(event));
+        }
+    }
+
+    private void unsubscribe(EventStream stream) {
+        Set<EventStream> streams = subscribers.get(stream.userId);
+        if (streams != null && streams.remove(stream)) {
+            connections.decrementAndGet();
+            if (streams.isEmpty()) {
+                subscribers.remove(stream.userId);
+            }
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            broker.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Booking event broker is shut down, task is skipped");
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class BufferedEvent {
+        private final long id;
+        private final BookingEventDto data;
+    }
+
+    /**
+     * Connection of one subscriber with the events waiting to be written to it. At most one sender thread drains
+     * the queue at a time, so the events of a stream are written in order. The emitter is only used by the thread
+     * draining the queue: its methods share one lock, so completing it while a write is blocked would block too.
+     */
+    private final class EventStream {
+        private final long userId;
+        private final SseEmitter emitter;
+        private final Deque<BufferedEvent> queue = new ArrayDeque<>();
+        private boolean draining;
+        private IOException failure;
+        private volatile long sendingSince;
+
+        private EventStream(long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(BufferedEvent event) {
+            boolean overflow;
+            synchronized (this) {
+                if (failure != null) {
+                    return;
+                }
+                overflow = queue.size() >= MAX_QUEUED_EVENTS_PER_STREAM;
+                if (!overflow) {
+                    queue.addLast(event);
+                    if (draining) {
+                        return;
+                    }
+                    draining = true;
+                }
+            }
+
+            if (overflow) {
+                close("too many events are waiting to be sent");
+            } else {
+                startDraining();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                BufferedEvent event;
+                IOException closedWith;
+                synchronized (this) {
+                    closedWith = failure;
+                    event = queue.pollFirst();
+                    if (closedWith == null && event == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                if (closedWith != null) {
+                    emitter.completeWithError(closedWith);
+                    return;
+                }
+
+                sendingSince = System.nanoTime();
+                try {
+                    emitter.send(event == HEARTBEAT ? SseEmitter.event().comment("heartbeat")
+                            : SseEmitter.event().id(String.valueOf(event.id)).name(EVENT_NAME).data(event.data));
+                } catch (IOException | IllegalStateException e) {
+                    close(e.getMessage());
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+
+        private boolean isStalled(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > sendTimeoutNanos;
+        }
+
+        // the thread draining the queue completes the emitter, an idle stream gets a thread to do it
+        private void close(String reason) {
+            boolean idle;
+            synchronized (this) {
+                if (failure != null) {
+                    return;
+                }
+                log.debug("Dropping booking event stream of user with id = {}: {}", userId, reason);
+                failure = new IOException(reason);
+                queue.clear();
+                idle = !draining;
+                draining = true;
+            }
+
+            execute(() -> unsubscribe(this));
+            if (idle) {
+                startDraining();
+            }
+        }
+
+        private void startDraining() {
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                log.debug("Booking event senders are shut down, stream of user with id = {} is not written", userId);
+            }
+        }
+    }
+}
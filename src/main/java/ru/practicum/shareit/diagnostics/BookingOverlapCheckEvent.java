@@ -0,0 +1,26 @@
+package ru.practicum.shareit.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Getter;
+import lombok.Setter;
+
+@Name("ru.practicum.shareit.BookingOverlapCheck")
+@Label("Booking Overlap Check")
+@Description("Comparison of a new booking with the approved bookings of its item")
+@Category({"ShareIt", "Booking"})
+@Getter
+@Setter
+public class BookingOverlapCheckEvent extends Event {
+    @Label("Item Id")
+    private long itemId;
+
+    @Label("Rows Scanned")
+    private int rowsScanned;
+
+    @Label("Overlap Found")
+    private boolean overlapFound;
+}
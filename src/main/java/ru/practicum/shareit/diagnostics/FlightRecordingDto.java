@@ -0,0 +1,21 @@
+package ru.practicum.shareit.diagnostics;
+
+import lombok.*;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlightRecordingDto {
+    private String name;
+    private String state;
+    private Instant startTime;
+    private Duration duration;
+    private Duration maxAge;
+    private long size;
+}
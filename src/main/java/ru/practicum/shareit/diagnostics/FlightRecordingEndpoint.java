@@ -0,0 +1,145 @@
+package ru.practicum.shareit.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Starts, dumps and stops Java Flight Recorder recordings of the running application, so production can be
+ * profiled without attaching an agent. A recording keeps at most max-age of history and max-size of data unless
+ * started with a fixed duration, and it uses the JDK settings named on start, the profile settings by default.
+ * The application events are recorded with any of the settings. A dump is the .jfr file of the data recorded so
+ * far, written to a temporary file that is removed once sent, and does not stop the recording. Dumps hold system
+ * properties, environment variables, thread stacks and SQL, so the endpoint only exists in the diagnostics profile,
+ * which serves the actuator on a separate management port bound to the loopback address.
+ */
+@Component
+@Profile("diagnostics")
+@WebEndpoint(id = "flightrecording")
+@Slf4j
+public class FlightRecordingEndpoint {
+    private static final String DEFAULT_SETTINGS = "profile";
+
+    private final Map<String, Recording> recordings = new ConcurrentHashMap<>();
+    private final Duration maxAge;
+    private final DataSize maxSize;
+
+    public FlightRecordingEndpoint(@Value("${shareit.flight-recording.max-age}") Duration maxAge,
+                                   @Value("${shareit.flight-recording.max-size}") DataSize maxSize) {
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+    }
+
+    @ReadOperation
+    public List<FlightRecordingDto> getRecordings() {
+        return recordings.values().stream()
+                .map(FlightRecordingEndpoint::toFlightRecordingDto)
+                .collect(Collectors.toList());
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<FlightRecordingDto> startRecording(String name, @Nullable String settings,
+                                                                  @Nullable Duration duration) {
+        String settingsName = settings == null ? DEFAULT_SETTINGS : settings;
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settingsName);
+        } catch (IOException | ParseException e) {
+            log.warn("Attempt to start flight recording {} with unknown settings {}", name, settingsName);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName(name);
+        recording.setToDisk(true);
+        if (duration != null) {
+            recording.setDuration(duration);
+        } else {
+            recording.setMaxAge(maxAge);
+            recording.setMaxSize(maxSize.toBytes());
+        }
+
+        Recording existing = recordings.putIfAbsent(name, recording);
+        if (existing != null) {
+            recording.close();
+            log.warn("Attempt to start flight recording {} which already exists", name);
+            return new WebEndpointResponse<>(toFlightRecordingDto(existing), 409);
+        }
+
+        recording.start();
+        log.info("Started flight recording {} with settings {}", name, settingsName);
+        return new WebEndpointResponse<>(toFlightRecordingDto(recording));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dumpRecording(@Selector String name) {
+        Recording recording = recordings.get(name);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        InputStream data;
+        try {
+            Path dump = Files.createTempFile("flightrecording-", ".jfr");
+            recording.dump(dump);
+            data = Files.newInputStream(dump, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("Dumped flight recording {} of {} bytes", name, recording.getSize());
+        return new WebEndpointResponse<>(new InputStreamResource(data));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<FlightRecordingDto> stopRecording(@Selector String name) {
+        Recording recording = recordings.remove(name);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        FlightRecordingDto stopped = toFlightRecordingDto(recording);
+        recording.close();
+        log.info("Stopped flight recording {}", name);
+        return new WebEndpointResponse<>(stopped);
+    }
+
+    private static FlightRecordingDto toFlightRecordingDto(Recording recording) {
+        return new FlightRecordingDto(recording.getName(),
+                recording.getState().name(),
+                recording.getStartTime(),
+                recording.getDuration(),
+                recording.getMaxAge(),
+                recording.getSize());
+    }
+}
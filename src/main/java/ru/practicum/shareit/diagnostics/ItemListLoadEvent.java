@@ -0,0 +1,33 @@
+package ru.practicum.shareit.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Getter;
+import lombok.Setter;
+
+@Name("ru.practicum.shareit.ItemListLoad")
+@Label("Item List Load")
+@Description("Items of an owner loaded together with their bookings and comments")
+@Category({"ShareIt", "Item"})
+@Getter
+@Setter
+public class ItemListLoadEvent extends Event {
+    @Label("User Id")
+    private long userId;
+
+    @Label("Items")
+    private int items;
+
+    @Label("Bookings")
+    private int bookings;
+
+    @Label("Comments")
+    private int comments;
+
+    @Label("From Summaries")
+    @Description("Whether the items were read from the item summary projection")
+    private boolean fromSummaries;
+}
@@ -0,0 +1,23 @@
+package ru.practicum.shareit.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Getter;
+import lombok.Setter;
+
+@Name("ru.practicum.shareit.ItemSearch")
+@Label("Item Search")
+@Description("Search of available items by text in their names and descriptions")
+@Category({"ShareIt", "Item"})
+@Getter
+@Setter
+public class ItemSearchEvent extends Event {
+    @Label("Term Length")
+    private int termLength;
+
+    @Label("Results")
+    private int results;
+}
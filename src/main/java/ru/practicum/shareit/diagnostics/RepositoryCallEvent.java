@@ -0,0 +1,25 @@
+package ru.practicum.shareit.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Getter;
+import lombok.Setter;
+
+@Name("ru.practicum.shareit.RepositoryCall")
+@Label("Repository Call")
+@Description("Call of a storage method, including the transaction it opens when called outside of one")
+@Category({"ShareIt", "Persistence"})
+@StackTrace(false)
+@Getter
+@Setter
+public class RepositoryCallEvent extends Event {
+    @Label("Repository")
+    private String repository;
+
+    @Label("Method")
+    private String method;
+}
@@ -0,0 +1,43 @@
+package ru.practicum.shareit.diagnostics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Emits a flight recorder event for every call of a storage, both the Spring Data repositories and the in-memory
+ * storages. The repository and method names are only resolved for the events a running recording keeps.
+ */
+@Aspect
+@Component
+public class RepositoryCallRecorder {
+
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object recordCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        event.begin();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setRepository(repositoryName(joinPoint.getThis()));
+                event.setMethod(joinPoint.getSignature().getName());
+                event.commit();
+            }
+        }
+    }
+
+    // Spring Data repositories are JDK proxies of the storage interface, in-memory storages are class proxies
+    private static String repositoryName(Object repository) {
+        if (Proxy.isProxyClass(repository.getClass())) {
+            return AopProxyUtils.proxiedUserInterfaces(repository)[0].getSimpleName();
+        }
+        return ClassUtils.getUserClass(repository).getSimpleName();
+    }
+}
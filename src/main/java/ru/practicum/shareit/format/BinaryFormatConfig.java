@@ -0,0 +1,51 @@
+package ru.practicum.shareit.format;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Answers requests accepting application/cbor or application/x-jackson-smile in these binary formats when the
+ * Jackson data formats are on the class path, which the binary-formats build profile adds. The converters use the
+ * application's Jackson settings, except that dates are written as numbers instead of ISO strings.
+ */
+@Configuration
+public class BinaryFormatConfig {
+    private static final String CBOR_FACTORY = "com.fasterxml.jackson.dataformat.cbor.CBORFactory";
+    private static final String SMILE_FACTORY = "com.fasterxml.jackson.dataformat.smile.SmileFactory";
+
+    @Configuration
+    @ConditionalOnClass(name = CBOR_FACTORY)
+    static class CborConfig {
+
+        @Bean
+        public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+            return new MappingJackson2CborHttpMessageConverter(binaryMapper(builder, CBOR_FACTORY).build());
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = SMILE_FACTORY)
+    static class SmileConfig {
+
+        @Bean
+        public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+                Jackson2ObjectMapperBuilder builder) {
+            return new MappingJackson2SmileHttpMessageConverter(binaryMapper(builder, SMILE_FACTORY).build());
+        }
+    }
+
+    // the factories are looked up by name, so the default build compiles without the data formats
+    private static Jackson2ObjectMapperBuilder binaryMapper(Jackson2ObjectMapperBuilder builder, String factory) {
+        Class<?> factoryClass = ClassUtils.resolveClassName(factory, BinaryFormatConfig.class.getClassLoader());
+        return builder.factory((JsonFactory) BeanUtils.instantiateClass(factoryClass))
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.shareit.graphql;
+
+import lombok.Value;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+@Value
+public class BookingNode {
+    long id;
+    String start;
+    String end;
+    Status status;
+    long itemId;
+    long bookerId;
+
+    public static BookingNode of(Booking booking) {
+        return new BookingNode(booking.getId(), booking.getStart().format(ISO_LOCAL_DATE_TIME),
+                booking.getEnd().format(ISO_LOCAL_DATE_TIME), booking.getStatus(), booking.getItem().getId(),
+                booking.getBooker().getId());
+    }
+}
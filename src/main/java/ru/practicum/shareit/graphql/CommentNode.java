@@ -0,0 +1,19 @@
+package ru.practicum.shareit.graphql;
+
+import lombok.Value;
+import ru.practicum.shareit.item.model.Comment;
+
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+@Value
+public class CommentNode {
+    long id;
+    String text;
+    String created;
+    long authorId;
+
+    public static CommentNode of(Comment comment) {
+        return new CommentNode(comment.getId(), comment.getText(), comment.getCreated().format(ISO_LOCAL_DATE_TIME),
+                comment.getAuthor().getId());
+    }
+}
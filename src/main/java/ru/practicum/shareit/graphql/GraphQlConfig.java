@@ -0,0 +1,49 @@
+package ru.practicum.shareit.graphql;
+
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+
+/**
+ * Limits the depth and complexity of GraphQL queries before they are executed and passes the id of the
+ * requesting user from the same header as the REST API into the GraphQL context.
+ */
+@Configuration
+@Slf4j
+public class GraphQlConfig {
+    public static final String USER_ID_CONTEXT_KEY = "userId";
+    private static final String HEADER_WITH_USER_ID_NAME = "X-Sharer-User-Id";
+
+    @Bean
+    public MaxQueryDepthInstrumentation maxQueryDepthInstrumentation(
+            @Value("${shareit.graphql.max-query-depth}") int maxDepth) {
+        return new MaxQueryDepthInstrumentation(maxDepth);
+    }
+
+    @Bean
+    public MaxQueryComplexityInstrumentation maxQueryComplexityInstrumentation(
+            @Value("${shareit.graphql.max-query-complexity}") int maxComplexity) {
+        return new MaxQueryComplexityInstrumentation(maxComplexity);
+    }
+
+    @Bean
+    public WebGraphQlInterceptor userIdInterceptor() {
+        return (request, chain) -> {
+            String userId = request.getHeaders().getFirst(HEADER_WITH_USER_ID_NAME);
+            if (userId != null) {
+                try {
+                    long parsedUserId = Long.parseLong(userId.trim());
+                    request.configureExecutionInput((input, builder) ->
+                            builder.graphQLContext(context -> context.of(USER_ID_CONTEXT_KEY, parsedUserId)).build());
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring malformed user id header in GraphQL request: {}", userId);
+                }
+            }
+            return chain.next(request);
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package ru.practicum.shareit.graphql;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemServiceImpl;
+import ru.practicum.shareit.item.storage.CommentCount;
+import ru.practicum.shareit.item.storage.CommentStorage;
+import ru.practicum.shareit.item.storage.ItemIdFilter;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.user.storage.UserIdFilter;
+import ru.practicum.shareit.user.storage.UserStorage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.domain.Sort.Direction.ASC;
+import static org.springframework.data.domain.Sort.Direction.DESC;
+import static ru.practicum.shareit.utils.Constants.BOOKING_NOT_FOUND_MESSAGE;
+import static ru.practicum.shareit.utils.Constants.NOT_BOOKING_OR_ITEM_OWNER_CANNOT_GET_BOOKING_MESSAGE;
+
+/**
+ * Loads GraphQL nodes in batches. Every method takes all keys requested on one level of the query, so nested
+ * fields cost one query per level rather than one per parent.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class GraphQlDataService {
+    private final UserStorage userStorage;
+    private final ItemStorage itemStorage;
+    private final BookingStorage bookingStorage;
+    private final CommentStorage commentStorage;
+    private final UserIdFilter userIdFilter;
+    private final ItemIdFilter itemIdFilter;
+
+    // deleted users are left out, their items, bookings and comments remain until the purge removes them
+    public Map<Long, UserNode> findUsers(List<Long> userIds) {
+        List<Long> knownIds = userIds.stream().filter(userIdFilter::mightContain).collect(Collectors.toList());
+        if (knownIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, UserNode> users = userStorage.findAllById(knownIds).stream()
+                .filter(user -> !user.isDeleted())
+                .map(UserNode::of)
+                .collect(Collectors.toMap(UserNode::getId, Function.identity()));
+        log.debug("Loaded {} of {} requested users", users.size(), userIds.size());
+        return users;
+    }
+
+    public Map<Long, ItemNode> findItems(List<Long> itemIds) {
+        List<Long> knownIds = itemIds.stream().filter(itemIdFilter::mightContain).collect(Collectors.toList());
+        if (knownIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, ItemNode> items = itemStorage.findAllById(knownIds).stream()
+                .map(ItemNode::of)
+                .collect(Collectors.toMap(ItemNode::getId, Function.identity()));
+        log.debug("Loaded {} of {} requested items", items.size(), itemIds.size());
+        return items;
+    }
+
+    public List<ItemNode> searchItems(String text) {
+        if (text.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        return itemStorage.findByDescriptionContainingAndAvailableTrueOrNameContainingAndAvailableTrueAllIgnoreCase(
+                        text, text).stream()
+                .map(ItemNode::of)
+                .collect(Collectors.toList());
+    }
+
+    public Map<Long, List<ItemNode>> findItemsByOwners(List<Long> ownerIds) {
+        return itemStorage.findByUser_IdInOrderByIdAsc(ownerIds).stream()
+                .map(ItemNode::of)
+                .collect(Collectors.groupingBy(ItemNode::getOwnerId));
+    }
+
+    public Map<Long, List<CommentNode>> findLatestComments(List<Long> itemIds) {
+        List<Comment> latestComments = commentStorage.findLatestByItemIds(itemIds,
+                ItemServiceImpl.COMMENTS_PREVIEW_SIZE);
+
+        Map<Long, List<CommentNode>> comments = new HashMap<>();
+        for (int i = latestComments.size() - 1; i >= 0; i--) {
+            Comment comment = latestComments.get(i);
+            comments.computeIfAbsent(comment.getItem().getId(), id -> new ArrayList<>()).add(CommentNode.of(comment));
+        }
+        return comments;
+    }
+
+    public Map<Long, Long> countComments(List<Long> itemIds) {
+        return commentStorage.countByItemIds(itemIds).stream()
+                .collect(Collectors.toMap(CommentCount::getItemId, CommentCount::getTotal));
+    }
+
+    public Map<Long, BookingNode> findLastBookings(List<Long> itemIds) {
+        return toFirstBookingByItemId(bookingStorage.findByItemIdInAndStartBeforeAndStatus(itemIds,
+                LocalDateTime.now(), Status.APPROVED, Sort.by(DESC, "start")));
+    }
+
+    public Map<Long, BookingNode> findNextBookings(List<Long> itemIds) {
+        return toFirstBookingByItemId(bookingStorage.findByItemIdInAndStartAfterAndStatus(itemIds,
+                LocalDateTime.now(), Status.APPROVED, Sort.by(ASC, "start")));
+    }
+
+    public BookingNode findBooking(long bookingId, long userId) {
+        Booking booking = bookingStorage.findById(bookingId)
+                .orElseThrow(() -> new NotFoundException(String.format(BOOKING_NOT_FOUND_MESSAGE, bookingId)));
+
+        boolean isBooker = booking.getBooker().getId() == userId;
+        boolean isItemOwner = booking.getItem().getUser().getId() == userId;
+        if (!isBooker && !isItemOwner) {
+            log.warn("Attempt to retrieve booking with id = {} by user with id = {}, who is neither the author of the booking nor the owner of the item", bookingId, userId);
+            throw new NotFoundException(NOT_BOOKING_OR_ITEM_OWNER_CANNOT_GET_BOOKING_MESSAGE);
+        }
+
+        return BookingNode.of(booking);
+    }
+
+    public List<BookingNode> findBookerBookings(long bookerId, int size) {
+        return bookingStorage.findByBooker_IdOrderByStartDesc(bookerId, PageRequest.of(0, size)).stream()
+                .map(BookingNode::of)
+                .collect(Collectors.toList());
+    }
+
+    public List<BookingNode> findOwnerBookings(long ownerId, int size) {
+        return bookingStorage.findByItem_User_IdOrderByStartDesc(ownerId, PageRequest.of(0, size)).stream()
+                .map(BookingNode::of)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, BookingNode> toFirstBookingByItemId(List<Booking> sortedBookings) {
+        Map<Long, BookingNode> bookings = new HashMap<>();
+        for (Booking booking : sortedBookings) {
+            bookings.putIfAbsent(booking.getItem().getId(), BookingNode.of(booking));
+        }
+        return bookings;
+    }
+}
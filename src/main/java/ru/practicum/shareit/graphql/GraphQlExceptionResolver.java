@@ -0,0 +1,33 @@
+package ru.practicum.shareit.graphql;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.schema.DataFetchingEnvironment;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.NotFoundException;
+
+import javax.validation.ValidationException;
+
+@Component
+public class GraphQlExceptionResolver extends DataFetcherExceptionResolverAdapter {
+
+    @Override
+    protected GraphQLError resolveToSingleError(Throwable e, DataFetchingEnvironment env) {
+        if (e instanceof NotFoundException) {
+            return toError(e, ErrorType.NOT_FOUND, env);
+        }
+        if (e instanceof ValidationException || e instanceof IllegalArgumentException) {
+            return toError(e, ErrorType.BAD_REQUEST, env);
+        }
+        return null;
+    }
+
+    private GraphQLError toError(Throwable e, ErrorType errorType, DataFetchingEnvironment env) {
+        return GraphqlErrorBuilder.newError(env)
+                .errorType(errorType)
+                .message(e.getMessage())
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.graphql;
+
+import lombok.Value;
+import ru.practicum.shareit.item.model.Item;
+
+@Value
+public class ItemNode {
+    long id;
+    String name;
+    String description;
+    boolean available;
+    long ownerId;
+
+    public static ItemNode of(Item item) {
+        return new ItemNode(item.getId(), item.getName(), item.getDescription(), item.isAvailable(),
+                item.getUser().getId());
+    }
+}
@@ -0,0 +1,186 @@
+package ru.practicum.shareit.graphql;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.ContextValue;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.stereotype.Controller;
+
+import javax.validation.ValidationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ru.practicum.shareit.graphql.GraphQlConfig.USER_ID_CONTEXT_KEY;
+import static ru.practicum.shareit.utils.Constants.TOO_MANY_IDS_MESSAGE;
+import static ru.practicum.shareit.utils.Constants.USER_ID_REQUIRED_MESSAGE;
+import static ru.practicum.shareit.utils.Constants.WRONG_PAGE_SIZE_MESSAGE;
+
+@Controller
+@Slf4j
+@RequiredArgsConstructor
+public class ShareItGraphQlController {
+    private static final int MAX_IDS_PER_QUERY = 100;
+    private static final int MAX_BOOKINGS_PER_QUERY = 100;
+
+    private final GraphQlDataService dataService;
+
+    @QueryMapping
+    public UserNode user(@Argument long id) {
+        return dataService.findUsers(List.of(id)).get(id);
+    }
+
+    @QueryMapping
+    public List<UserNode> users(@Argument List<Long> ids) {
+        validateIds(ids);
+        Map<Long, UserNode> users = dataService.findUsers(ids);
+        return ids.stream().map(users::get).collect(Collectors.toList());
+    }
+
+    @QueryMapping
+    public ItemNode item(@Argument long id) {
+        return dataService.findItems(List.of(id)).get(id);
+    }
+
+    @QueryMapping
+    public List<ItemNode> items(@Argument List<Long> ids) {
+        validateIds(ids);
+        Map<Long, ItemNode> items = dataService.findItems(ids);
+        return ids.stream().map(items::get).collect(Collectors.toList());
+    }
+
+    @QueryMapping
+    public List<ItemNode> searchItems(@Argument String text) {
+        return dataService.searchItems(text);
+    }
+
+    @QueryMapping
+    public BookingNode booking(@Argument long id, @ContextValue(name = USER_ID_CONTEXT_KEY, required = false) Long userId) {
+        return dataService.findBooking(id, requireUserId(userId));
+    }
+
+    @QueryMapping
+    public List<BookingNode> bookings(@Argument int first,
+                                      @ContextValue(name = USER_ID_CONTEXT_KEY, required = false) Long userId) {
+        return dataService.findBookerBookings(requireUserId(userId), validateFirst(first));
+    }
+
+    @QueryMapping
+    public List<BookingNode> ownerBookings(@Argument int first,
+                                           @ContextValue(name = USER_ID_CONTEXT_KEY, required = false) Long userId) {
+        return dataService.findOwnerBookings(requireUserId(userId), validateFirst(first));
+    }
+
+    @BatchMapping(typeName = "User", field = "items")
+    public Map<UserNode, List<ItemNode>> userItems(List<UserNode> users) {
+        Map<Long, List<ItemNode>> items = dataService.findItemsByOwners(ids(users, UserNode::getId));
+        return toMap(users, user -> items.getOrDefault(user.getId(), List.of()));
+    }
+
+    @BatchMapping(typeName = "Item", field = "owner")
+    public Map<ItemNode, UserNode> itemOwner(List<ItemNode> items) {
+        Map<Long, UserNode> owners = dataService.findUsers(ids(items, ItemNode::getOwnerId));
+        return toMap(items, item -> owners.get(item.getOwnerId()));
+    }
+
+    @BatchMapping(typeName = "Item", field = "comments")
+    public Map<ItemNode, List<CommentNode>> itemComments(List<ItemNode> items) {
+        Map<Long, List<CommentNode>> comments = dataService.findLatestComments(ids(items, ItemNode::getId));
+        return toMap(items, item -> comments.getOrDefault(item.getId(), List.of()));
+    }
+
+    @BatchMapping(typeName = "Item", field = "commentsCount")
+    public Map<ItemNode, Long> itemCommentsCount(List<ItemNode> items) {
+        Map<Long, Long> counts = dataService.countComments(ids(items, ItemNode::getId));
+        return toMap(items, item -> counts.getOrDefault(item.getId(), 0L));
+    }
+
+    @BatchMapping(typeName = "Item", field = "lastBooking")
+    public Map<ItemNode, BookingNode> itemLastBooking(List<ItemNode> items,
+                                                      @ContextValue(name = USER_ID_CONTEXT_KEY, required = false)
+                                                      Long userId) {
+        List<ItemNode> ownedItems = filterOwned(items, userId);
+        if (ownedItems.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, BookingNode> bookings = dataService.findLastBookings(ids(ownedItems, ItemNode::getId));
+        return toMap(ownedItems, item -> bookings.get(item.getId()));
+    }
+
+    @BatchMapping(typeName = "Item", field = "nextBooking")
+    public Map<ItemNode, BookingNode> itemNextBooking(List<ItemNode> items,
+                                                      @ContextValue(name = USER_ID_CONTEXT_KEY, required = false)
+                                                      Long userId) {
+        List<ItemNode> ownedItems = filterOwned(items, userId);
+        if (ownedItems.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, BookingNode> bookings = dataService.findNextBookings(ids(ownedItems, ItemNode::getId));
+        return toMap(ownedItems, item -> bookings.get(item.getId()));
+    }
+
+    @BatchMapping(typeName = "Comment", field = "author")
+    public Map<CommentNode, UserNode> commentAuthor(List<CommentNode> comments) {
+        Map<Long, UserNode> authors = dataService.findUsers(ids(comments, CommentNode::getAuthorId));
+        return toMap(comments, comment -> authors.get(comment.getAuthorId()));
+    }
+
+    @BatchMapping(typeName = "Booking", field = "item")
+    public Map<BookingNode, ItemNode> bookingItem(List<BookingNode> bookings) {
+        Map<Long, ItemNode> items = dataService.findItems(ids(bookings, BookingNode::getItemId));
+        return toMap(bookings, booking -> items.get(booking.getItemId()));
+    }
+
+    @BatchMapping(typeName = "Booking", field = "booker")
+    public Map<BookingNode, UserNode> bookingBooker(List<BookingNode> bookings) {
+        Map<Long, UserNode> bookers = dataService.findUsers(ids(bookings, BookingNode::getBookerId));
+        return toMap(bookings, booking -> bookers.get(booking.getBookerId()));
+    }
+
+    private void validateIds(List<Long> ids) {
+        if (ids.size() > MAX_IDS_PER_QUERY) {
+            throw new ValidationException(String.format(TOO_MANY_IDS_MESSAGE, MAX_IDS_PER_QUERY));
+        }
+    }
+
+    private int validateFirst(int first) {
+        if (first <= 0 || first > MAX_BOOKINGS_PER_QUERY) {
+            throw new ValidationException(String.format(WRONG_PAGE_SIZE_MESSAGE, MAX_BOOKINGS_PER_QUERY));
+        }
+        return first;
+    }
+
+    private long requireUserId(Long userId) {
+        if (userId == null) {
+            log.warn("Attempt to query bookings without a user id");
+            throw new ValidationException(USER_ID_REQUIRED_MESSAGE);
+        }
+        return userId;
+    }
+
+    private List<ItemNode> filterOwned(List<ItemNode> items, Long userId) {
+        if (userId == null) {
+            return List.of();
+        }
+
+        return items.stream()
+                .filter(item -> item.getOwnerId() == userId)
+                .collect(Collectors.toList());
+    }
+
+    private static <T> List<Long> ids(List<T> nodes, Function<T, Long> idGetter) {
+        return nodes.stream().map(idGetter).distinct().collect(Collectors.toList());
+    }
+
+    private static <K, V> Map<K, V> toMap(List<K> nodes, Function<K, V> valueGetter) {
+        Map<K, V> values = new LinkedHashMap<>();
+        nodes.forEach(node -> values.put(node, valueGetter.apply(node)));
+        return values;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.graphql;
+
+import lombok.Value;
+import ru.practicum.shareit.user.model.User;
+
+@Value
+public class UserNode {
+    long id;
+    String name;
+    String email;
+
+    public static UserNode of(User user) {
+        return new UserNode(user.getId(), user.getName(), user.getEmail());
+    }
+}
@@ -2,17 +2,29 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemListDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
+import ru.practicum.shareit.item.service.ItemResponseCache;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.ratelimit.RequestCost;
 import ru.practicum.shareit.utils.Create;
 import ru.practicum.shareit.utils.Update;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -22,7 +34,16 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ItemController {
     private final ItemService itemService;
+    private final ItemResponseCache itemResponseCache;
     private static final String HEADER_WITH_USER_ID_NAME = "X-Sharer-User-Id";
+    private static final String DEFAULT_SUGGESTIONS_SIZE = "10";
+    private static final String DEFAULT_COMMENTS_PAGE_SIZE = "20";
+    private static final long MAX_COMMENTS_PAGE_SIZE = 100;
+    private static final String DEFAULT_AVAILABLE_ITEMS_SIZE = "20";
+    private static final long MAX_AVAILABLE_ITEMS_SIZE = 100;
+    private static final int MAX_IDS_PER_REQUEST = 100;
+    private static final String BINARY_CBOR = "application/cbor";
+    private static final String BINARY_SMILE = "application/x-jackson-smile";
 
     @PostMapping
     public ItemDto createItem(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId,
@@ -40,19 +61,44 @@ public class ItemController {
         return itemService.updateItem(userId, itemDto);
     }
 
+    // JSON is answered with the cached bytes, the binary formats are serialized by their message converters
     @GetMapping("/{itemId}")
+    public ResponseEntity<byte[]> retrieveItemJson(@RequestHeader(HEADER_WITH_USER_ID_NAME) long userId,
+                                                   @PathVariable @Positive long itemId) {
+        log.info("Attempt to get item with id = {}", itemId);
+        return jsonResponse(itemResponseCache.getItemCard(itemId, userId));
+    }
+
+    @GetMapping(path = "/{itemId}", produces = {BINARY_CBOR, BINARY_SMILE})
     public ItemWithBookingDto retrieveItem(@RequestHeader(HEADER_WITH_USER_ID_NAME) long userId,
                                            @PathVariable @Positive long itemId) {
         log.info("Attempt to get item with id = {}", itemId);
         return itemService.retrieveItem(itemId, userId);
     }
 
+    @RequestCost(5)
     @GetMapping
+    public ResponseEntity<byte[]> getUsersItemsJson(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId) {
+        log.info("Attempt to get all items of user with id = {}", userId);
+        return jsonResponse(itemResponseCache.getUsersItems(userId));
+    }
+
+    @RequestCost(5)
+    @GetMapping(produces = {BINARY_CBOR, BINARY_SMILE})
     public List<ItemWithBookingDto> getUsersItems(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId) {
         log.info("Attempt to get all items of user with id = {}", userId);
         return itemService.getUsersItems(userId);
     }
 
+    @RequestCost(5)
+    @GetMapping(params = "ids")
+    public ItemListDto retrieveItems(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId,
+                                     @RequestParam @NotEmpty @Size(max = MAX_IDS_PER_REQUEST) List<Long> ids) {
+        log.info("Attempt to get {} items by ids by user with id = {}", ids.size(), userId);
+        return itemService.retrieveItems(ids, userId);
+    }
+
+    @RequestCost(5)
     @GetMapping("/search")
     public List<ItemDto> findItemsByText(@RequestParam String text) {
         log.info("Attempt to search for items using search string: {}", text);
@@ -60,6 +106,47 @@ public class ItemController {
         return itemService.findItemsByText(text);
     }
 
+    @RequestCost(5)
+    @GetMapping("/available")
+    public List<ItemDto> findAvailableItems(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                            LocalDateTime start,
+                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                            LocalDateTime end,
+                                            @RequestParam(required = false) String text,
+                                            @RequestParam(defaultValue = DEFAULT_AVAILABLE_ITEMS_SIZE) @Positive
+                                            @Max(MAX_AVAILABLE_ITEMS_SIZE) int size) {
+        log.info("Attempt to search for items available from {} to {} using search string: {}", start, end, text);
+        return itemService.findAvailableItems(start, end, text, size);
+    }
+
+    @GetMapping("/search/suggest")
+    public List<String> suggestItemNames(@RequestParam String prefix,
+                                         @RequestParam(defaultValue = DEFAULT_SUGGESTIONS_SIZE) @Positive int size) {
+        log.debug("Attempt to get item name suggestions for prefix: {}", prefix);
+        return itemService.suggestItemNames(prefix, size);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public List<TimeSlotDto> getItemAvailability(@PathVariable @Positive long itemId,
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                 LocalDateTime from,
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                 LocalDateTime to,
+                                                 @RequestParam(defaultValue = "false") boolean includeWaiting) {
+        log.info("Attempt to get availability of item with id = {} from {} to {}", itemId, from, to);
+        return itemService.getItemAvailability(itemId, from, to, includeWaiting);
+    }
+
+    @RequestCost(5)
+    @GetMapping("/{itemId}/comments")
+    public List<CommentDto> getItemComments(@PathVariable @Positive long itemId,
+                                            @RequestParam(defaultValue = "0") @PositiveOrZero long afterId,
+                                            @RequestParam(defaultValue = DEFAULT_COMMENTS_PAGE_SIZE) @Positive
+                                            @Max(MAX_COMMENTS_PAGE_SIZE) int size) {
+        log.info("Attempt to get comments of item with id = {} after comment with id = {}", itemId, afterId);
+        return itemService.getItemComments(itemId, afterId, size);
+    }
+
     @PostMapping("/{itemId}/comment")
     public CommentDto postUserComment(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId,
                                       @PathVariable @Positive long itemId, @Valid @RequestBody CommentDto commentDto) {
@@ -67,4 +154,9 @@ public class ItemController {
         return itemService.postUserComment(commentDto, userId, itemId);
     }
 
+    private static ResponseEntity<byte[]> jsonResponse(byte[] body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
 }
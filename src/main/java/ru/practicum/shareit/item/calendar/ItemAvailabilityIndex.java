@@ -0,0 +1,345 @@
+package ru.practicum.shareit.item.calendar;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingPeriod;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.event.ItemDeletedEvent;
+import ru.practicum.shareit.item.event.ItemSavedEvent;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.shard.ShardRouter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Keeps a bitmap of booked hour slots per item and the set of available item ids. A booking marks every hour
+ * it touches, so an item reported as free is free for the whole requested period, while an item booked for a
+ * part of an hour is reported as busy for that hour. A rebuild loads new bitmaps and swaps them in, after replaying
+ * the changes committed while it was loading. A change only sets or clears bits, so replaying one the loaded state
+ * already contains leaves the bitmaps as they are.
+ * <p>
+ * The index only sees the changes of this instance. Unless shareit.single-instance is set it is rebuilt
+ * periodically, and its answers are only candidates that have to be checked with the storage.
+ */
+@Component
+@Slf4j
+public class ItemAvailabilityIndex {
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final long SECONDS_IN_SLOT = 3600;
+
+    private final BookingStorage bookingStorage;
+    private final ItemStorage itemStorage;
+    private final ShardRouter shardRouter;
+    private final boolean singleInstance;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ReadWriteLock availableItemsLock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    private volatile BookedSlots bookedSlots = new BookedSlots();
+    // guarded by availableItemsLock
+    private Roaring64Bitmap availableItems = new Roaring64Bitmap();
+    // guarded by rebuildMonitor, null when no rebuild is running
+    private List<Change> changesDuringRebuild;
+    private volatile boolean ready;
+
+    public ItemAvailabilityIndex(BookingStorage bookingStorage, ItemStorage itemStorage, ShardRouter shardRouter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${shareit.single-instance}") boolean singleInstance) {
+        this.bookingStorage = bookingStorage;
+        this.itemStorage = itemStorage;
+        this.shardRouter = shardRouter;
+        this.singleInstance = singleInstance;
+
+        Gauge.builder("shareit.availability.index.bytes", this, ItemAvailabilityIndex::getSizeInBytes)
+                .description("Estimated memory used by the item availability index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("shareit.availability.index.items", this, index -> index.bookedSlots.bitmaps.size())
+                .description("Items with future approved bookings in the availability index")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // an authoritative index is built and no other instance changes items or bookings behind it
+    public boolean isAuthoritative() {
+        return ready && singleInstance;
+    }
+
+    public boolean isFree(long itemId, LocalDateTime start, LocalDateTime end) {
+        RoaringBitmap slots = bookedSlots.bitmaps.get(itemId);
+        return slots == null || !slots.intersects(toSlot(start), toSlotCeiling(end));
+    }
+
+    public List<Long> findFreeAvailableItems(LocalDateTime start, LocalDateTime end, int limit) {
+        return findFreeAvailableItems(start, end, 0, limit);
+    }
+
+    public List<Long> findFreeAvailableItems(LocalDateTime start, LocalDateTime end, long afterId, int limit) {
+        return findAvailableItems(itemId -> isFree(itemId, start, end), afterId, limit);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.index.multi-instance-rebuild-interval}",
+            initialDelayString = "${shareit.index.multi-instance-rebuild-interval}")
+    public void rebuildWithChangesOfOtherInstances() {
+        if (!singleInstance) {
+            rebuild();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.info("Item availability index is already being rebuilt");
+            return;
+        }
+        try {
+            rebuildIndex();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void rebuildIndex() {
+        List<Change> changes = new ArrayList<>();
+        synchronized (rebuildMonitor) {
+            changesDuringRebuild = changes;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BookedSlots rebuiltSlots = new BookedSlots();
+        Roaring64Bitmap rebuiltItems = new Roaring64Bitmap();
+        long bookings = loadBookedSlots(rebuiltSlots, now);
+        long items = loadAvailableItems(rebuiltItems);
+
+        synchronized (rebuildMonitor) {
+            changes.forEach(change -> change.applyTo(rebuiltSlots, rebuiltItems));
+            changesDuringRebuild = null;
+
+            availableItemsLock.writeLock().lock();
+            try {
+                bookedSlots = rebuiltSlots;
+                availableItems = rebuiltItems;
+            } finally {
+                availableItemsLock.writeLock().unlock();
+            }
+        }
+
+        ready = true;
+        log.info("Built item availability index from {} approved bookings and {} available items, replayed {} "
+                + "changes made meanwhile: {}", bookings, items, changes.size(), getMemoryReport());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if (event.getStatus() == Status.APPROVED) {
+            change((slots, items) -> addBooking(slots, event.getItemId(), event.getStart(), event.getEnd(),
+                    LocalDateTime.now()));
+        }
+    }
+
+    // only the hours the booking covers completely are freed, an hour shared with another booking stays booked
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingDeleted(BookingDeletedEvent event) {
+        if (event.getStatus() == Status.APPROVED) {
+            change((slots, items) -> updateSlots(slots, event.getItemId(),
+                    bitmap -> bitmap.remove(toSlotCeiling(event.getStart()), toSlot(event.getEnd())),
+                    LocalDateTime.now()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemDeleted(ItemDeletedEvent event) {
+        change((slots, items) -> {
+            items.removeLong(event.getItemId());
+            RoaringBitmap bitmap = slots.bitmaps.remove(event.getItemId());
+            if (bitmap != null) {
+                slots.bytes.addAndGet(-bitmap.getLongSizeInBytes());
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemSaved(ItemSavedEvent event) {
+        change((slots, items) -> {
+            if (event.isAvailable()) {
+                items.addLong(event.getItemId());
+            } else {
+                items.removeLong(event.getItemId());
+            }
+        });
+    }
+
+    public String getMemoryReport() {
+        BookedSlots slots = bookedSlots;
+        long availableItemsBytes;
+        long availableItemsCount;
+        availableItemsLock.readLock().lock();
+        try {
+            availableItemsBytes = availableItems.getLongSizeInBytes();
+            availableItemsCount = availableItems.getLongCardinality();
+        } finally {
+            availableItemsLock.readLock().unlock();
+        }
+
+        return String.format("%d items with booked slots use %d bytes, %d available items use %d bytes",
+                slots.bitmaps.size(), slots.bytes.get(), availableItemsCount, availableItemsBytes);
+    }
+
+    private long getSizeInBytes() {
+        availableItemsLock.readLock().lock();
+        try {
+            return bookedSlots.bytes.get() + availableItems.getLongSizeInBytes();
+        } finally {
+            availableItemsLock.readLock().unlock();
+        }
+    }
+
+    // applied to the served bitmaps, and kept for a running rebuild to replay on the bitmaps it loads
+    private void change(Change change) {
+        synchronized (rebuildMonitor) {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+
+            availableItemsLock.writeLock().lock();
+            try {
+                change.applyTo(bookedSlots, availableItems);
+            } finally {
+                availableItemsLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private long loadBookedSlots(BookedSlots slots, LocalDateTime now) {
+        long afterId = 0;
+        long loaded = 0;
+        List<BookingPeriod> batch;
+
+        do {
+            long lastId = afterId;
+            batch = shardRouter.mergeFromShards(() -> bookingStorage.findPeriodsByStatusAndEndAfter(Status.APPROVED,
+                    now, lastId, PageRequest.of(0, REBUILD_BATCH_SIZE)), Comparator.comparing(BookingPeriod::getId),
+                    REBUILD_BATCH_SIZE);
+
+            for (BookingPeriod period : batch) {
+                addBooking(slots, period.getItemId(), period.getStart(), period.getEnd(), now);
+            }
+
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+                loaded += batch.size();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        return loaded;
+    }
+
+    private long loadAvailableItems(Roaring64Bitmap items) {
+        long afterId = 0;
+        long loaded = 0;
+        List<Long> batch;
+
+        do {
+            long lastId = afterId;
+            batch = shardRouter.mergeFromShards(() -> itemStorage.findAvailableIds(lastId,
+                    PageRequest.of(0, REBUILD_BATCH_SIZE)), Comparator.naturalOrder(), REBUILD_BATCH_SIZE);
+
+            batch.forEach(items::addLong);
+
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1);
+                loaded += batch.size();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        return loaded;
+    }
+
+    private void addBooking(BookedSlots slots, long itemId, LocalDateTime start, LocalDateTime end,
+                            LocalDateTime now) {
+        updateSlots(slots, itemId, bitmap -> bitmap.add(toSlot(start), toSlotCeiling(end)), now);
+    }
+
+    // bitmaps are replaced rather than modified, so readers never see a bitmap that is being changed
+    private void updateSlots(BookedSlots slots, long itemId, Consumer<RoaringBitmap> change, LocalDateTime now) {
+        slots.bitmaps.compute(itemId, (id, current) -> {
+            RoaringBitmap updated = current == null ? new RoaringBitmap() : current.clone();
+            change.accept(updated);
+            updated.remove(0L, toSlot(now));
+            updated.runOptimize();
+
+            long currentBytes = current == null ? 0 : current.getLongSizeInBytes();
+            if (updated.isEmpty()) {
+                slots.bytes.addAndGet(-currentBytes);
+                return null;
+            }
+
+            slots.bytes.addAndGet(updated.getLongSizeInBytes() - currentBytes);
+            return updated;
+        });
+    }
+
+    private List<Long> findAvailableItems(LongPredicate filter, long afterId, int limit) {
+        List<Long> itemIds = new ArrayList<>(limit);
+
+        availableItemsLock.readLock().lock();
+        try {
+            LongIterator iterator = availableItems.getLongIteratorFrom(afterId + 1);
+            while (iterator.hasNext() && itemIds.size() < limit) {
+                long itemId = iterator.next();
+                if (filter.test(itemId)) {
+                    itemIds.add(itemId);
+                }
+            }
+        } finally {
+            availableItemsLock.readLock().unlock();
+        }
+
+        return itemIds;
+    }
+
+    private static long toSlot(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), SECONDS_IN_SLOT);
+    }
+
+    private static long toSlotCeiling(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC) + SECONDS_IN_SLOT - 1, SECONDS_IN_SLOT);
+    }
+
+    private interface Change {
+        void applyTo(BookedSlots slots, Roaring64Bitmap availableItems);
+    }
+
+    private static final class BookedSlots {
+        private final Map<Long, RoaringBitmap> bitmaps = new ConcurrentHashMap<>();
+        private final AtomicLong bytes = new AtomicLong();
+    }
+}
@@ -0,0 +1,153 @@
+package ru.practicum.shareit.item.calendar;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@Slf4j
+public class ItemCalendarCache {
+    private static final int MAX_ENTRIES = 10_000;
+    private static final List<Status> APPROVED = List.of(Status.APPROVED);
+    private static final List<Status> APPROVED_AND_WAITING = List.of(Status.APPROVED, Status.WAITING);
+
+    private final BookingStorage bookingStorage;
+    private final Map<String, Entry> calendars = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong invalidations = new AtomicLong();
+    // null on a single instance, where every booking change is seen through the events
+    private final Duration ttl;
+
+    public ItemCalendarCache(BookingStorage bookingStorage,
+                             @Value("${shareit.single-instance}") boolean singleInstance,
+                             @Value("${shareit.cache.multi-instance-ttl}") Duration multiInstanceTtl) {
+        this.bookingStorage = bookingStorage;
+        this.ttl = singleInstance ? null : multiInstanceTtl;
+    }
+
+    public List<TimeSlotDto> getFreeSlots(long itemId, LocalDateTime from, LocalDateTime to, boolean includeWaiting) {
+        return invertBusySlots(getBusySlots(itemId, from, includeWaiting), from, to);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        invalidate(event.getItemId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingDeleted(BookingDeletedEvent event) {
+        invalidate(event.getItemId());
+    }
+
+    private void invalidate(long itemId) {
+        invalidations.incrementAndGet();
+        synchronized (calendars) {
+            calendars.remove(getKey(itemId, false));
+            calendars.remove(getKey(itemId, true));
+        }
+    }
+
+    // busy slots cover the calendar from coveredFrom onwards, so any later window can be answered from them
+    private List<TimeSlotDto> getBusySlots(long itemId, LocalDateTime from, boolean includeWaiting) {
+        String key = getKey(itemId, includeWaiting);
+
+        Entry entry;
+        synchronized (calendars) {
+            entry = calendars.get(key);
+        }
+        if (entry != null && !from.isBefore(entry.coveredFrom)
+                && (entry.validUntil == null || LocalDateTime.now().isBefore(entry.validUntil))) {
+            return entry.busySlots;
+        }
+
+        long invalidationsBeforeLoad = invalidations.get();
+        List<Booking> bookings = bookingStorage.findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(itemId,
+                includeWaiting ? APPROVED_AND_WAITING : APPROVED, from);
+        entry = new Entry(from, mergeBookings(bookings), ttl == null ? null : LocalDateTime.now().plus(ttl));
+
+        if (invalidationsBeforeLoad == invalidations.get()) {
+            synchronized (calendars) {
+                calendars.put(key, entry);
+            }
+        }
+
+        log.debug("Loaded {} bookings of item with id = {} merged into {} busy slots", bookings.size(), itemId,
+                entry.busySlots.size());
+        return entry.busySlots;
+    }
+
+    private List<TimeSlotDto> mergeBookings(List<Booking> sortedBookings) {
+        List<TimeSlotDto> busySlots = new ArrayList<>();
+        TimeSlotDto current = null;
+
+        for (Booking booking : sortedBookings) {
+            if (current != null && !booking.getStart().isAfter(current.getEnd())) {
+                if (booking.getEnd().isAfter(current.getEnd())) {
+                    current.setEnd(booking.getEnd());
+                }
+                continue;
+            }
+
+            current = new TimeSlotDto(booking.getStart(), booking.getEnd());
+            busySlots.add(current);
+        }
+
+        return Collections.unmodifiableList(busySlots);
+    }
+
+    private List<TimeSlotDto> invertBusySlots(List<TimeSlotDto> busySlots, LocalDateTime from, LocalDateTime to) {
+        List<TimeSlotDto> freeSlots = new ArrayList<>();
+        LocalDateTime freeFrom = from;
+
+        for (TimeSlotDto busySlot : busySlots) {
+            if (!busySlot.getEnd().isAfter(freeFrom)) {
+                continue;
+            }
+            if (!busySlot.getStart().isBefore(to)) {
+                break;
+            }
+            if (busySlot.getStart().isAfter(freeFrom)) {
+                freeSlots.add(new TimeSlotDto(freeFrom, busySlot.getStart()));
+            }
+            freeFrom = busySlot.getEnd();
+        }
+
+        if (freeFrom.isBefore(to)) {
+            freeSlots.add(new TimeSlotDto(freeFrom, to));
+        }
+
+        return freeSlots;
+    }
+
+    private String getKey(long itemId, boolean includeWaiting) {
+        return itemId + (includeWaiting ? ":approved-waiting" : ":approved");
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final LocalDateTime coveredFrom;
+        private final List<TimeSlotDto> busySlots;
+        private final LocalDateTime validUntil;
+    }
+}
@@ -18,4 +18,5 @@ public class ItemWithBookingDto {
     private BookingInfo lastBooking;
     private BookingInfo nextBooking;
     private List<CommentDto> comments;
+    private long commentsCount;
 }
\ No newline at end of file
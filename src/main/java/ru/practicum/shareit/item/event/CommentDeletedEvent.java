@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class CommentDeletedEvent {
+    private final long commentId;
+    private final long itemId;
+    private final long authorId;
+}
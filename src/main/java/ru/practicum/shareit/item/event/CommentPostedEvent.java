@@ -0,0 +1,23 @@
+package ru.practicum.shareit.item.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.item.model.Comment;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class CommentPostedEvent {
+    private final long commentId;
+    private final long itemId;
+    private final long authorId;
+    private final String text;
+    private final LocalDateTime created;
+
+    public static CommentPostedEvent of(Comment comment, long itemId, long authorId) {
+        return new CommentPostedEvent(comment.getId(), itemId, authorId, comment.getText(), comment.getCreated());
+    }
+}
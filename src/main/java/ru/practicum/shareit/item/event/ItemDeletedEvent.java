@@ -0,0 +1,22 @@
+package ru.practicum.shareit.item.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.item.model.Item;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class ItemDeletedEvent {
+    private final long itemId;
+    private final long ownerId;
+    private final String name;
+    private final String description;
+    private final boolean available;
+
+    public static ItemDeletedEvent of(Item item) {
+        return new ItemDeletedEvent(item.getId(), item.getUser().getId(), item.getName(), item.getDescription(),
+                item.isAvailable());
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.item.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@AllArgsConstructor
+public class ItemSavedEvent {
+    private final long itemId;
+    private final long ownerId;
+    private final String previousName;
+    private final String previousDescription;
+    private final boolean previouslyAvailable;
+    private final String name;
+    private final String description;
+    private final boolean available;
+
+    public static ItemSavedEvent created(long itemId, long ownerId, String name, String description, boolean available) {
+        return new ItemSavedEvent(itemId, ownerId, null, null, false, name, description, available);
+    }
+
+    public boolean isNew() {
+        return previousName == null && previousDescription == null;
+    }
+}
@@ -23,10 +23,14 @@ public class CommentMapper {
     }
 
     public static CommentDto toCommentDto(Comment comment) {
+        return toCommentDto(comment, comment.getAuthor());
+    }
+
+    public static CommentDto toCommentDto(Comment comment, User author) {
         return new CommentDto(
                 comment.getId(),
                 comment.getText(),
-                comment.getAuthor().getName(),
+                author.getName(),
                 comment.getCreated()
         );
     }
@@ -3,9 +3,9 @@ package ru.practicum.shareit.item.mapper;
 import lombok.experimental.UtilityClass;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingDto;
-import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.model.User;
 
@@ -34,7 +34,7 @@ public class ItemMapper {
     }
 
     public static ItemWithBookingDto toItemWithBookingDto(Item item, Booking lastBooking, Booking nextBooking,
-                                                          List<Comment> comments) {
+                                                          List<CommentDto> comments, long commentsCount) {
         return new ItemWithBookingDto(
                 item.getId(),
                 item.getName(),
@@ -42,7 +42,8 @@ public class ItemMapper {
                 item.isAvailable(),
                 BookingMapper.toSimpleBookingDto(lastBooking),
                 BookingMapper.toSimpleBookingDto(nextBooking),
-                CommentMapper.toCommentDto(comments)
+                comments,
+                commentsCount
         );
     }
 
@@ -39,7 +39,7 @@ public class Comment {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getId(), getItem(), getAuthor());
+        return getClass().hashCode();
     }
 
 }
\ No newline at end of file
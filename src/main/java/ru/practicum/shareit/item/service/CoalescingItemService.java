@@ -0,0 +1,113 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemListDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
+import ru.practicum.shareit.user.storage.UserIdFilter;
+import ru.practicum.shareit.user.storage.UserStorage;
+import ru.practicum.shareit.utils.SingleFlight;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static ru.practicum.shareit.utils.Constants.USER_NOT_FOUND_MESSAGE;
+
+/**
+ * Shares one execution of the item card and text search reads between identical concurrent requests. It sits
+ * outside of the transactional service, so waiting callers do not hold database connections.
+ */
+@Service
+@Primary
+public class CoalescingItemService implements ItemService {
+    private final ItemServiceImpl itemService;
+    private final UserStorage userStorage;
+    private final UserIdFilter userIdFilter;
+    private final SingleFlight<Long, ItemCard> itemCardFlight;
+    private final SingleFlight<String, List<ItemDto>> searchFlight;
+
+    public CoalescingItemService(ItemServiceImpl itemService, UserStorage userStorage, UserIdFilter userIdFilter,
+                                 MeterRegistry meterRegistry) {
+        this.itemService = itemService;
+        this.userStorage = userStorage;
+        this.userIdFilter = userIdFilter;
+        this.itemCardFlight = new SingleFlight<>("item-card", meterRegistry);
+        this.searchFlight = new SingleFlight<>("item-search", meterRegistry);
+    }
+
+    @Override
+    public ItemDto createItem(long userId, ItemDto itemDto) {
+        return itemService.createItem(userId, itemDto);
+    }
+
+    @Override
+    public ItemDto updateItem(long userId, ItemDto itemDto) {
+        return itemService.updateItem(userId, itemDto);
+    }
+
+    // the card is loaded with the owner's view, callers other than the owner get it without bookings
+    @Override
+    public ItemWithBookingDto retrieveItem(long itemId, long userId) {
+        if (!userIdFilter.exists(userId, userStorage::existsByIdAndDeletedFalse)) {
+            throw new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId));
+        }
+
+        return retrieveItemCard(itemId).viewFor(userId);
+    }
+
+    public ItemCard retrieveItemCard(long itemId) {
+        return itemCardFlight.execute(itemId, () -> itemService.retrieveItemCard(itemId));
+    }
+
+    @Override
+    public List<ItemWithBookingDto> getUsersItems(long userId) {
+        return itemService.getUsersItems(userId);
+    }
+
+    @Override
+    public ItemListDto retrieveItems(List<Long> itemIds, long userId) {
+        return itemService.retrieveItems(itemIds, userId);
+    }
+
+    @Override
+    public List<ItemDto> findItemsByText(String text) {
+        if (text.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        return searchFlight.execute(text.toLowerCase(Locale.ROOT), () -> itemService.findItemsByText(text));
+    }
+
+    @Override
+    public List<ItemDto> findAvailableItems(LocalDateTime start, LocalDateTime end, String text, int size) {
+        return itemService.findAvailableItems(start, end, text, size);
+    }
+
+    @Override
+    public List<String> suggestItemNames(String prefix, int size) {
+        return itemService.suggestItemNames(prefix, size);
+    }
+
+    @Override
+    public List<TimeSlotDto> getItemAvailability(long itemId, LocalDateTime from, LocalDateTime to,
+                                                 boolean includeWaiting) {
+        return itemService.getItemAvailability(itemId, from, to, includeWaiting);
+    }
+
+    @Override
+    public List<CommentDto> getItemComments(long itemId, long afterId, int size) {
+        return itemService.getItemComments(itemId, afterId, size);
+    }
+
+    @Override
+    public CommentDto postUserComment(CommentDto commentDto, long userId, long itemId) {
+        return itemService.postUserComment(commentDto, userId, itemId);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.Getter;
+import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+
+@Getter
+public class ItemCard {
+    private final long ownerId;
+    private final ItemWithBookingDto ownerView;
+    private final ItemWithBookingDto publicView;
+
+    public ItemCard(long ownerId, ItemWithBookingDto ownerView) {
+        this.ownerId = ownerId;
+        this.ownerView = ownerView;
+        this.publicView = new ItemWithBookingDto(
+                ownerView.getId(),
+                ownerView.getName(),
+                ownerView.getDescription(),
+                ownerView.getAvailable(),
+                null,
+                null,
+                ownerView.getComments(),
+                ownerView.getCommentsCount()
+        );
+    }
+
+    public ItemWithBookingDto viewFor(long userId) {
+        return ownerId == userId ? ownerView : publicView;
+    }
+}
@@ -0,0 +1,297 @@
+package ru.practicum.shareit.item.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.booking.dto.BookingInfo;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+import ru.practicum.shareit.item.event.CommentDeletedEvent;
+import ru.practicum.shareit.item.event.CommentPostedEvent;
+import ru.practicum.shareit.item.event.ItemDeletedEvent;
+import ru.practicum.shareit.item.event.ItemSavedEvent;
+import ru.practicum.shareit.user.event.UserDeletedEvent;
+import ru.practicum.shareit.user.event.UserUpdatedEvent;
+import ru.practicum.shareit.user.storage.UserIdFilter;
+import ru.practicum.shareit.user.storage.UserStorage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ru.practicum.shareit.utils.Constants.USER_NOT_FOUND_MESSAGE;
+
+/**
+ * Keeps the JSON of item cards and of owner item lists, so a repeated read is answered with the stored bytes
+ * without mapping or serialization. An entry is dropped when a committed write changes what it shows, and expires
+ * when the next approved booking of one of its items starts and becomes the last booking. Writes are only seen
+ * through the events of this instance, so unless shareit.single-instance is set an entry also expires after
+ * shareit.cache.multi-instance-ttl. The least recently used entries are evicted once the stored bodies exceed
+ * shareit.item-response-cache.max-size.
+ */
+@Component
+@Slf4j
+public class ItemResponseCache {
+    private static final String ITEM_CARD_KEY = "item:";
+    private static final String OWNER_ITEMS_KEY = "owner-items:";
+
+    private final CoalescingItemService itemService;
+    private final UserStorage userStorage;
+    private final UserIdFilter userIdFilter;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    // null on a single instance, where every write is seen through the events
+    private final Duration ttl;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // owners of the items in the cached lists, as comment events only carry the item id
+    private final Map<Long, Long> listedItemOwners = new HashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private long usedBytes;
+
+    public ItemResponseCache(CoalescingItemService itemService, UserStorage userStorage, UserIdFilter userIdFilter,
+                             ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                             @Value("${shareit.item-response-cache.max-size}") DataSize maxSize,
+                             @Value("${shareit.single-instance}") boolean singleInstance,
+                             @Value("${shareit.cache.multi-instance-ttl}") Duration multiInstanceTtl) {
+        this.itemService = itemService;
+        this.userStorage = userStorage;
+        this.userIdFilter = userIdFilter;
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxSize.toBytes();
+        this.ttl = singleInstance ? null : multiInstanceTtl;
+
+        Gauge.builder("shareit.item-response-cache.bytes", this, ItemResponseCache::getUsedBytes)
+                .description("Bytes of the serialized item responses kept in the cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        hits = Counter.builder("shareit.item-response-cache.hits")
+                .description("Item reads answered with cached bytes")
+                .register(meterRegistry);
+        misses = Counter.builder("shareit.item-response-cache.misses")
+                .description("Item reads that had to be loaded and serialized")
+                .register(meterRegistry);
+    }
+
+    public byte[] getItemCard(long itemId, long userId) {
+        if (!userIdFilter.exists(userId, userStorage::existsByIdAndDeletedFalse)) {
+            throw new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId));
+        }
+
+        String key = ITEM_CARD_KEY + itemId;
+        Entry entry = get(key);
+        if (entry == null) {
+            long invalidationsBeforeLoad = invalidations.get();
+            ItemCard card = itemService.retrieveItemCard(itemId);
+            entry = new Entry(card.getOwnerId(), serialize(card.getOwnerView()), serialize(card.getPublicView()),
+                    null, getValidUntil(List.of(card.getOwnerView())));
+            put(key, entry, invalidationsBeforeLoad);
+        }
+
+        return entry.ownerId == userId ? entry.ownerBody : entry.publicBody;
+    }
+
+    public byte[] getUsersItems(long userId) {
+        String key = OWNER_ITEMS_KEY + userId;
+        Entry entry = get(key);
+        if (entry == null) {
+            long invalidationsBeforeLoad = invalidations.get();
+            List<ItemWithBookingDto> items = itemService.getUsersItems(userId);
+            byte[] body = serialize(items);
+            entry = new Entry(userId, body, body, items.stream().mapToLong(ItemWithBookingDto::getId).toArray(),
+                    getValidUntil(items));
+            put(key, entry, invalidationsBeforeLoad);
+        }
+
+        return entry.ownerBody;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemSaved(ItemSavedEvent event) {
+        invalidate(event.getItemId(), event.getOwnerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemDeleted(ItemDeletedEvent event) {
+        invalidate(event.getItemId(), event.getOwnerId());
+    }
+
+    // only approved bookings are shown, and a booking only changes from waiting to another status
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if (event.getStatus() == Status.APPROVED) {
+            invalidate(event.getItemId(), event.getOwnerId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingDeleted(BookingDeletedEvent event) {
+        if (event.getStatus() == Status.APPROVED) {
+            invalidate(event.getItemId(), event.getOwnerId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentPosted(CommentPostedEvent event) {
+        invalidate(event.getItemId(), null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentDeleted(CommentDeletedEvent event) {
+        invalidate(event.getItemId(), null);
+    }
+
+    // the cards and lists show the names of comment authors, which are not tracked per entry
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        clear();
+    }
+
+    private long getUsedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    private Entry get(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.validUntil != null && !LocalDateTime.now().isBefore(entry.validUntil)) {
+                remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    // an entry loaded while a write was committed may show the data from before the write and is not stored
+    private void put(String key, Entry entry, long invalidationsBeforeLoad) {
+        synchronized (entries) {
+            if (invalidationsBeforeLoad != invalidations.get() || entry.size() > maxBytes) {
+                return;
+            }
+
+            remove(key);
+            entries.put(key, entry);
+            usedBytes += entry.size();
+            if (entry.itemIds != null) {
+                for (long itemId : entry.itemIds) {
+                    listedItemOwners.put(itemId, entry.ownerId);
+                }
+            }
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (usedBytes > maxBytes) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                forget(evicted);
+            }
+        }
+    }
+
+    private void invalidate(long itemId, Long ownerId) {
+        invalidations.incrementAndGet();
+        synchronized (entries) {
+            Entry card = remove(ITEM_CARD_KEY + itemId);
+            Long owner = ownerId != null ? ownerId
+                    : card != null ? Long.valueOf(card.ownerId) : listedItemOwners.get(itemId);
+            if (owner != null) {
+                remove(OWNER_ITEMS_KEY + owner);
+            }
+        }
+    }
+
+    private void clear() {
+        invalidations.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+            listedItemOwners.clear();
+            usedBytes = 0;
+        }
+        log.info("Cleared the item response cache");
+    }
+
+    private Entry remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            forget(entry);
+        }
+        return entry;
+    }
+
+    private void forget(Entry entry) {
+        usedBytes -= entry.size();
+        if (entry.itemIds != null) {
+            for (long itemId : entry.itemIds) {
+                listedItemOwners.remove(itemId);
+            }
+        }
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize item response", e);
+        }
+    }
+
+    private LocalDateTime getValidUntil(List<ItemWithBookingDto> items) {
+        LocalDateTime nextBookingStart = items.stream()
+                .map(ItemWithBookingDto::getNextBooking)
+                .filter(Objects::nonNull)
+                .map(BookingInfo::getStart)
+                .min(LocalDateTime::compareTo)
+                .orElse(null);
+        if (ttl == null) {
+            return nextBookingStart;
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        return nextBookingStart != null && nextBookingStart.isBefore(expiresAt) ? nextBookingStart : expiresAt;
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final long ownerId;
+        private final byte[] ownerBody;
+        private final byte[] publicBody;
+        private final long[] itemIds;
+        private final LocalDateTime validUntil;
+
+        // a list stores one body for both views
+        private long size() {
+            return ownerBody.length + (publicBody == ownerBody ? 0 : publicBody.length);
+        }
+    }
+}
@@ -2,8 +2,11 @@ package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemListDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
@@ -15,7 +18,17 @@ public interface ItemService {
 
     List<ItemWithBookingDto> getUsersItems(long userId);
 
+    ItemListDto retrieveItems(List<Long> itemIds, long userId);
+
     List<ItemDto> findItemsByText(String text);
 
+    List<ItemDto> findAvailableItems(LocalDateTime start, LocalDateTime end, String text, int size);
+
+    List<String> suggestItemNames(String prefix, int size);
+
+    List<TimeSlotDto> getItemAvailability(long itemId, LocalDateTime from, LocalDateTime to, boolean includeWaiting);
+
+    List<CommentDto> getItemComments(long itemId, long afterId, int size);
+
     CommentDto postUserComment(CommentDto commentDto, long userId, long itemId);
 }
\ No newline at end of file
@@ -2,32 +2,54 @@ package ru.practicum.shareit.item.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.storage.BookingPeriod;
 import ru.practicum.shareit.booking.storage.BookingStorage;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.diagnostics.ItemListLoadEvent;
+import ru.practicum.shareit.diagnostics.ItemSearchEvent;
 import ru.practicum.shareit.exception.AlreadyExistException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.calendar.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.calendar.ItemCalendarCache;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemListDto;
 import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
+import ru.practicum.shareit.item.event.CommentPostedEvent;
+import ru.practicum.shareit.item.event.ItemSavedEvent;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.mapper.CommentMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.storage.CommentCount;
 import ru.practicum.shareit.item.storage.CommentStorage;
+import ru.practicum.shareit.item.storage.ItemIdFilter;
 import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.item.suggest.ItemSuggestionIndex;
+import ru.practicum.shareit.item.summary.ItemSummaryProjection;
+import ru.practicum.shareit.user.storage.UserIdFilter;
 import ru.practicum.shareit.user.storage.UserStorage;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.springframework.data.domain.Sort.Direction.ASC;
@@ -43,11 +65,21 @@ public class ItemServiceImpl implements ItemService {
     private final UserStorage userStorage;
     private final BookingStorage bookingStorage;
     private final CommentStorage commentStorage;
+    private final UserIdFilter userIdFilter;
+    private final ItemIdFilter itemIdFilter;
+    private final ItemSuggestionIndex itemSuggestionIndex;
+    private final ItemCalendarCache itemCalendarCache;
+    private final ItemAvailabilityIndex itemAvailabilityIndex;
+    private final ItemSummaryProjection itemSummaryProjection;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public static final int COMMENTS_PREVIEW_SIZE = 10;
 
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ)
     public ItemDto createItem(long userId, ItemDto itemDto) {
-        User user = userStorage.findById(userId)
+        User user = userIdFilter.find(userId, userStorage::findById)
+                .filter(found -> !found.isDeleted())
                 .orElseThrow(() -> {
                     log.warn("Attempted to use non-existent user id when creating item: {}", userId);
                     return new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId));
@@ -55,6 +87,9 @@ public class ItemServiceImpl implements ItemService {
 
         Item newItem = ItemMapper.toItem(itemDto, user);
         Item savedItem = itemStorage.save(newItem);
+        itemIdFilter.add(savedItem.getId());
+        eventPublisher.publishEvent(ItemSavedEvent.created(savedItem.getId(), userId, savedItem.getName(),
+                savedItem.getDescription(), savedItem.isAvailable()));
 
         log.info("Item with id = {} created for user with id = {}", savedItem.getId(), userId);
         return ItemMapper.toItemDto(savedItem);
@@ -64,7 +99,7 @@ public class ItemServiceImpl implements ItemService {
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ)
     public ItemDto updateItem(long userId, ItemDto itemDto) {
-        Item currentItem = itemStorage.findById(itemDto.getId())
+        Item currentItem = itemIdFilter.find(itemDto.getId(), itemStorage::findById)
                 .orElseThrow(() -> new NotFoundException(String.format(ITEM_NOT_FOUND_MESSAGE, itemDto.getId())));
 
         if (!currentItem.getUser().getId().equals(userId)) {
@@ -72,6 +107,10 @@ public class ItemServiceImpl implements ItemService {
             throw new NotFoundException(String.format(USERS_ITEM_NOT_FOUND_MESSAGE, itemDto.getId(), userId));
         }
 
+        String previousName = currentItem.getName();
+        String previousDescription = currentItem.getDescription();
+        boolean previouslyAvailable = currentItem.isAvailable();
+
         if (itemDto.getName() != null && !itemDto.getName().isBlank()) {
             currentItem.setName(itemDto.getName());
         }
@@ -85,6 +124,8 @@ public class ItemServiceImpl implements ItemService {
         }
 
         Item updatedItem = itemStorage.save(currentItem);
+        eventPublisher.publishEvent(new ItemSavedEvent(updatedItem.getId(), userId, previousName, previousDescription,
+                previouslyAvailable, updatedItem.getName(), updatedItem.getDescription(), updatedItem.isAvailable()));
 
         log.info("Item information updated for item with id = {} owned by user with id = {}", itemDto.getId(), userId);
         return ItemMapper.toItemDto(updatedItem);
@@ -92,43 +133,133 @@ public class ItemServiceImpl implements ItemService {
 
     @Override
     public ItemWithBookingDto retrieveItem(long itemId, long userId) {
-        User user = userStorage.findById(userId)
-                .orElseThrow(() -> new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId)));
+        if (!userIdFilter.exists(userId, userStorage::existsByIdAndDeletedFalse)) {
+            throw new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId));
+        }
+
+        return retrieveItemCard(itemId).viewFor(userId);
+    }
 
-        Item item = itemStorage.findById(itemId)
+    public ItemCard retrieveItemCard(long itemId) {
+        Item item = itemIdFilter.find(itemId, itemStorage::findById)
                 .orElseThrow(() -> new NotFoundException(String.format(ITEM_NOT_FOUND_MESSAGE, itemId)));
+        long ownerId = item.getUser().getId();
 
-        Booking lastBooking = null;
-        Booking nextBooking = null;
+        List<Booking> sortedBookings = bookingStorage.findByItem_IdAndItem_User_IdAndStatusOrderByStartAsc(itemId,
+                ownerId, Status.APPROVED);
+        Booking[] bookings = retrieveLastAndNextBookings(sortedBookings);
+
+        List<Comment> comments = commentStorage.findByItem_IdOrderByIdDesc(itemId,
+                PageRequest.of(0, COMMENTS_PREVIEW_SIZE));
+        Collections.reverse(comments);
+        long commentsCount = comments.size() < COMMENTS_PREVIEW_SIZE ? comments.size()
+                : commentStorage.countByItem_Id(itemId);
+
+        log.info("Received {} latest of {} comments for item with id = {}", comments.size(), commentsCount, itemId);
+        log.info("Received item with id = {}", itemId);
+        return new ItemCard(ownerId, ItemMapper.toItemWithBookingDto(item, bookings[0], bookings[1],
+                CommentMapper.toCommentDto(comments), commentsCount));
+    }
+
+
+    public List<ItemWithBookingDto> getUsersItems(long userId) {
+        ItemListLoadEvent event = new ItemListLoadEvent();
+        event.begin();
+        event.setUserId(userId);
+        try {
+            if (itemSummaryProjection.isReady()) {
+                List<ItemWithBookingDto> items = itemSummaryProjection.findOwnerItems(userId);
+                event.setFromSummaries(true);
+                countLoadedSummaries(event, items);
+                log.info("Retrieved list of items for user with id = {} of length {} from item summaries", userId,
+                        items.size());
+                return items;
+            }
 
-        if (item.getUser().getId().equals(userId)) {
-            List<Booking> sortedBookings = bookingStorage.findByItem_IdAndItem_User_IdAndStatusOrderByStartAsc(itemId, userId, Status.APPROVED);
+            List<Item> items = itemStorage.findByUser_IdOrderByIdAsc(userId);
+            List<ItemWithBookingDto> mappedItems = toItemsWithBookings(items, userId, event);
 
-            Booking[] bookings = retrieveLastAndNextBookings(sortedBookings);
-            lastBooking = bookings[0];
-            nextBooking = bookings[1];
+            log.info("Retrieved list of items for user with id = {} of length {}", userId, items.size());
+            return mappedItems;
+        } finally {
+            event.commit();
         }
+    }
 
-        List<Comment> comments = commentStorage.findByItem_IdOrderByIdAsc(itemId);
+    // a summary holds the last and next bookings and the latest comments of its item
+    private void countLoadedSummaries(ItemListLoadEvent event, List<ItemWithBookingDto> items) {
+        event.setItems(items.size());
+        for (ItemWithBookingDto item : items) {
+            event.setBookings(event.getBookings() + (item.getLastBooking() == null ? 0 : 1)
+                    + (item.getNextBooking() == null ? 0 : 1));
+            event.setComments(event.getComments() + item.getComments().size());
+        }
+    }
 
-        log.info("Received a list of comments for item with id = {} of length {}", itemId, comments.size());
-        log.info("Received item with id = {}", itemId);
-        return ItemMapper.toItemWithBookingDto(item, lastBooking, nextBooking, comments);
+    @Override
+    public ItemListDto retrieveItems(List<Long> itemIds, long userId) {
+        if (!userIdFilter.exists(userId, userStorage::existsByIdAndDeletedFalse)) {
+            throw new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId));
+        }
+
+        ItemListLoadEvent event = new ItemListLoadEvent();
+        event.begin();
+        event.setUserId(userId);
+        try {
+            Set<Long> requestedIds = new LinkedHashSet<>(itemIds);
+            List<Long> knownIds = requestedIds.stream()
+                    .filter(itemIdFilter::mightContain)
+                    .collect(Collectors.toList());
+            Map<Long, Item> foundItems = itemStorage.findAllById(knownIds)
+                    .stream()
+                    .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+            List<Item> items = new ArrayList<>(foundItems.size());
+            List<Long> missingIds = new ArrayList<>();
+            for (Long itemId : requestedIds) {
+                Item item = foundItems.get(itemId);
+                if (item != null) {
+                    items.add(item);
+                } else {
+                    missingIds.add(itemId);
+                }
+            }
+
+            log.info("Retrieved {} of {} requested items for user with id = {}", items.size(), requestedIds.size(),
+                    userId);
+            return new ItemListDto(toItemsWithBookings(items, userId, event), missingIds);
+        } finally {
+            event.commit();
+        }
     }
 
+    // bookings are loaded only for the items owned by the user, other users see items without them
+    private List<ItemWithBookingDto> toItemsWithBookings(List<Item> items, long userId, ItemListLoadEvent event) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-    public List<ItemWithBookingDto> getUsersItems(long userId) {
-        List<Item> items = itemStorage.findByUser_IdOrderByIdAsc(userId);
         List<Long> ids = items.stream().map(Item::getId).collect(Collectors.toList());
+        List<Long> ownedIds = items.stream()
+                .filter(item -> item.getUser().getId() == userId)
+                .map(Item::getId)
+                .collect(Collectors.toList());
 
         LocalDateTime now = LocalDateTime.now();
 
-        Map<Long, List<Comment>> comments = commentStorage.findByItem_IdInOrderByIdAsc(ids)
+        Map<Long, List<CommentDto>> comments = getLatestCommentsByItemId(ids);
+        Map<Long, Long> commentsCounts = commentStorage.countByItemIds(ids)
                 .stream()
-                .collect(Collectors.groupingBy(c -> c.getItem().getId(), Collectors.toList()));
+                .collect(Collectors.toMap(CommentCount::getItemId, CommentCount::getTotal));
+
+        Map<Long, List<Booking>> lastBookings = ownedIds.isEmpty() ? Collections.emptyMap()
+                : getBookingsByItemIdAndStatusBefore(ownedIds, now);
+        Map<Long, List<Booking>> nextBookings = ownedIds.isEmpty() ? Collections.emptyMap()
+                : getBookingsByItemIdAndStatusAfter(ownedIds, now);
 
-        Map<Long, List<Booking>> lastBookings = getBookingsByItemIdAndStatusBefore(ids, now);
-        Map<Long, List<Booking>> nextBookings = getBookingsByItemIdAndStatusAfter(ids, now);
+        event.setItems(items.size());
+        event.setBookings(countBookings(lastBookings) + countBookings(nextBookings));
+        event.setComments(comments.values().stream().mapToInt(List::size).sum());
 
         List<ItemWithBookingDto> mappedItems = new ArrayList<>();
 
@@ -139,13 +270,36 @@ public class ItemServiceImpl implements ItemService {
             mappedItems.add(ItemMapper.toItemWithBookingDto(item,
                     lastBooking,
                     nextBooking,
-                    comments.getOrDefault(item.getId(), List.of())));
+                    comments.getOrDefault(item.getId(), List.of()),
+                    commentsCounts.getOrDefault(item.getId(), 0L)));
         }
 
-        log.info("Retrieved list of items for user with id = {} of length {}", userId, items.size());
         return mappedItems;
     }
 
+    // the native query does not fetch the authors, so they are loaded with one query and looked up by id
+    private Map<Long, List<CommentDto>> getLatestCommentsByItemId(List<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Comment> latestComments = commentStorage.findLatestByItemIds(itemIds, COMMENTS_PREVIEW_SIZE);
+        Set<Long> authorIds = latestComments.stream()
+                .map(c -> c.getAuthor().getId())
+                .collect(Collectors.toSet());
+        Map<Long, User> authors = userStorage.findAllById(authorIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Map<Long, List<CommentDto>> comments = new HashMap<>();
+        for (int i = latestComments.size() - 1; i >= 0; i--) {
+            Comment comment = latestComments.get(i);
+            User author = authors.get(comment.getAuthor().getId());
+            comments.computeIfAbsent(comment.getItem().getId(), id -> new ArrayList<>())
+                    .add(CommentMapper.toCommentDto(comment, author));
+        }
+        return comments;
+    }
+
     private Map<Long, List<Booking>> getBookingsByItemIdAndStatusBefore(List<Long> itemIds, LocalDateTime now) {
         return bookingStorage.findByItemIdInAndStartBeforeAndStatus(itemIds, now, Status.APPROVED, Sort.by(DESC, "start"))
                 .stream()
@@ -159,6 +313,10 @@ public class ItemServiceImpl implements ItemService {
     }
 
 
+    private static int countBookings(Map<Long, List<Booking>> bookings) {
+        return bookings.values().stream().mapToInt(List::size).sum();
+    }
+
     private Booking getFirstBooking(List<Booking> list) {
         return (list == null || list.isEmpty()) ? null : list.get(0);
     }
@@ -169,13 +327,146 @@ public class ItemServiceImpl implements ItemService {
             return Collections.emptyList();
         }
 
+        ItemSearchEvent event = new ItemSearchEvent();
+        event.begin();
         List<Item> searchedItems = itemStorage
                 .findByDescriptionContainingAndAvailableTrueOrNameContainingAndAvailableTrueAllIgnoreCase(text, text);
+        event.setTermLength(text.length());
+        event.setResults(searchedItems.size());
+        event.commit();
 
         log.info("Received a list of items of length {} found by search string: {}", searchedItems.size(), text);
         return ItemMapper.toItemDto(searchedItems);
     }
 
+    @Override
+    public List<ItemDto> findAvailableItems(LocalDateTime start, LocalDateTime end, String text, int size) {
+        if (!start.isBefore(end)) {
+            log.warn("Attempt to search for items available for incorrect period: start = {}, end = {}", start, end);
+            throw new IllegalArgumentException(WRONG_AVAILABILITY_PERIOD_MESSAGE);
+        }
+
+        List<Item> foundItems;
+        if (text != null && !text.isBlank()) {
+            foundItems = itemStorage
+                    .findByDescriptionContainingAndAvailableTrueOrNameContainingAndAvailableTrueAllIgnoreCase(text, text)
+                    .stream()
+                    .filter(item -> isFree(item.getId(), start, end))
+                    .limit(size)
+                    .collect(Collectors.toList());
+        } else if (itemAvailabilityIndex.isAuthoritative()) {
+            foundItems = itemStorage.findAllById(itemAvailabilityIndex.findFreeAvailableItems(start, end, size));
+            foundItems.sort(Comparator.comparingLong(Item::getId));
+        } else if (itemAvailabilityIndex.isReady()) {
+            foundItems = findConfirmedFreeAvailableItems(start, end, size);
+        } else {
+            foundItems = findFreeAvailableItemsInStorage(start, end, size);
+        }
+
+        log.info("Received a list of items of length {} available from {} to {}", foundItems.size(), start, end);
+        return ItemMapper.toItemDto(foundItems);
+    }
+
+    private boolean isFree(long itemId, LocalDateTime start, LocalDateTime end) {
+        if (itemAvailabilityIndex.isAuthoritative()) {
+            return itemAvailabilityIndex.isFree(itemId, start, end);
+        }
+
+        return !bookingStorage.existsByItem_IdAndStatusAndStartBeforeAndEndAfter(itemId, Status.APPROVED, end, start);
+    }
+
+    // another instance may have booked an item or made it unavailable since the index learned about it, so the
+    // items the index finds are checked with the storage a page at a time
+    private List<Item> findConfirmedFreeAvailableItems(LocalDateTime start, LocalDateTime end, int size) {
+        List<Item> foundItems = new ArrayList<>();
+        long afterId = 0;
+        List<Long> candidateIds;
+
+        do {
+            candidateIds = itemAvailabilityIndex.findFreeAvailableItems(start, end, afterId, size);
+            if (!candidateIds.isEmpty()) {
+                afterId = candidateIds.get(candidateIds.size() - 1);
+                foundItems.addAll(confirmFreeAvailableItems(candidateIds, start, end, size - foundItems.size()));
+            }
+        } while (candidateIds.size() == size && foundItems.size() < size);
+
+        return foundItems;
+    }
+
+    private List<Item> confirmFreeAvailableItems(List<Long> itemIds, LocalDateTime start, LocalDateTime end,
+                                                 int limit) {
+        Set<Long> bookedItemIds = bookingStorage.findPeriodsByItemIdsAndStatusOverlapping(itemIds, Status.APPROVED,
+                        start, end).stream()
+                .map(BookingPeriod::getItemId)
+                .collect(Collectors.toSet());
+
+        return itemStorage.findAllById(itemIds).stream()
+                .filter(item -> item.isAvailable() && !bookedItemIds.contains(item.getId()))
+                .sorted(Comparator.comparingLong(Item::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // used only until the availability index is built
+    private List<Item> findFreeAvailableItemsInStorage(LocalDateTime start, LocalDateTime end, int size) {
+        List<Item> foundItems = new ArrayList<>();
+        long afterId = 0;
+        List<Item> batch;
+
+        do {
+            batch = itemStorage.findByIdGreaterThanAndAvailableTrueOrderByIdAsc(afterId, PageRequest.of(0, size));
+            for (Item item : batch) {
+                if (foundItems.size() < size && isFree(item.getId(), start, end)) {
+                    foundItems.add(item);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == size && foundItems.size() < size);
+
+        return foundItems;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<String> suggestItemNames(String prefix, int size) {
+        return itemSuggestionIndex.suggest(prefix, size);
+    }
+
+    @Override
+    public List<TimeSlotDto> getItemAvailability(long itemId, LocalDateTime from, LocalDateTime to,
+                                                 boolean includeWaiting) {
+        if (!from.isBefore(to)) {
+            log.warn("Attempt to get availability of item with id = {} for incorrect period: from = {}, to = {}",
+                    itemId, from, to);
+            throw new IllegalArgumentException(WRONG_AVAILABILITY_PERIOD_MESSAGE);
+        }
+
+        if (!itemIdFilter.exists(itemId, itemStorage::existsById)) {
+            throw new NotFoundException(String.format(ITEM_NOT_FOUND_MESSAGE, itemId));
+        }
+
+        List<TimeSlotDto> freeSlots = itemCalendarCache.getFreeSlots(itemId, from, to, includeWaiting);
+        log.info("Received {} free slots of item with id = {} from {} to {}", freeSlots.size(), itemId, from, to);
+        return freeSlots;
+    }
+
+    @Override
+    public List<CommentDto> getItemComments(long itemId, long afterId, int size) {
+        if (!itemIdFilter.exists(itemId, itemStorage::existsById)) {
+            throw new NotFoundException(String.format(ITEM_NOT_FOUND_MESSAGE, itemId));
+        }
+
+        List<Comment> comments = commentStorage.findByItem_IdAndIdGreaterThanOrderByIdAsc(itemId, afterId,
+                PageRequest.of(0, size));
+
+        log.info("Received a page of comments for item with id = {} after comment with id = {} of length {}", itemId,
+                afterId, comments.size());
+        return CommentMapper.toCommentDto(comments);
+    }
+
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ)
     public CommentDto postUserComment(CommentDto commentDto, long userId, long itemId) {
@@ -186,10 +477,14 @@ public class ItemServiceImpl implements ItemService {
             throw new AlreadyExistException("Cannot comment twice");
         }
 
-        User userRef = userStorage.getReferenceById(userId);
+        // the author is read, as the response carries the author's name
+        User author = userStorage.findById(userId)
+                .filter(user -> !user.isDeleted())
+                .orElseThrow(() -> new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId)));
         Item itemRef = itemStorage.getReferenceById(itemId);
 
-        Comment comment = commentStorage.save(CommentMapper.toComment(commentDto, itemRef, userRef));
+        Comment comment = commentStorage.save(CommentMapper.toComment(commentDto, itemRef, author));
+        eventPublisher.publishEvent(CommentPostedEvent.of(comment, itemId, userId));
         log.info("Added a comment with id = {} for item with id = {} by user with id = {}", comment.getId(), itemId, userId);
         return CommentMapper.toCommentDto(comment);
     }
@@ -1,15 +1,42 @@
 package ru.practicum.shareit.item.storage;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Comment;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentStorage extends JpaRepository<Comment, Long> {
     boolean existsByItem_IdAndAuthor_Id(Long itemId, Long userId);
 
-    List<Comment> findByItem_IdOrderByIdAsc(Long id);
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findByItem_IdOrderByIdDesc(Long itemId, Pageable pageable);
 
-    List<Comment> findByItem_IdInOrderByIdAsc(List<Long> ids);
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findByItem_IdAndIdGreaterThanOrderByIdAsc(Long itemId, Long afterId, Pageable pageable);
 
-}
\ No newline at end of file
+    List<Comment> findByAuthor_IdOrderByIdAsc(Long authorId, Pageable pageable);
+
+    long countByItem_Id(Long itemId);
+
+    @Query("select c.item.id as itemId, count(c.id) as total from Comment c " +
+            "where c.item.id in :itemIds group by c.item.id")
+    List<CommentCount> countByItemIds(@Param("itemIds") List<Long> itemIds);
+
+    @Query(value = "select id, text, item_id, user_id, created from (" +
+            "select c.*, row_number() over (partition by c.item_id order by c.id desc) as recency " +
+            "from comments c where c.item_id in (:itemIds)) latest " +
+            "where latest.recency <= :limit order by item_id, id desc", nativeQuery = true)
+    List<Comment> findLatestByItemIds(@Param("itemIds") List<Long> itemIds, @Param("limit") int limit);
+
+    // rows are locked in the order of their ids, rows removed by another transaction meanwhile are not returned
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Comment c where c.id in :ids order by c.id")
+    List<Comment> lockAllByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,37 @@
+package ru.practicum.shareit.item.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.item.event.ItemDeletedEvent;
+import ru.practicum.shareit.shard.ShardRouter;
+import ru.practicum.shareit.utils.IdExistenceFilter;
+
+import java.util.Comparator;
+import java.util.List;
+
+@Component
+public class ItemIdFilter extends IdExistenceFilter {
+    private final ItemStorage itemStorage;
+    private final ShardRouter shardRouter;
+
+    public ItemIdFilter(ItemStorage itemStorage, ShardRouter shardRouter, MeterRegistry meterRegistry,
+                        @Value("${shareit.single-instance}") boolean singleInstance) {
+        super("items", meterRegistry, singleInstance);
+        this.itemStorage = itemStorage;
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    protected List<Long> loadIds(long afterId, int limit) {
+        return shardRouter.mergeFromShards(() -> itemStorage.findIds(afterId, PageRequest.of(0, limit)),
+                Comparator.naturalOrder(), limit);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemDeleted(ItemDeletedEvent event) {
+        remove(event.getItemId());
+    }
+}
@@ -1,15 +1,38 @@
 package ru.practicum.shareit.item.storage;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Item;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 
 public interface ItemStorage extends JpaRepository<Item, Long> {
     List<Item> findByUser_IdOrderByIdAsc(Long userId);
 
+    List<Item> findByUser_IdOrderByIdAsc(Long userId, Pageable pageable);
+
+    List<Item> findByUser_IdInOrderByIdAsc(Collection<Long> userIds);
+
     List<Item> findByDescriptionContainingAndAvailableTrueOrNameContainingAndAvailableTrueAllIgnoreCase(
             String descriptionSearch, String nameSearch);
 
     boolean existsByUser_IdAndId(Long userId, Long itemId);
+
+    List<Item> findByIdGreaterThanAndAvailableTrueOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select i.id from Item i where i.id > :afterId order by i.id")
+    List<Long> findIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select i.id from Item i where i.available = true and i.id > :afterId order by i.id")
+    List<Long> findAvailableIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    // rows are locked in the order of their ids, so two transactions locking several items cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from Item i where i.id in :ids order by i.id")
+    List<Item> lockAllByIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
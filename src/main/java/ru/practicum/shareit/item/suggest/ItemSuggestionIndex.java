@@ -0,0 +1,208 @@
+package ru.practicum.shareit.item.suggest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.item.event.ItemDeletedEvent;
+import ru.practicum.shareit.item.event.ItemSavedEvent;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.shard.ShardRouter;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Suggests item name and description tokens by prefix. The index is rebuilt on startup into a new trie that
+ * replaces the served one when complete. While it is loaded, every batch is read under the rebuild monitor, which
+ * item events take too: an event for an item that is already loaded is applied to the new trie as well, and a later
+ * batch reads the state an event committed before it, so no change is lost or counted twice.
+ * <p>
+ * Item events only come from this instance, so unless shareit.single-instance is set the index is also rebuilt
+ * periodically to pick up the items other instances changed.
+ */
+@Component
+@Slf4j
+public class ItemSuggestionIndex {
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 32;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ItemStorage itemStorage;
+    private final ShardRouter shardRouter;
+    private final boolean singleInstance;
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMonitor = new Object();
+    // guarded by lock
+    private TokenTrie trie = new TokenTrie(MAX_SUGGESTIONS);
+    // guarded by rebuildMonitor, the trie being rebuilt and the last item id loaded into it
+    private TokenTrie rebuilding;
+    private long rebuiltUpToId;
+
+    public ItemSuggestionIndex(ItemStorage itemStorage, ShardRouter shardRouter,
+                               @Value("${shareit.single-instance}") boolean singleInstance) {
+        this.itemStorage = itemStorage;
+        this.shardRouter = shardRouter;
+        this.singleInstance = singleInstance;
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        String normalizedPrefix = prefix.trim().toLowerCase(Locale.ROOT);
+        if (normalizedPrefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            return trie.suggest(normalizedPrefix, Math.min(limit, MAX_SUGGESTIONS)).stream()
+                    .map(TokenTrie.Suggestion::getToken)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.index.multi-instance-rebuild-interval}",
+            initialDelayString = "${shareit.index.multi-instance-rebuild-interval}")
+    public void rebuildWithChangesOfOtherInstances() {
+        if (!singleInstance) {
+            rebuild();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            log.info("Item name suggestion index is already being rebuilt");
+            return;
+        }
+        try {
+            rebuildTrie();
+        } finally {
+            rebuildRunning.set(false);
+        }
+    }
+
+    private void rebuildTrie() {
+        TokenTrie rebuilt = new TokenTrie(MAX_SUGGESTIONS);
+        synchronized (rebuildMonitor) {
+            rebuilding = rebuilt;
+            rebuiltUpToId = 0;
+        }
+
+        long indexedItems = 0;
+        boolean complete;
+
+        do {
+            synchronized (rebuildMonitor) {
+                long afterId = rebuiltUpToId;
+                List<Item> batch = shardRouter.mergeFromShards(
+                        () -> itemStorage.findByIdGreaterThanAndAvailableTrueOrderByIdAsc(afterId,
+                                PageRequest.of(0, REBUILD_BATCH_SIZE)),
+                        Comparator.comparingLong(Item::getId), REBUILD_BATCH_SIZE);
+
+                for (Item item : batch) {
+                    apply(rebuilt, item.getName(), item.getDescription(), 1);
+                }
+                if (!batch.isEmpty()) {
+                    rebuiltUpToId = batch.get(batch.size() - 1).getId();
+                    indexedItems += batch.size();
+                }
+
+                // swapped before the monitor is released, so an item created after the last read is not missed
+                complete = batch.size() < REBUILD_BATCH_SIZE;
+                if (complete) {
+                    lock.writeLock().lock();
+                    try {
+                        trie = rebuilt;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    rebuilding = null;
+                }
+            }
+        } while (!complete);
+
+        log.info("Built item name suggestion index from {} available items with {} distinct tokens", indexedItems,
+                rebuilt.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemSaved(ItemSavedEvent event) {
+        synchronized (rebuildMonitor) {
+            if (!event.isNew() && event.isPreviouslyAvailable()) {
+                apply(event.getItemId(), event.getPreviousName(), event.getPreviousDescription(), -1);
+            }
+            if (event.isAvailable()) {
+                apply(event.getItemId(), event.getName(), event.getDescription(), 1);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemDeleted(ItemDeletedEvent event) {
+        if (!event.isAvailable()) {
+            return;
+        }
+
+        synchronized (rebuildMonitor) {
+            apply(event.getItemId(), event.getName(), event.getDescription(), -1);
+        }
+    }
+
+    // items after rebuiltUpToId are not loaded yet, the batch reading them will see this change
+    private void apply(long itemId, String name, String description, int delta) {
+        if (rebuilding != null && itemId <= rebuiltUpToId) {
+            apply(rebuilding, name, description, delta);
+        }
+
+        lock.writeLock().lock();
+        try {
+            apply(trie, name, description, delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(TokenTrie target, String name, String description, int delta) {
+        for (String token : tokenize(name, description)) {
+            target.add(token, delta);
+        }
+    }
+
+    private Set<String> tokenize(String name, String description) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(tokens, name);
+        addTokens(tokens, description);
+        return tokens;
+    }
+
+    private void addTokens(Set<String> tokens, String text) {
+        if (text == null) {
+            return;
+        }
+
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() >= MIN_TOKEN_LENGTH && token.length() <= MAX_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+    }
+}
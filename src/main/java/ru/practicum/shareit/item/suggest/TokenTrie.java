@@ -0,0 +1,170 @@
+package ru.practicum.shareit.item.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Prefix tree of tokens where every node keeps the top {@code capacity} tokens of its subtree ordered by
+ * the number of items containing them, so a suggestion lookup is a walk down the prefix and a list copy.
+ * Not thread-safe, callers are expected to guard access.
+ */
+class TokenTrie {
+    private final int capacity;
+    private final Node root = new Node();
+    private int tokenCount;
+
+    TokenTrie(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void add(String token, int delta) {
+        Node[] path = new Node[token.length() + 1];
+        Node node = root;
+        path[0] = node;
+
+        for (int i = 0; i < token.length(); i++) {
+            Node child = node.child(token.charAt(i));
+            if (child == null) {
+                if (delta <= 0) {
+                    return;
+                }
+                child = node.addChild(token.charAt(i));
+            }
+            node = child;
+            path[i + 1] = node;
+        }
+
+        int before = node.count;
+        node.count = Math.max(0, node.count + delta);
+        node.token = node.count > 0 ? token : null;
+        if (before == node.count) {
+            return;
+        }
+        if (before == 0) {
+            tokenCount++;
+        } else if (node.count == 0) {
+            tokenCount--;
+        }
+
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i].recomputeTop(capacity);
+        }
+        prune(path, token);
+    }
+
+    List<Suggestion> suggest(String prefix, int limit) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+
+        if (node == null || node.top.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Suggestion> result = new ArrayList<>(Math.min(limit, node.top.length));
+        for (int i = 0; i < node.top.length && i < limit; i++) {
+            result.add(node.top[i]);
+        }
+        return result;
+    }
+
+    int size() {
+        return tokenCount;
+    }
+
+    private void prune(Node[] path, String token) {
+        for (int i = path.length - 1; i > 0; i--) {
+            Node node = path[i];
+            if (node.count > 0 || node.keys.length > 0) {
+                return;
+            }
+            path[i - 1].removeChild(token.charAt(i - 1));
+        }
+    }
+
+    static final class Suggestion {
+        private final String token;
+        private final int count;
+
+        Suggestion(String token, int count) {
+            this.token = token;
+            this.count = count;
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Suggestion[] top = new Suggestion[0];
+        private String token;
+        private int count;
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node addChild(char key) {
+            int insertion = -Arrays.binarySearch(keys, key) - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+
+            System.arraycopy(keys, 0, newKeys, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+
+            Node child = new Node();
+            newKeys[insertion] = key;
+            newChildren[insertion] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                return;
+            }
+
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        void recomputeTop(int capacity) {
+            List<Suggestion> candidates = new ArrayList<>();
+
+            if (count > 0) {
+                candidates.add(new Suggestion(token, count));
+            }
+
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+
+            candidates.sort((a, b) -> a.count != b.count
+                    ? Integer.compare(b.count, a.count)
+                    : a.token.compareTo(b.token));
+
+            top = candidates.subList(0, Math.min(capacity, candidates.size())).toArray(new Suggestion[0]);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.practicum.shareit.item.summary;
+
+import lombok.*;
+import ru.practicum.shareit.booking.dto.BookingInfo;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Entity
+@Table(name = "item_summary")
+public class ItemSummary {
+    @Id
+    @Column(name = "item_id")
+    private long itemId;
+    @Column(name = "user_id", nullable = false)
+    private long ownerId;
+    @Column(nullable = false)
+    private String name;
+    @Column(nullable = false)
+    private String description;
+    private boolean available;
+    @Column(name = "last_booking_id")
+    private Long lastBookingId;
+    @Column(name = "last_booking_start")
+    private LocalDateTime lastBookingStart;
+    @Column(name = "last_booking_end")
+    private LocalDateTime lastBookingEnd;
+    @Column(name = "last_booker_id")
+    private Long lastBookerId;
+    @Column(name = "next_booking_id")
+    private Long nextBookingId;
+    @Column(name = "next_booking_start")
+    private LocalDateTime nextBookingStart;
+    @Column(name = "next_booking_end")
+    private LocalDateTime nextBookingEnd;
+    @Column(name = "next_booker_id")
+    private Long nextBookerId;
+    @Column(name = "comments_count")
+    private long commentsCount;
+    @Column(name = "latest_comments", nullable = false)
+    @ToString.Exclude
+    private String latestComments;
+
+    public ItemSummary(Item item) {
+        this.itemId = item.getId();
+        this.ownerId = item.getUser().getId();
+        this.name = item.getName();
+        this.description = item.getDescription();
+        this.available = item.isAvailable();
+        this.latestComments = "[]";
+    }
+
+    public void setLastBooking(Booking booking) {
+        this.lastBookingId = booking == null ? null : booking.getId();
+        this.lastBookingStart = booking == null ? null : booking.getStart();
+        this.lastBookingEnd = booking == null ? null : booking.getEnd();
+        this.lastBookerId = booking == null ? null : booking.getBooker().getId();
+    }
+
+    public void setNextBooking(Booking booking) {
+        this.nextBookingId = booking == null ? null : booking.getId();
+        this.nextBookingStart = booking == null ? null : booking.getStart();
+        this.nextBookingEnd = booking == null ? null : booking.getEnd();
+        this.nextBookerId = booking == null ? null : booking.getBooker().getId();
+    }
+
+    // only approved bookings are stored as the last and the next one
+    public BookingInfo getLastBooking() {
+        return lastBookingId == null ? null
+                : new BookingInfo(lastBookingId, lastBookingStart, lastBookingEnd, Status.APPROVED, lastBookerId);
+    }
+
+    public BookingInfo getNextBooking() {
+        return nextBookingId == null ? null
+                : new BookingInfo(nextBookingId, nextBookingStart, nextBookingEnd, Status.APPROVED, nextBookerId);
+    }
+
+    // the next booking has started since the summary was written, so both boundaries have to be looked up again
+    public boolean hasStaleBookings(LocalDateTime now) {
+        return nextBookingStart != null && !nextBookingStart.isAfter(now);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ItemSummary summary = (ItemSummary) o;
+        return itemId == summary.itemId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(itemId);
+    }
+}
@@ -0,0 +1,319 @@
+package ru.practicum.shareit.item.summary;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingInfo;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+import ru.practicum.shareit.item.event.CommentDeletedEvent;
+import ru.practicum.shareit.item.event.CommentPostedEvent;
+import ru.practicum.shareit.item.event.ItemDeletedEvent;
+import ru.practicum.shareit.item.event.ItemSavedEvent;
+import ru.practicum.shareit.item.mapper.CommentMapper;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.CommentStorage;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.shard.ShardRouter;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static ru.practicum.shareit.item.service.ItemServiceImpl.COMMENTS_PREVIEW_SIZE;
+
+/**
+ * Keeps the item_summary read table with one row per item holding everything the owner's item list shows: the
+ * item, its last and next approved bookings and its latest comments. The listeners only record which items a
+ * committed transaction changed, {@link ItemSummaryUpdateAspect} applies them once the service call has finished
+ * its transaction and before it returns. Updating the row inside the writing transaction would make concurrent
+ * approvals of one item fail on the row, and a transaction of its own started there would wait for a second
+ * connection while the request holds one. A scheduled refresh moves the boundaries of items whose next booking
+ * has started, rows read between two refreshes get their boundaries looked up again.
+ */
+@Component
+@Slf4j
+public class ItemSummaryProjection {
+    private enum Change { ITEM, BOOKINGS, COMMENTS }
+
+    private static final int BATCH_SIZE = 1000;
+    private static final TypeReference<List<CommentDto>> COMMENT_LIST = new TypeReference<>() {
+    };
+
+    private final ItemSummaryStorage itemSummaryStorage;
+    private final ItemStorage itemStorage;
+    private final BookingStorage bookingStorage;
+    private final CommentStorage commentStorage;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadLocal<Map<Long, Set<Change>>> pendingChanges = ThreadLocal.withInitial(LinkedHashMap::new);
+    private volatile boolean ready;
+
+    public ItemSummaryProjection(ItemSummaryStorage itemSummaryStorage, ItemStorage itemStorage,
+                                 BookingStorage bookingStorage, CommentStorage commentStorage,
+                                 ShardRouter shardRouter, ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager) {
+        this.itemSummaryStorage = itemSummaryStorage;
+        this.itemStorage = itemStorage;
+        this.bookingStorage = bookingStorage;
+        this.commentStorage = commentStorage;
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+
+        // propagation is left as required, so in a request the open session and its connection are reused
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<ItemWithBookingDto> findOwnerItems(long ownerId) {
+        LocalDateTime now = LocalDateTime.now();
+        return itemSummaryStorage.findByOwnerIdOrderByItemIdAsc(ownerId).stream()
+                .map(summary -> toItemWithBookingDto(summary, now))
+                .collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemSaved(ItemSavedEvent event) {
+        recordChange(event.getItemId(), Change.ITEM);
+    }
+
+    // bookings only change from waiting to another status, so only an approval can move the boundaries
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if (event.getStatus() == Status.APPROVED) {
+            recordChange(event.getItemId(), Change.BOOKINGS);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingDeleted(BookingDeletedEvent event) {
+        if (event.getStatus() == Status.APPROVED) {
+            recordChange(event.getItemId(), Change.BOOKINGS);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentPosted(CommentPostedEvent event) {
+        recordChange(event.getItemId(), Change.COMMENTS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentDeleted(CommentDeletedEvent event) {
+        recordChange(event.getItemId(), Change.COMMENTS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemDeleted(ItemDeletedEvent event) {
+        recordChange(event.getItemId(), Change.ITEM);
+    }
+
+    /**
+     * Applies the changes recorded on this thread, each item in its own transaction that locks the row and reads
+     * the committed item, bookings and comments, so concurrent changes of one item are applied one after another.
+     */
+    public void applyPendingChanges() {
+        Map<Long, Set<Change>> changes = pendingChanges.get();
+        if (changes.isEmpty()) {
+            return;
+        }
+        pendingChanges.remove();
+
+        changes.forEach((itemId, itemChanges) -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyChanges(itemId, itemChanges));
+            } catch (RuntimeException e) {
+                log.warn("Cannot update summary of item with id = {}: {}", itemId, e.getMessage());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.item-summary.refresh-interval}")
+    public void refreshStartedBookings() {
+        int refreshed = shardRouter.onEachShard(shard -> refreshStartedBookingsOnShard()).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        if (refreshed > 0) {
+            log.info("Refreshed bookings of {} item summaries whose next booking has started", refreshed);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createMissingSummaries() {
+        int created = shardRouter.onEachShard(shard -> createMissingSummariesOnShard()).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+
+        ready = true;
+        log.info("Created {} missing item summaries", created);
+    }
+
+    private int refreshStartedBookingsOnShard() {
+        int refreshed = 0;
+        List<Long> itemIds;
+
+        do {
+            itemIds = itemSummaryStorage.findIdsWithNextBookingStartedBy(LocalDateTime.now(),
+                    PageRequest.of(0, BATCH_SIZE));
+            itemIds.forEach(itemId -> transactionTemplate.executeWithoutResult(status ->
+                    update(itemId, summary -> updateBookings(summary, LocalDateTime.now()))));
+            refreshed += itemIds.size();
+        } while (itemIds.size() == BATCH_SIZE);
+
+        return refreshed;
+    }
+
+    private int createMissingSummariesOnShard() {
+        int created = 0;
+        long afterId = 0;
+        List<Long> itemIds;
+
+        do {
+            itemIds = itemStorage.findIds(afterId, PageRequest.of(0, BATCH_SIZE));
+            if (itemIds.isEmpty()) {
+                break;
+            }
+
+            Set<Long> existingIds = new HashSet<>(itemSummaryStorage.findExistingIds(itemIds));
+            for (Long itemId : itemIds) {
+                if (!existingIds.contains(itemId) && createSummary(itemId)) {
+                    created++;
+                }
+            }
+            afterId = itemIds.get(itemIds.size() - 1);
+        } while (itemIds.size() == BATCH_SIZE);
+
+        return created;
+    }
+
+    private boolean createSummary(long itemId) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> itemStorage.findById(itemId)
+                    .map(item -> itemSummaryStorage.save(buildSummary(item)) != null)
+                    .orElse(false)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Summary of item with id = {} was created concurrently", itemId);
+            return false;
+        }
+    }
+
+    private void recordChange(long itemId, Change change) {
+        pendingChanges.get().computeIfAbsent(itemId, id -> EnumSet.noneOf(Change.class)).add(change);
+    }
+
+    private void applyChanges(long itemId, Set<Change> changes) {
+        Optional<ItemSummary> found = itemSummaryStorage.findForUpdate(itemId);
+        if (found.isEmpty()) {
+            itemStorage.findById(itemId).ifPresent(item -> itemSummaryStorage.save(buildSummary(item)));
+            return;
+        }
+
+        ItemSummary summary = found.get();
+        if (changes.contains(Change.ITEM)) {
+            Optional<Item> item = itemStorage.findById(itemId);
+            if (item.isEmpty()) {
+                itemSummaryStorage.delete(summary);
+                return;
+            }
+            summary.setName(item.get().getName());
+            summary.setDescription(item.get().getDescription());
+            summary.setAvailable(item.get().isAvailable());
+        }
+        if (changes.contains(Change.BOOKINGS)) {
+            updateBookings(summary, LocalDateTime.now());
+        }
+        if (changes.contains(Change.COMMENTS)) {
+            updateComments(summary);
+        }
+    }
+
+    // a missing row of an existing item is left to the startup pass, which reads the bookings and comments anyway
+    private void update(long itemId, Consumer<ItemSummary> change) {
+        itemSummaryStorage.findForUpdate(itemId).ifPresent(change);
+    }
+
+    private ItemSummary buildSummary(Item item) {
+        ItemSummary summary = new ItemSummary(item);
+        updateBookings(summary, LocalDateTime.now());
+        updateComments(summary);
+        return summary;
+    }
+
+    private void updateBookings(ItemSummary summary, LocalDateTime now) {
+        summary.setLastBooking(findLastBooking(summary.getItemId(), now));
+        summary.setNextBooking(findNextBooking(summary.getItemId(), now));
+    }
+
+    private void updateComments(ItemSummary summary) {
+        List<Comment> comments = commentStorage.findByItem_IdOrderByIdDesc(summary.getItemId(),
+                PageRequest.of(0, COMMENTS_PREVIEW_SIZE));
+        Collections.reverse(comments);
+
+        summary.setCommentsCount(comments.size() < COMMENTS_PREVIEW_SIZE ? comments.size()
+                : commentStorage.countByItem_Id(summary.getItemId()));
+        try {
+            summary.setLatestComments(objectMapper.writeValueAsString(CommentMapper.toCommentDto(comments)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize comments of item with id = " + summary.getItemId(), e);
+        }
+    }
+
+    private ItemWithBookingDto toItemWithBookingDto(ItemSummary summary, LocalDateTime now) {
+        BookingInfo lastBooking = summary.getLastBooking();
+        BookingInfo nextBooking = summary.getNextBooking();
+        if (summary.hasStaleBookings(now)) {
+            lastBooking = BookingMapper.toSimpleBookingDto(findLastBooking(summary.getItemId(), now));
+            nextBooking = BookingMapper.toSimpleBookingDto(findNextBooking(summary.getItemId(), now));
+        }
+
+        List<CommentDto> comments;
+        try {
+            comments = objectMapper.readValue(summary.getLatestComments(), COMMENT_LIST);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read comments of item with id = " + summary.getItemId(), e);
+        }
+
+        return new ItemWithBookingDto(summary.getItemId(), summary.getName(), summary.getDescription(),
+                summary.isAvailable(), lastBooking, nextBooking, comments, summary.getCommentsCount());
+    }
+
+    private Booking findLastBooking(long itemId, LocalDateTime now) {
+        return bookingStorage.findFirstByItem_IdAndStatusAndStartBeforeOrderByStartDesc(itemId, Status.APPROVED, now)
+                .orElse(null);
+    }
+
+    private Booking findNextBooking(long itemId, LocalDateTime now) {
+        return bookingStorage.findFirstByItem_IdAndStatusAndStartAfterOrderByStartAsc(itemId, Status.APPROVED, now)
+                .orElse(null);
+    }
+}
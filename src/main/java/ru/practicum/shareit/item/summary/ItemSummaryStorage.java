@@ -0,0 +1,27 @@
+package ru.practicum.shareit.item.summary;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ItemSummaryStorage extends JpaRepository<ItemSummary, Long> {
+    List<ItemSummary> findByOwnerIdOrderByItemIdAsc(long ownerId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ItemSummary s where s.itemId = :itemId")
+    Optional<ItemSummary> findForUpdate(@Param("itemId") long itemId);
+
+    @Query("select s.itemId from ItemSummary s where s.nextBookingStart <= :now order by s.itemId")
+    List<Long> findIdsWithNextBookingStartedBy(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("select s.itemId from ItemSummary s where s.itemId in :itemIds")
+    List<Long> findExistingIds(@Param("itemIds") Collection<Long> itemIds);
+}
@@ -0,0 +1,35 @@
+package ru.practicum.shareit.item.summary;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies the item summary changes of an item or booking service call after its transaction has completed. It runs
+ * inside the shard routing and before the transaction advice, so the changes are applied on the shard of the call.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class ItemSummaryUpdateAspect {
+    private final ItemSummaryProjection itemSummaryProjection;
+
+    @Around("execution(* ru.practicum.shareit.item.service.ItemServiceImpl.*(..)) " +
+            "|| execution(* ru.practicum.shareit.booking.service.BookingServiceImpl.*(..))")
+    public Object applySummaryChanges(ProceedingJoinPoint joinPoint) throws Throwable {
+        try {
+            return joinPoint.proceed();
+        } finally {
+            // a call made inside another transaction leaves its changes to the end of the outer call
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                itemSummaryProjection.applyPendingChanges();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.memory;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+import ru.practicum.shareit.booking.status.Status;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class BookingRow implements MemoryRow {
+    long id;
+    Status status;
+    long itemId;
+    long bookerId;
+    LocalDateTime start;
+    LocalDateTime end;
+}
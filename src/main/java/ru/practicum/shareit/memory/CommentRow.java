@@ -0,0 +1,18 @@
+package ru.practicum.shareit.memory;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class CommentRow implements MemoryRow {
+    long id;
+    String text;
+    long itemId;
+    long authorId;
+    LocalDateTime created;
+}
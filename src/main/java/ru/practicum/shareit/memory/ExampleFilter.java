@@ -0,0 +1,105 @@
+package ru.practicum.shareit.memory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.support.ExampleMatcherAccessor;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Matches entities against the probe of an example the way the JPA repositories do: every property of the probe
+ * that is not null and not ignored must match, or any of them with the any match mode, associations are compared
+ * by their own properties and collections are not compared.
+ */
+final class ExampleFilter<S> implements Predicate<Object> {
+    private final Example<S> example;
+    private final ExampleMatcherAccessor accessor;
+
+    ExampleFilter(Example<S> example) {
+        this.example = example;
+        this.accessor = new ExampleMatcherAccessor(example.getMatcher());
+    }
+
+    @Override
+    public boolean test(Object entity) {
+        if (!example.getProbeType().isInstance(entity)) {
+            return false;
+        }
+
+        List<Boolean> matches = new ArrayList<>();
+        collectMatches(example.getProbe(), entity, "", matches);
+        if (example.getMatcher().isAllMatching()) {
+            return !matches.contains(false);
+        }
+        return matches.isEmpty() || matches.contains(true);
+    }
+
+    private void collectMatches(Object probe, Object entity, String path, List<Boolean> matches) {
+        BeanWrapper probeWrapper = PropertyAccessorFactory.forBeanPropertyAccess(probe);
+        BeanWrapper entityWrapper = entity == null ? null : PropertyAccessorFactory.forBeanPropertyAccess(entity);
+
+        for (PropertyDescriptor property : probeWrapper.getPropertyDescriptors()) {
+            String name = property.getName();
+            String propertyPath = path.isEmpty() ? name : path + "." + name;
+            if (property.getReadMethod() == null || "class".equals(name) || accessor.isIgnoredPath(propertyPath)) {
+                continue;
+            }
+
+            Object expected = accessor.getValueTransformerForPath(propertyPath)
+                    .apply(Optional.ofNullable(probeWrapper.getPropertyValue(name)))
+                    .orElse(null);
+            Object actual = entityWrapper == null ? null : entityWrapper.getPropertyValue(name);
+
+            if (expected == null) {
+                if (accessor.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                    matches.add(actual == null);
+                }
+            } else if (expected instanceof String) {
+                matches.add(actual != null && matchesString((String) expected, actual.toString(), propertyPath));
+            } else if (BeanUtils.isSimpleValueType(expected.getClass())) {
+                matches.add(Objects.equals(expected, actual));
+            } else if (!(expected instanceof Collection) && !(expected instanceof Map)) {
+                if (actual == null) {
+                    matches.add(false);
+                } else {
+                    collectMatches(expected, actual, propertyPath, matches);
+                }
+            }
+        }
+    }
+
+    private boolean matchesString(String expected, String actual, String path) {
+        boolean ignoreCase = accessor.isIgnoreCaseForPath(path);
+        ExampleMatcher.StringMatcher stringMatcher = accessor.getStringMatcherForPath(path);
+        if (stringMatcher == ExampleMatcher.StringMatcher.REGEX) {
+            return Pattern.compile(expected, ignoreCase ? Pattern.CASE_INSENSITIVE : 0).matcher(actual).matches();
+        }
+
+        if (ignoreCase) {
+            expected = expected.toLowerCase(Locale.ROOT);
+            actual = actual.toLowerCase(Locale.ROOT);
+        }
+        switch (stringMatcher) {
+            case STARTING:
+                return actual.startsWith(expected);
+            case ENDING:
+                return actual.endsWith(expected);
+            case CONTAINING:
+                return actual.contains(expected);
+            default:
+                return actual.equals(expected);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package ru.practicum.shareit.memory;
+
+import lombok.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingPeriod;
+import ru.practicum.shareit.booking.storage.BookingStateCounts;
+import ru.practicum.shareit.booking.storage.BookingStatusRow;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Repository
+@Primary
+@Profile("memory")
+public class InMemoryBookingStorage extends InMemoryStorage<Booking, BookingRow> implements BookingStorage {
+    public InMemoryBookingStorage(MemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public List<Booking> findByBooker_IdOrderByStartDesc(Long bookerId) {
+        return toEntities(findBookerRows(bookerId));
+    }
+
+    @Override
+    public List<Booking> findByBooker_IdOrderByStartDesc(Long bookerId, Pageable pageable) {
+        return toEntities(paged(findBookerRows(bookerId), pageable));
+    }
+
+    @Override
+    public List<Booking> findByBooker_IdAndEndBeforeOrderByStartDesc(Long bookerId, LocalDateTime time) {
+        return toEntities(findBookerRows(bookerId).filter(row -> row.getEnd().isBefore(time)));
+    }
+
+    @Override
+    public List<Booking> findByBooker_IdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime time) {
+        return toEntities(findBookerRows(bookerId).filter(row -> row.getStart().isAfter(time)));
+    }
+
+    @Override
+    public List<Booking> findByBooker_IdAndStartBeforeAndEndAfterOrderByStartDesc(Long bookerId, LocalDateTime time1,
+                                                                                  LocalDateTime time2) {
+        return toEntities(findBookerRows(bookerId)
+                .filter(row -> row.getStart().isBefore(time1) && row.getEnd().isAfter(time2)));
+    }
+
+    @Override
+    public List<Booking> findByBooker_IdAndStatusOrderByStartDesc(Long bookerId, Status status) {
+        return toEntities(findBookerRows(bookerId).filter(row -> row.getStatus() == status));
+    }
+
+    @Override
+    public List<Booking> findByItem_User_IdOrderByStartDesc(Long ownerId) {
+        return toEntities(findOwnerRows(ownerId));
+    }
+
+    @Override
+    public List<Booking> findByItem_User_IdOrderByStartDesc(Long ownerId, Pageable pageable) {
+        return toEntities(paged(findOwnerRows(ownerId), pageable));
+    }
+
+    @Override
+    public List<Booking> findByItem_User_IdAndStatusOrderByStartDesc(Long ownerId, Status status) {
+        return toEntities(findOwnerRows(ownerId).filter(row -> row.getStatus() == status));
+    }
+
+    @Override
+    public List<Booking> findByItem_User_IdAndStartAfterOrderByStartDesc(Long ownerId, LocalDateTime time) {
+        return toEntities(findOwnerRows(ownerId).filter(row -> row.getStart().isAfter(time)));
+    }
+
+    @Override
+    public List<Booking> findByItem_User_IdAndEndBeforeOrderByStartDesc(Long ownerId, LocalDateTime time) {
+        return toEntities(findOwnerRows(ownerId).filter(row -> row.getEnd().isBefore(time)));
+    }
+
+    @Override
+    public List<Booking> findByItem_User_IdAndStartBeforeAndEndAfterOrderByStartDesc(Long ownerId,
+                                                                                     LocalDateTime time1,
+                                                                                     LocalDateTime time2) {
+        return toEntities(findOwnerRows(ownerId)
+                .filter(row -> row.getStart().isBefore(time1) && row.getEnd().isAfter(time2)));
+    }
+
+    @Override
+    public List<Booking> findByItem_IdAndItem_User_IdAndStatusOrderByStartAsc(Long itemId, Long ownerId,
+                                                                             Status status) {
+        if (!isOwner(itemId, ownerId)) {
+            return List.of();
+        }
+        return toEntities(findItemRows(itemId).filter(row -> row.getStatus() == status));
+    }
+
+    @Override
+    public boolean existsByItem_IdAndBooker_IdAndStatusAndEndBefore(Long itemId, Long userId, Status status,
+                                                                    LocalDateTime end) {
+        return findItemRows(itemId).anyMatch(row -> row.getBookerId() == userId && row.getStatus() == status
+                && row.getEnd().isBefore(end));
+    }
+
+    @Override
+    public List<Booking> findByItem_IdAndEndAfterAndStatusOrderByStartAsc(Long itemId, LocalDateTime end,
+                                                                         Status status) {
+        return toEntities(findItemRows(itemId).filter(row -> row.getEnd().isAfter(end) && row.getStatus() == status));
+    }
+
+    @Override
+    public List<Booking> findByItem_IdOrderByIdAsc(Long itemId, Pageable pageable) {
+        return toEntities(paged(findItemRows(itemId).sorted(comparator("id")), pageable));
+    }
+
+    @Override
+    public List<Booking> findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(Long itemId, List<Status> statuses,
+                                                                            LocalDateTime end) {
+        return toEntities(findItemRows(itemId)
+                .filter(row -> statuses.contains(row.getStatus()) && row.getEnd().isAfter(end)));
+    }
+
+    @Override
+    public boolean existsByItem_IdAndStatusAndStartBeforeAndEndAfter(Long itemId, Status status, LocalDateTime end,
+                                                                      LocalDateTime start) {
+        return findItemRows(itemId).anyMatch(row -> row.getStatus() == status && row.getStart().isBefore(end)
+                && row.getEnd().isAfter(start));
+    }
+
+    @Override
+    public List<BookingPeriod> findPeriodsByStatusAndEndAfter(Status status, LocalDateTime end, Long afterId,
+                                                              Pageable pageable) {
+        return paged(database.bookings().rowsAfter(afterId).stream()
+                .filter(row -> row.getStatus() == status && row.getEnd().isAfter(end)), pageable)
+                .map(Period::of)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BookingStatusRow> findStatusRowsByIds(Collection<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .map(database.bookings()::get)
+                .filter(Objects::nonNull)
+                .map(row -> new StatusRow(row.getId(), row.getItemId(), findOwnerId(row.getItemId()),
+                        row.getBookerId(), row.getStatus(), row.getStart(), row.getEnd()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BookingPeriod> findPeriodsByItemIdsAndStatusOverlapping(Collection<Long> itemIds, Status status,
+                                                                        LocalDateTime from, LocalDateTime to) {
+        return itemIds.stream()
+                .distinct()
+                .flatMap(this::findItemRows)
+                .filter(row -> row.getStatus() == status && row.getEnd().isAfter(from) && row.getStart().isBefore(to))
+                .sorted(MemoryDatabase.BY_START)
+                .map(Period::of)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int updateWaitingStatuses(Collection<Long> ids, Status status) {
+        return database.updateBookingStatuses(ids, Status.WAITING, status);
+    }
+
+    // only the purge worker locks bookings to delete them, and it runs in one thread of the single instance
+    @Override
+    public List<Booking> lockAllByIds(Collection<Long> ids) {
+        return toEntities(ids.stream()
+                .distinct()
+                .sorted()
+                .map(this::findRow)
+                .flatMap(Optional::stream));
+    }
+
+    @Override
+    public List<Booking> findByItemIdInAndStartBeforeAndStatus(List<Long> itemIds, LocalDateTime now, Status status,
+                                                               Sort sort) {
+        return toEntities(sorted(findItemsRows(itemIds)
+                .filter(row -> row.getStart().isBefore(now) && row.getStatus() == status), sort));
+    }
+
+    @Override
+    public List<Booking> findByItemIdInAndStartAfterAndStatus(List<Long> itemIds, LocalDateTime now, Status status,
+                                                              Sort sort) {
+        return toEntities(sorted(findItemsRows(itemIds)
+                .filter(row -> row.getStart().isAfter(now) && row.getStatus() == status), sort));
+    }
+
+    @Override
+    public Optional<Booking> findFirstByItem_IdAndStatusAndStartBeforeOrderByStartDesc(Long itemId, Status status,
+                                                                                      LocalDateTime time) {
+        return findItemRows(itemId)
+                .filter(row -> row.getStatus() == status && row.getStart().isBefore(time))
+                .reduce((first, second) -> second)
+                .map(this::toEntity);
+    }
+
+    @Override
+    public Optional<Booking> findFirstByItem_IdAndStatusAndStartAfterOrderByStartAsc(Long itemId, Status status,
+                                                                                    LocalDateTime time) {
+        return findItemRows(itemId)
+                .filter(row -> row.getStatus() == status && row.getStart().isAfter(time))
+                .findFirst()
+                .map(this::toEntity);
+    }
+
+    @Override
+    public BookingStateCounts countStatesByBookerId(Long bookerId, LocalDateTime now) {
+        return countStates(findBookerRows(bookerId), now);
+    }
+
+    @Override
+    public BookingStateCounts countStatesByOwnerId(Long ownerId, LocalDateTime now) {
+        return countStates(findOwnerRows(ownerId), now);
+    }
+
+    @Override
+    protected MemoryTable<BookingRow> table() {
+        return database.bookings();
+    }
+
+    @Override
+    protected Comparator<BookingRow> comparator(String property) {
+        switch (property) {
+            case "start":
+                return Comparator.comparing(BookingRow::getStart);
+            case "end":
+                return Comparator.comparing(BookingRow::getEnd);
+            default:
+                return super.comparator(property);
+        }
+    }
+
+    @Override
+    protected Booking toEntity(BookingRow row) {
+        return new Booking(row.getId(), row.getStatus(), toItem(row.getItemId()), toUser(row.getBookerId()),
+                row.getStart(), row.getEnd());
+    }
+
+    @Override
+    protected Long getId(Booking booking) {
+        return booking.getId();
+    }
+
+    @Override
+    protected Booking store(Booking booking) {
+        BookingRow saved = database.saveBooking(BookingRow.builder()
+                .id(booking.getId() == null ? 0 : booking.getId())
+                .status(booking.getStatus())
+                .itemId(booking.getItem().getId())
+                .bookerId(booking.getBooker().getId())
+                .start(booking.getStart())
+                .end(booking.getEnd())
+                .build());
+        booking.setId(saved.getId());
+        return booking;
+    }
+
+    @Override
+    protected boolean remove(long id) {
+        return database.deleteBooking(id);
+    }
+
+    private Stream<BookingRow> findBookerRows(long bookerId) {
+        return resolve(database.findBookingsByBooker(bookerId).descendingSet().stream());
+    }
+
+    private Stream<BookingRow> findOwnerRows(long ownerId) {
+        return resolve(database.findItemIdsByOwner(ownerId).stream()
+                .flatMap(itemId -> database.findBookingsByItem(itemId).stream())
+                .sorted(MemoryDatabase.BY_START.reversed()));
+    }
+
+    private Stream<BookingRow> findItemRows(long itemId) {
+        return resolve(database.findBookingsByItem(itemId).stream());
+    }
+
+    private Stream<BookingRow> findItemsRows(Collection<Long> itemIds) {
+        return itemIds.stream()
+                .distinct()
+                .flatMap(this::findItemRows);
+    }
+
+    // index entries keep their position while only the status changes, the current row is taken from the table
+    private Stream<BookingRow> resolve(Stream<BookingRow> indexed) {
+        return indexed.map(row -> database.bookings().get(row.getId()))
+                .filter(Objects::nonNull);
+    }
+
+    private boolean isOwner(long itemId, long ownerId) {
+        return Optional.ofNullable(database.items().get(itemId))
+                .filter(item -> item.getOwnerId() == ownerId)
+                .isPresent();
+    }
+
+    private Long findOwnerId(long itemId) {
+        ItemRow item = database.items().get(itemId);
+        return item == null ? null : item.getOwnerId();
+    }
+
+    private BookingStateCounts countStates(Stream<BookingRow> rows, LocalDateTime now) {
+        StateCounts counts = new StateCounts();
+        rows.forEach(row -> counts.add(row, now));
+        return counts;
+    }
+
+    @Value
+    private static class Period implements BookingPeriod {
+        Long id;
+        Long itemId;
+        LocalDateTime start;
+        LocalDateTime end;
+
+        private static Period of(BookingRow row) {
+            return new Period(row.getId(), row.getItemId(), row.getStart(), row.getEnd());
+        }
+    }
+
+    @Value
+    private static class StatusRow implements BookingStatusRow {
+        Long id;
+        Long itemId;
+        Long ownerId;
+        Long bookerId;
+        Status status;
+        LocalDateTime start;
+        LocalDateTime end;
+    }
+
+    private static class StateCounts implements BookingStateCounts {
+        private long allCount;
+        private long currentCount;
+        private long pastCount;
+        private long futureCount;
+        private long waitingCount;
+        private long rejectedCount;
+        private LocalDateTime nextStart;
+        private LocalDateTime nextEnd;
+
+        private void add(BookingRow row, LocalDateTime now) {
+            allCount++;
+            if (row.getStart().isBefore(now) && row.getEnd().isAfter(now)) {
+                currentCount++;
+            }
+            if (row.getEnd().isBefore(now)) {
+                pastCount++;
+            }
+            if (row.getStart().isAfter(now)) {
+                futureCount++;
+                nextStart = earliest(nextStart, row.getStart());
+            }
+            if (row.getEnd().isAfter(now)) {
+                nextEnd = earliest(nextEnd, row.getEnd());
+            }
+            if (row.getStatus() == Status.WAITING) {
+                waitingCount++;
+            }
+            if (row.getStatus() == Status.REJECTED) {
+                rejectedCount++;
+            }
+        }
+
+        private static LocalDateTime earliest(LocalDateTime current, LocalDateTime candidate) {
+            return current == null || candidate.isBefore(current) ? candidate : current;
+        }
+
+        @Override
+        public long getAllCount() {
+            return allCount;
+        }
+
+        @Override
+        public long getCurrentCount() {
+            return currentCount;
+        }
+
+        @Override
+        public long getPastCount() {
+            return pastCount;
+        }
+
+        @Override
+        public long getFutureCount() {
+            return futureCount;
+        }
+
+        @Override
+        public long getWaitingCount() {
+            return waitingCount;
+        }
+
+        @Override
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        @Override
+        public LocalDateTime getNextStart() {
+            return nextStart;
+        }
+
+        @Override
+        public LocalDateTime getNextEnd() {
+            return nextEnd;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.practicum.shareit.memory;
+
+import lombok.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.storage.CommentCount;
+import ru.practicum.shareit.item.storage.CommentStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Repository
+@Primary
+@Profile("memory")
+public class InMemoryCommentStorage extends InMemoryStorage<Comment, CommentRow> implements CommentStorage {
+    public InMemoryCommentStorage(MemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public boolean existsByItem_IdAndAuthor_Id(Long itemId, Long userId) {
+        return resolve(database.findCommentIdsByItem(itemId)).anyMatch(row -> row.getAuthorId() == userId);
+    }
+
+    @Override
+    public List<Comment> findByItem_IdOrderByIdDesc(Long itemId, Pageable pageable) {
+        return toEntities(paged(resolve(database.findCommentIdsByItem(itemId).descendingSet()), pageable));
+    }
+
+    @Override
+    public List<Comment> findByItem_IdAndIdGreaterThanOrderByIdAsc(Long itemId, Long afterId, Pageable pageable) {
+        return toEntities(paged(resolve(database.findCommentIdsByItem(itemId).tailSet(afterId, false)), pageable));
+    }
+
+    // comments are not indexed by author, only the deletion of a user looks them up this way
+    @Override
+    public List<Comment> findByAuthor_IdOrderByIdAsc(Long authorId, Pageable pageable) {
+        return toEntities(paged(database.comments().rows().stream()
+                .filter(row -> row.getAuthorId() == authorId)
+                .sorted(comparator("id")), pageable));
+    }
+
+    @Override
+    public long countByItem_Id(Long itemId) {
+        return database.findCommentIdsByItem(itemId).size();
+    }
+
+    @Override
+    public List<CommentCount> countByItemIds(List<Long> itemIds) {
+        return itemIds.stream()
+                .distinct()
+                .map(itemId -> new Count(itemId, database.findCommentIdsByItem(itemId).size()))
+                .filter(count -> count.getTotal() > 0)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Comment> findLatestByItemIds(List<Long> itemIds, int limit) {
+        return toEntities(itemIds.stream()
+                .distinct()
+                .sorted()
+                .flatMap(itemId -> resolve(database.findCommentIdsByItem(itemId).descendingSet()).limit(limit)));
+    }
+
+    // only the purge worker locks comments to delete them, and it runs in one thread of the single instance
+    @Override
+    public List<Comment> lockAllByIds(Collection<Long> ids) {
+        return toEntities(ids.stream()
+                .distinct()
+                .sorted()
+                .map(this::findRow)
+                .flatMap(Optional::stream));
+    }
+
+    @Override
+    protected MemoryTable<CommentRow> table() {
+        return database.comments();
+    }
+
+    @Override
+    protected Comment toEntity(CommentRow row) {
+        return new Comment(row.getId(), row.getText(), toItem(row.getItemId()), toUser(row.getAuthorId()),
+                row.getCreated());
+    }
+
+    @Override
+    protected Long getId(Comment comment) {
+        return comment.getId();
+    }
+
+    @Override
+    protected Comment store(Comment comment) {
+        CommentRow saved = database.saveComment(CommentRow.builder()
+                .id(comment.getId() == null ? 0 : comment.getId())
+                .text(comment.getText())
+                .itemId(comment.getItem().getId())
+                .authorId(comment.getAuthor().getId())
+                .created(comment.getCreated())
+                .build());
+        comment.setId(saved.getId());
+        return comment;
+    }
+
+    @Override
+    protected boolean remove(long id) {
+        return database.deleteComment(id);
+    }
+
+    private Stream<CommentRow> resolve(Collection<Long> commentIds) {
+        return commentIds.stream()
+                .map(database.comments()::get)
+                .filter(Objects::nonNull);
+    }
+
+    @Value
+    private static class Count implements CommentCount {
+        Long itemId;
+        long total;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.shareit.memory;
+
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The fluent query of a query by example over the rows of a table. Results are the entities themselves, so only
+ * result types the entity is an instance of are supported, and the projected properties are ignored as every
+ * property of an entity is loaded anyway.
+ */
+final class InMemoryFluentQuery<S> implements FluentQuery.FetchableFluentQuery<S> {
+    private final Function<Sort, Stream<?>> query;
+    private final Class<S> resultType;
+    private final Sort sort;
+
+    InMemoryFluentQuery(Function<Sort, Stream<?>> query, Class<S> resultType, Sort sort) {
+        this.query = query;
+        this.resultType = resultType;
+        this.sort = sort;
+    }
+
+    @Override
+    public FetchableFluentQuery<S> sortBy(Sort sort) {
+        return new InMemoryFluentQuery<>(query, resultType, this.sort.and(sort));
+    }
+
+    @Override
+    public <R> FetchableFluentQuery<R> as(Class<R> resultType) {
+        return new InMemoryFluentQuery<>(query, resultType, sort);
+    }
+
+    @Override
+    public FetchableFluentQuery<S> project(Collection<String> properties) {
+        return this;
+    }
+
+    @Override
+    public S oneValue() {
+        List<S> results = stream().limit(2).collect(Collectors.toList());
+        if (results.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1);
+        }
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    @Override
+    public S firstValue() {
+        return stream().findFirst().orElse(null);
+    }
+
+    @Override
+    public List<S> all() {
+        return stream().collect(Collectors.toList());
+    }
+
+    @Override
+    public Page<S> page(Pageable pageable) {
+        List<S> results = query.apply(sort.and(pageable.getSort())).map(this::toResult).collect(Collectors.toList());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(results, pageable, results.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), results.size());
+        int to = Math.min(from + pageable.getPageSize(), results.size());
+        return new PageImpl<>(results.subList(from, to), pageable, results.size());
+    }
+
+    @Override
+    public Stream<S> stream() {
+        return query.apply(sort).map(this::toResult);
+    }
+
+    @Override
+    public long count() {
+        return query.apply(Sort.unsorted()).count();
+    }
+
+    @Override
+    public boolean exists() {
+        return query.apply(Sort.unsorted()).findAny().isPresent();
+    }
+
+    private S toResult(Object entity) {
+        if (!resultType.isInstance(entity)) {
+            throw new UnsupportedOperationException("Projections to " + resultType.getSimpleName() +
+                    " are not supported by the in-memory storage");
+        }
+        return resultType.cast(entity);
+    }
+}
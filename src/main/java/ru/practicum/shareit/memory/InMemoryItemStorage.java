@@ -0,0 +1,158 @@
+package ru.practicum.shareit.memory;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@Repository
+@Primary
+@Profile("memory")
+public class InMemoryItemStorage extends InMemoryStorage<Item, ItemRow> implements ItemStorage {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] itemLocks = IntStream.range(0, LOCK_STRIPES)
+            .mapToObj(i -> new ReentrantLock())
+            .toArray(Lock[]::new);
+
+    public InMemoryItemStorage(MemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public List<Item> findByUser_IdOrderByIdAsc(Long userId) {
+        return toEntities(findOwnedRows(userId));
+    }
+
+    @Override
+    public List<Item> findByUser_IdOrderByIdAsc(Long userId, Pageable pageable) {
+        return toEntities(paged(findOwnedRows(userId), pageable));
+    }
+
+    @Override
+    public List<Item> findByUser_IdInOrderByIdAsc(Collection<Long> userIds) {
+        return toEntities(userIds.stream()
+                .distinct()
+                .flatMap(this::findOwnedRows)
+                .sorted(comparator("id")));
+    }
+
+    @Override
+    public List<Item> findByDescriptionContainingAndAvailableTrueOrNameContainingAndAvailableTrueAllIgnoreCase(
+            String descriptionSearch, String nameSearch) {
+        String description = descriptionSearch.toLowerCase(Locale.ROOT);
+        String name = nameSearch.toLowerCase(Locale.ROOT);
+
+        return toEntities(database.items().rows().stream()
+                .filter(ItemRow::isAvailable)
+                .filter(row -> row.getDescription().toLowerCase(Locale.ROOT).contains(description)
+                        || row.getName().toLowerCase(Locale.ROOT).contains(name)));
+    }
+
+    @Override
+    public boolean existsByUser_IdAndId(Long userId, Long itemId) {
+        return findRow(itemId).filter(row -> row.getOwnerId() == userId).isPresent();
+    }
+
+    @Override
+    public List<Item> findByIdGreaterThanAndAvailableTrueOrderByIdAsc(Long id, Pageable pageable) {
+        return toEntities(paged(database.items().rowsAfter(id).stream().filter(ItemRow::isAvailable), pageable));
+    }
+
+    @Override
+    public List<Long> findIds(Long afterId, Pageable pageable) {
+        return paged(database.items().rowsAfter(afterId).stream(), pageable)
+                .map(ItemRow::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Long> findAvailableIds(Long afterId, Pageable pageable) {
+        return paged(database.items().rowsAfter(afterId).stream().filter(ItemRow::isAvailable), pageable)
+                .map(ItemRow::getId)
+                .collect(Collectors.toList());
+    }
+
+    // like a row lock, the item stays locked until the surrounding transaction completes
+    @Override
+    public List<Item> lockAllByIds(Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Items can only be locked inside a transaction");
+        }
+
+        List<Lock> locks = ids.stream()
+                .mapToInt(id -> Math.floorMod(Long.hashCode(id), LOCK_STRIPES))
+                .distinct()
+                .sorted()
+                .mapToObj(stripe -> itemLocks[stripe])
+                .collect(Collectors.toList());
+        locks.forEach(Lock::lock);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                locks.forEach(Lock::unlock);
+            }
+        });
+
+        return toEntities(ids.stream()
+                .distinct()
+                .sorted()
+                .map(this::findRow)
+                .flatMap(Optional::stream));
+    }
+
+    @Override
+    protected MemoryTable<ItemRow> table() {
+        return database.items();
+    }
+
+    @Override
+    protected Item toEntity(ItemRow row) {
+        return new Item(row.getId(), row.getName(), row.getDescription(), row.isAvailable(),
+                toUser(row.getOwnerId()));
+    }
+
+    @Override
+    protected Long getId(Item item) {
+        return item.getId();
+    }
+
+    @Override
+    protected Item store(Item item) {
+        ItemRow saved = database.saveItem(ItemRow.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .description(item.getDescription())
+                .available(item.isAvailable())
+                .ownerId(item.getUser().getId())
+                .build());
+        item.setId(saved.getId());
+        return item;
+    }
+
+    @Override
+    protected boolean remove(long id) {
+        return database.deleteItem(id);
+    }
+
+    private Stream<ItemRow> findOwnedRows(long ownerId) {
+        return database.findItemIdsByOwner(ownerId).stream()
+                .map(database.items()::get)
+                .filter(Objects::nonNull);
+    }
+}
@@ -0,0 +1,262 @@
+package ru.practicum.shareit.memory;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.query.FluentQuery;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The part of JpaRepository that does not depend on the entity type. Every read returns new entities built from
+ * the rows, so changes of a returned entity are only stored by saving it again, like a detached JPA entity.
+ * Queries by example scan the whole table.
+ */
+public abstract class InMemoryStorage<T, R extends MemoryRow> implements JpaRepository<T, Long> {
+    protected final MemoryDatabase database;
+
+    protected InMemoryStorage(MemoryDatabase database) {
+        this.database = database;
+    }
+
+    protected abstract MemoryTable<R> table();
+
+    protected abstract T toEntity(R row);
+
+    protected abstract Long getId(T entity);
+
+    // stores the entity, assigns the id to a new one and returns it
+    protected abstract T store(T entity);
+
+    protected abstract boolean remove(long id);
+
+    protected Comparator<R> comparator(String property) {
+        if ("id".equals(property)) {
+            return Comparator.comparingLong(MemoryRow::getId);
+        }
+        throw new IllegalArgumentException("Unsupported sort property " + property + " of " + table().getName());
+    }
+
+    protected User toUser(long id) {
+        UserRow row = database.users().get(id);
+        return row == null ? new User(id) : new User(row.getId(), row.getName(), row.getEmail(),
+                row.isDeleted());
+    }
+
+    protected Item toItem(long id) {
+        ItemRow row = database.items().get(id);
+        return row == null ? null : new Item(row.getId(), row.getName(), row.getDescription(), row.isAvailable(),
+                toUser(row.getOwnerId()));
+    }
+
+    protected Optional<R> findRow(Long id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(table().get(id));
+    }
+
+    protected List<T> toEntities(Stream<R> rows) {
+        return rows.map(this::toEntity).collect(Collectors.toList());
+    }
+
+    protected Stream<R> sorted(Stream<R> rows, Sort sort) {
+        Comparator<R> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<R> next = comparator(order.getProperty());
+            next = order.isAscending() ? next : next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? rows : rows.sorted(comparator);
+    }
+
+    protected Stream<R> paged(Stream<R> rows, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return sorted(rows, pageable.getSort());
+        }
+        return sorted(rows, pageable.getSort()).skip(pageable.getOffset()).limit(pageable.getPageSize());
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        store(entity);
+        return entity;
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public <S extends T> S saveAndFlush(S entity) {
+        return save(entity);
+    }
+
+    @Override
+    public <S extends T> List<S> saveAllAndFlush(Iterable<S> entities) {
+        return saveAll(entities);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public Optional<T> findById(Long id) {
+        return findRow(id).map(this::toEntity);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return id != null && table().contains(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return toEntities(table().rows().stream().sorted(comparator("id")));
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        return toEntities(sorted(table().rows().stream(), sort));
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        List<T> content = toEntities(paged(table().rows().stream(), pageable));
+        return new PageImpl<>(content, pageable, table().size());
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<Long> ids) {
+        return toEntities(StreamSupport.stream(ids.spliterator(), false)
+                .map(this::findRow)
+                .flatMap(Optional::stream));
+    }
+
+    @Override
+    public long count() {
+        return table().size();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        if (id == null || !remove(id)) {
+            throw new EmptyResultDataAccessException(
+                    String.format("No %s entity with id %s exists", table().getName(), id), 1);
+        }
+    }
+
+    @Override
+    public void delete(T entity) {
+        Long id = getId(entity);
+        if (id != null) {
+            remove(id);
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        table().rows().stream().map(MemoryRow::getId).collect(Collectors.toList()).forEach(this::remove);
+    }
+
+    @Override
+    public void deleteAllInBatch(Iterable<T> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAllByIdInBatch(Iterable<Long> ids) {
+        ids.forEach(id -> remove(Objects.requireNonNull(id)));
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    @Deprecated
+    public T getOne(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    @Deprecated
+    public T getById(Long id) {
+        return getReferenceById(id);
+    }
+
+    @Override
+    public T getReferenceById(Long id) {
+        return findById(id).orElseThrow(() ->
+                new EntityNotFoundException(String.format("Unable to find %s with id %s", table().getName(), id)));
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        return query(example).one();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        return query(example).all();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        return query(example).sortBy(sort).all();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return query(example).page(pageable);
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        return query(example).count();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        return query(example).exists();
+    }
+
+    @Override
+    public <S extends T, Q> Q findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, Q> query) {
+        return query.apply(query(example));
+    }
+
+    private <S extends T> FluentQuery.FetchableFluentQuery<S> query(Example<S> example) {
+        ExampleFilter<S> filter = new ExampleFilter<>(example);
+        return new InMemoryFluentQuery<>(sort -> sorted(table().rows().stream().sorted(comparator("id")), sort)
+                .map(this::toEntity)
+                .filter(filter), example.getProbeType(), Sort.unsorted());
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.shareit.memory;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserStorage;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Repository
+@Primary
+@Profile("memory")
+public class InMemoryUserStorage extends InMemoryStorage<User, UserRow> implements UserStorage {
+    public InMemoryUserStorage(MemoryDatabase database) {
+        super(database);
+    }
+
+    @Override
+    public boolean existsByIdAndDeletedFalse(Long id) {
+        return findRow(id).filter(row -> !row.isDeleted()).isPresent();
+    }
+
+    @Override
+    public List<Long> findIds(Long afterId, Pageable pageable) {
+        return paged(database.users().rowsAfter(afterId).stream().filter(row -> !row.isDeleted()), pageable)
+                .map(UserRow::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected MemoryTable<UserRow> table() {
+        return database.users();
+    }
+
+    @Override
+    protected User toEntity(UserRow row) {
+        return new User(row.getId(), row.getName(), row.getEmail(), row.isDeleted());
+    }
+
+    @Override
+    protected Long getId(User user) {
+        return user.getId();
+    }
+
+    @Override
+    protected User store(User user) {
+        UserRow saved = database.saveUser(UserRow.builder()
+                .id(user.getId() == null ? 0 : user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .deleted(user.isDeleted())
+                .build());
+        user.setId(saved.getId());
+        return user;
+    }
+
+    @Override
+    protected boolean remove(long id) {
+        return database.deleteUser(id);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.memory;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class ItemRow implements MemoryRow {
+    long id;
+    String name;
+    String description;
+    boolean available;
+    long ownerId;
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.memory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * One change in the write-ahead log, a row without value is a deletion.
+ */
+@Value
+@Builder
+@Jacksonized
+public class JournalRecord {
+    String table;
+    long id;
+    JsonNode row;
+}
@@ -0,0 +1,398 @@
+package ru.practicum.shareit.memory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.status.Status;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps all users, items, bookings and comments as immutable rows in memory together with the indexes the storages
+ * query by. Writers are serialized by one lock and every change is appended to the journal before it becomes
+ * visible, readers never lock. Rows found through an index have to be looked up in their table again, as an
+ * index may still hold an older version of the row. Unique and foreign key checks mirror the constraints of
+ * schema.sql.
+ */
+@Component
+@Profile("memory")
+@Slf4j
+public class MemoryDatabase {
+    static final Comparator<BookingRow> BY_START = Comparator.comparing(BookingRow::getStart)
+            .thenComparingLong(BookingRow::getId);
+
+    private final MemoryTable<UserRow> users = new MemoryTable<>("users", UserRow.class);
+    private final MemoryTable<ItemRow> items = new MemoryTable<>("items", ItemRow.class);
+    private final MemoryTable<BookingRow> bookings = new MemoryTable<>("bookings", BookingRow.class);
+    private final MemoryTable<CommentRow> comments = new MemoryTable<>("comments", CommentRow.class);
+    private final Map<String, Long> userIdsByEmail = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Long>> itemIdsByOwner = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<BookingRow>> bookingsByItem = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<BookingRow>> bookingsByBooker = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableSet<Long>> commentIdsByItem = new ConcurrentHashMap<>();
+    private final Lock writeLock = new ReentrantLock();
+    private final ObjectMapper objectMapper;
+    private final MemoryJournal journal;
+    private long changesSinceSnapshot;
+
+    public MemoryDatabase(ObjectMapper objectMapper,
+                          @Value("${shareit.memory.data-dir}") Path dataDirectory,
+                          @Value("${shareit.memory.fsync}") boolean fsync) {
+        this.objectMapper = objectMapper;
+        this.journal = new MemoryJournal(dataDirectory, objectMapper, fsync);
+    }
+
+    public MemoryTable<UserRow> users() {
+        return users;
+    }
+
+    public MemoryTable<ItemRow> items() {
+        return items;
+    }
+
+    public MemoryTable<BookingRow> bookings() {
+        return bookings;
+    }
+
+    public MemoryTable<CommentRow> comments() {
+        return comments;
+    }
+
+    public NavigableSet<Long> findItemIdsByOwner(long ownerId) {
+        return view(itemIdsByOwner.get(ownerId));
+    }
+
+    public NavigableSet<BookingRow> findBookingsByItem(long itemId) {
+        return view(bookingsByItem.get(itemId));
+    }
+
+    public NavigableSet<BookingRow> findBookingsByBooker(long bookerId) {
+        return view(bookingsByBooker.get(bookerId));
+    }
+
+    public NavigableSet<Long> findCommentIdsByItem(long itemId) {
+        return view(commentIdsByItem.get(itemId));
+    }
+
+    public UserRow saveUser(UserRow row) {
+        writeLock.lock();
+        try {
+            UserRow saved = row.getId() == 0 ? row.toBuilder().id(users.nextId()).build() : row;
+            Long emailOwner = userIdsByEmail.get(saved.getEmail());
+            if (emailOwner != null && emailOwner != saved.getId()) {
+                throw new DataIntegrityViolationException("Unique constraint violation: users.email");
+            }
+
+            return write(users, saved);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public ItemRow saveItem(ItemRow row) {
+        writeLock.lock();
+        try {
+            checkReference(users, row.getOwnerId(), "items.user_id");
+            return write(items, row.getId() == 0 ? row.toBuilder().id(items.nextId()).build() : row);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public BookingRow saveBooking(BookingRow row) {
+        writeLock.lock();
+        try {
+            checkReference(items, row.getItemId(), "bookings.item_id");
+            checkReference(users, row.getBookerId(), "bookings.user_id");
+            return write(bookings, row.getId() == 0 ? row.toBuilder().id(bookings.nextId()).build() : row);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public CommentRow saveComment(CommentRow row) {
+        writeLock.lock();
+        try {
+            checkReference(items, row.getItemId(), "comments.item_id");
+            checkReference(users, row.getAuthorId(), "comments.user_id");
+            return write(comments, row.getId() == 0 ? row.toBuilder().id(comments.nextId()).build() : row);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int updateBookingStatuses(Collection<Long> ids, Status expected, Status status) {
+        writeLock.lock();
+        try {
+            int updated = 0;
+            for (Long id : ids) {
+                BookingRow row = bookings.get(id);
+                if (row != null && row.getStatus() == expected) {
+                    write(bookings, row.toBuilder().status(status).build());
+                    updated++;
+                }
+            }
+            return updated;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean deleteUser(long id) {
+        writeLock.lock();
+        try {
+            if (!findItemIdsByOwner(id).isEmpty() || !findBookingsByBooker(id).isEmpty()
+                    || comments.rows().stream().anyMatch(comment -> comment.getAuthorId() == id)) {
+                throw new DataIntegrityViolationException("Referential integrity constraint violation: users.id");
+            }
+
+            return delete(users, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean deleteItem(long id) {
+        writeLock.lock();
+        try {
+            if (!findBookingsByItem(id).isEmpty() || !findCommentIdsByItem(id).isEmpty()) {
+                throw new DataIntegrityViolationException("Referential integrity constraint violation: items.id");
+            }
+
+            return delete(items, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean deleteBooking(long id) {
+        writeLock.lock();
+        try {
+            return delete(bookings, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean deleteComment(long id) {
+        writeLock.lock();
+        try {
+            return delete(comments, id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PostConstruct
+    public void recover() {
+        journal.recover(this::loadSnapshot, this::replay);
+        log.info("Recovered in-memory storage with {} users, {} items, {} bookings and {} comments", users.size(),
+                items.size(), bookings.size(), comments.size());
+    }
+
+    // rows are immutable, so the copy taken under the lock stays consistent while it is being written
+    @Scheduled(fixedDelayString = "${shareit.memory.snapshot-interval}",
+            initialDelayString = "${shareit.memory.snapshot-interval}")
+    public void snapshot() {
+        MemorySnapshot snapshot;
+        long changes;
+        writeLock.lock();
+        try {
+            changes = changesSinceSnapshot;
+            if (changes == 0) {
+                return;
+            }
+
+            snapshot = MemorySnapshot.builder()
+                    .nextSegment(journal.startSegment())
+                    .users(new ArrayList<>(users.rows()))
+                    .items(new ArrayList<>(items.rows()))
+                    .bookings(new ArrayList<>(bookings.rows()))
+                    .comments(new ArrayList<>(comments.rows()))
+                    .build();
+            changesSinceSnapshot = 0;
+        } finally {
+            writeLock.unlock();
+        }
+
+        journal.writeSnapshot(snapshot);
+        log.info("Wrote snapshot of in-memory storage after {} changes", changes);
+    }
+
+    @PreDestroy
+    public void close() {
+        snapshot();
+        writeLock.lock();
+        try {
+            journal.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private <R extends MemoryRow> R write(MemoryTable<R> table, R row) {
+        journal.append(JournalRecord.builder()
+                .table(table.getName())
+                .id(row.getId())
+                .row(objectMapper.valueToTree(row))
+                .build());
+        put(table, row);
+        changesSinceSnapshot++;
+        return row;
+    }
+
+    private <R extends MemoryRow> boolean delete(MemoryTable<R> table, long id) {
+        if (!table.contains(id)) {
+            return false;
+        }
+
+        journal.append(JournalRecord.builder()
+                .table(table.getName())
+                .id(id)
+                .build());
+        remove(table, id);
+        changesSinceSnapshot++;
+        return true;
+    }
+
+    private void checkReference(MemoryTable<?> table, long id, String constraint) {
+        if (!table.contains(id)) {
+            throw new DataIntegrityViolationException("Referential integrity constraint violation: " + constraint);
+        }
+    }
+
+    private void loadSnapshot(MemorySnapshot snapshot) {
+        snapshot.getUsers().forEach(row -> put(users, row));
+        snapshot.getItems().forEach(row -> put(items, row));
+        snapshot.getBookings().forEach(row -> put(bookings, row));
+        snapshot.getComments().forEach(row -> put(comments, row));
+    }
+
+    private void replay(JournalRecord record) {
+        MemoryTable<?> table = findTable(record.getTable());
+        if (record.getRow() == null || record.getRow().isNull()) {
+            remove(table, record.getId());
+        } else {
+            replayPut(table, record);
+        }
+    }
+
+    private <R extends MemoryRow> void replayPut(MemoryTable<R> table, JournalRecord record) {
+        try {
+            put(table, objectMapper.treeToValue(record.getRow(), table.getRowType()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot replay journal record of " + record.getTable(), e);
+        }
+    }
+
+    private MemoryTable<?> findTable(String name) {
+        switch (name) {
+            case "users":
+                return users;
+            case "items":
+                return items;
+            case "bookings":
+                return bookings;
+            case "comments":
+                return comments;
+            default:
+                throw new IllegalStateException("Unknown in-memory table " + name);
+        }
+    }
+
+    // a row keeps its index entries while the indexed columns stay the same, readers resolve entries through the
+    // table and get the latest version of the row
+    private <R extends MemoryRow> void put(MemoryTable<R> table, R row) {
+        R previous = table.put(row);
+        if (previous == null) {
+            index(row);
+        } else if (!Objects.equals(indexKey(previous), indexKey(row))) {
+            unindex(previous);
+            index(row);
+        }
+    }
+
+    private void remove(MemoryTable<?> table, long id) {
+        MemoryRow previous = table.remove(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    private void index(MemoryRow row) {
+        if (row instanceof UserRow) {
+            userIdsByEmail.put(((UserRow) row).getEmail(), row.getId());
+        } else if (row instanceof ItemRow) {
+            addTo(itemIdsByOwner, ((ItemRow) row).getOwnerId(), row.getId());
+        } else if (row instanceof BookingRow) {
+            BookingRow booking = (BookingRow) row;
+            addTo(bookingsByItem, booking.getItemId(), booking);
+            addTo(bookingsByBooker, booking.getBookerId(), booking);
+        } else if (row instanceof CommentRow) {
+            addTo(commentIdsByItem, ((CommentRow) row).getItemId(), row.getId());
+        }
+    }
+
+    private void unindex(MemoryRow row) {
+        if (row instanceof UserRow) {
+            userIdsByEmail.remove(((UserRow) row).getEmail(), row.getId());
+        } else if (row instanceof ItemRow) {
+            removeFrom(itemIdsByOwner, ((ItemRow) row).getOwnerId(), row.getId());
+        } else if (row instanceof BookingRow) {
+            BookingRow booking = (BookingRow) row;
+            removeFrom(bookingsByItem, booking.getItemId(), booking);
+            removeFrom(bookingsByBooker, booking.getBookerId(), booking);
+        } else if (row instanceof CommentRow) {
+            removeFrom(commentIdsByItem, ((CommentRow) row).getItemId(), row.getId());
+        }
+    }
+
+    private static Object indexKey(MemoryRow row) {
+        if (row instanceof UserRow) {
+            return ((UserRow) row).getEmail();
+        } else if (row instanceof ItemRow) {
+            return ((ItemRow) row).getOwnerId();
+        } else if (row instanceof BookingRow) {
+            BookingRow booking = (BookingRow) row;
+            return List.of(booking.getItemId(), booking.getBookerId(), booking.getStart());
+        }
+        return ((CommentRow) row).getItemId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void addTo(Map<Long, NavigableSet<V>> index, long key, V value) {
+        index.computeIfAbsent(key, ignored -> value instanceof BookingRow
+                ? (NavigableSet<V>) new ConcurrentSkipListSet<>(BY_START)
+                : new ConcurrentSkipListSet<>()).add(value);
+    }
+
+    private static <V> void removeFrom(Map<Long, NavigableSet<V>> index, long key, V value) {
+        NavigableSet<V> values = index.get(key);
+        if (values != null) {
+            values.remove(value);
+        }
+    }
+
+    private static <V> NavigableSet<V> view(NavigableSet<V> values) {
+        return values == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(values);
+    }
+}
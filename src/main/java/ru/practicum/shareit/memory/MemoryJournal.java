@@ -0,0 +1,173 @@
+package ru.practicum.shareit.memory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of row changes split into numbered segments, plus a snapshot that names the first segment
+ * it does not contain. A snapshot is written to a temporary file and moved into place, so after a crash either
+ * the old or the new snapshot is complete and the segments from its number on restore everything after it.
+ * Not thread-safe, appends and segment switches are serialized by the caller.
+ */
+@Slf4j
+public class MemoryJournal {
+    private static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("journal-(\\d+)\\.log");
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final boolean fsync;
+    private long segment;
+    private FileChannel channel;
+
+    public MemoryJournal(Path directory, ObjectMapper objectMapper, boolean fsync) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+    }
+
+    public void recover(Consumer<MemorySnapshot> snapshotLoader, Consumer<JournalRecord> recordReplayer) {
+        try {
+            Files.createDirectories(directory);
+
+            long firstSegment = 0;
+            Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+            if (Files.exists(snapshotFile)) {
+                MemorySnapshot snapshot = objectMapper.readValue(snapshotFile.toFile(), MemorySnapshot.class);
+                snapshotLoader.accept(snapshot);
+                firstSegment = snapshot.getNextSegment();
+            }
+
+            long lastSegment = firstSegment - 1;
+            for (long segmentNumber : listSegments()) {
+                if (segmentNumber >= firstSegment) {
+                    replaySegment(segmentNumber, recordReplayer);
+                }
+                lastSegment = Math.max(lastSegment, segmentNumber);
+            }
+
+            // a new segment is started, so records are never appended after a line torn by a crash
+            openSegment(lastSegment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover in-memory storage from " + directory, e);
+        }
+    }
+
+    public void append(JournalRecord record) {
+        try {
+            byte[] line = (objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to journal segment " + segment, e);
+        }
+    }
+
+    public long startSegment() {
+        try {
+            openSegment(segment + 1);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start journal segment " + (segment + 1), e);
+        }
+    }
+
+    public void writeSnapshot(MemorySnapshot snapshot) {
+        try {
+            Path temporaryFile = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel snapshotChannel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                snapshotChannel.write(ByteBuffer.wrap(objectMapper.writeValueAsBytes(snapshot)));
+                snapshotChannel.force(true);
+            }
+            Files.move(temporaryFile, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+
+            for (long segmentNumber : listSegments()) {
+                if (segmentNumber < snapshot.getNextSegment()) {
+                    Files.deleteIfExists(segmentFile(segmentNumber));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot of in-memory storage", e);
+        }
+    }
+
+    public void close() {
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Cannot close journal segment {}: {}", segment, e.getMessage());
+        }
+    }
+
+    private void openSegment(long segmentNumber) throws IOException {
+        FileChannel newChannel = FileChannel.open(segmentFile(segmentNumber), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        close();
+        channel = newChannel;
+        segment = segmentNumber;
+    }
+
+    private void replaySegment(long segmentNumber, Consumer<JournalRecord> recordReplayer) throws IOException {
+        long replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segmentFile(segmentNumber), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    recordReplayer.accept(objectMapper.readValue(line, JournalRecord.class));
+                    replayed++;
+                } catch (JsonProcessingException e) {
+                    log.warn("Stopped replaying journal segment {} at a damaged record after {} records",
+                            segmentNumber, replayed);
+                    return;
+                }
+            }
+        }
+        log.info("Replayed {} records of journal segment {}", replayed, segmentNumber);
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> SEGMENT_FILE.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentFile(long segmentNumber) {
+        return directory.resolve("journal-" + segmentNumber + ".log");
+    }
+}
@@ -0,0 +1,5 @@
+package ru.practicum.shareit.memory;
+
+public interface MemoryRow {
+    long getId();
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.memory;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.util.List;
+
+@Value
+@Builder
+@Jacksonized
+public class MemorySnapshot {
+    long nextSegment;
+    List<UserRow> users;
+    List<ItemRow> items;
+    List<BookingRow> bookings;
+    List<CommentRow> comments;
+}
@@ -0,0 +1,66 @@
+package ru.practicum.shareit.memory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MemoryTable<R extends MemoryRow> {
+    private final String name;
+    private final Class<R> rowType;
+    private final NavigableMap<Long, R> rows = new ConcurrentSkipListMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    MemoryTable(String name, Class<R> rowType) {
+        this.name = name;
+        this.rowType = rowType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<R> getRowType() {
+        return rowType;
+    }
+
+    public R get(long id) {
+        return rows.get(id);
+    }
+
+    public boolean contains(long id) {
+        return rows.containsKey(id);
+    }
+
+    // rows in the order of ids
+    public Collection<R> rows() {
+        return Collections.unmodifiableCollection(rows.values());
+    }
+
+    public Collection<R> rowsAfter(long afterId) {
+        return Collections.unmodifiableCollection(rows.tailMap(afterId, false).values());
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    long nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    R put(R row) {
+        lastId.accumulateAndGet(row.getId(), Math::max);
+        return rows.put(row.getId(), row);
+    }
+
+    R remove(long id) {
+        return rows.remove(id);
+    }
+
+    void clear() {
+        rows.clear();
+        lastId.set(0);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.memory;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
+public class UserRow implements MemoryRow {
+    long id;
+    String name;
+    String email;
+    boolean deleted;
+}
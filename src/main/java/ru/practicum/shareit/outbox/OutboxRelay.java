@@ -0,0 +1,99 @@
+package ru.practicum.shareit.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.sink.OutboxEventSink;
+import ru.practicum.shareit.outbox.storage.OutboxStorage;
+import ru.practicum.shareit.shard.ShardRouter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the outbox in id order and hands every batch to all sinks. A batch is marked as published only after
+ * every sink accepted it, a failed batch is retried on the next run. Several instances may relay the same
+ * batch at the same time, which is still within the at least once contract of the sinks.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    private final OutboxStorage outboxStorage;
+    private final List<OutboxEventSink> sinks;
+    private final ShardRouter shardRouter;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter delivered;
+    private final Counter failures;
+
+    public OutboxRelay(OutboxStorage outboxStorage, List<OutboxEventSink> sinks, ShardRouter shardRouter,
+                       @Value("${shareit.outbox.batch-size}") int batchSize,
+                       @Value("${shareit.outbox.retention}") Duration retention,
+                       MeterRegistry meterRegistry) {
+        this.outboxStorage = outboxStorage;
+        this.sinks = sinks;
+        this.shardRouter = shardRouter;
+        this.batchSize = batchSize;
+        this.retention = retention;
+
+        delivered = Counter.builder("shareit.outbox.delivered")
+                .description("Outbox events delivered to all sinks")
+                .register(meterRegistry);
+        failures = Counter.builder("shareit.outbox.failures")
+                .description("Outbox batches that a sink failed to accept")
+                .register(meterRegistry);
+    }
+
+    // every shard keeps the events of its own transactions
+    @Scheduled(fixedDelayString = "${shareit.outbox.relay-interval}")
+    public void relay() {
+        shardRouter.forEachShard(this::relayShard);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.outbox.cleanup-interval}")
+    public void deletePublished() {
+        int deleted = shardRouter.onEachShard(shard ->
+                        outboxStorage.deletePublishedBefore(LocalDateTime.now().minus(retention))).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        if (deleted > 0) {
+            log.info("Deleted {} published outbox events older than {}", deleted, retention);
+        }
+    }
+
+    private void relayShard() {
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxStorage.findByPublishedIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty() || !deliver(batch)) {
+                return;
+            }
+
+            List<Long> ids = batch.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+            outboxStorage.markPublished(ids, LocalDateTime.now());
+            delivered.increment(batch.size());
+            log.debug("Relayed {} outbox events up to id = {}", batch.size(), ids.get(ids.size() - 1));
+        } while (batch.size() == batchSize);
+    }
+
+    private boolean deliver(List<OutboxEvent> batch) {
+        for (OutboxEventSink sink : sinks) {
+            try {
+                sink.deliver(batch);
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Outbox sink {} failed to accept {} events starting with id = {}, will retry: {}",
+                        sink.getName(), batch.size(), batch.get(0).getId(), e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.shareit.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.item.event.CommentDeletedEvent;
+import ru.practicum.shareit.item.event.CommentPostedEvent;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.storage.OutboxStorage;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stores domain events in the outbox table. The listeners run synchronously inside the transaction that
+ * publishes the event, so an event is stored if and only if the change it describes is committed.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxWriter {
+    public static final String BOOKING_AGGREGATE = "BOOKING";
+    public static final String COMMENT_AGGREGATE = "COMMENT";
+
+    private final OutboxStorage outboxStorage;
+    private final ObjectMapper objectMapper;
+
+    @EventListener
+    public void onBookingChanged(BookingChangedEvent event) {
+        write(BOOKING_AGGREGATE, event.getBookingId(), "BOOKING_" + event.getStatus(), event);
+    }
+
+    @EventListener
+    public void onCommentPosted(CommentPostedEvent event) {
+        write(COMMENT_AGGREGATE, event.getCommentId(), "COMMENT_POSTED", event);
+    }
+
+    @EventListener
+    public void onBookingDeleted(BookingDeletedEvent event) {
+        write(BOOKING_AGGREGATE, event.getBookingId(), "BOOKING_DELETED", event);
+    }
+
+    @EventListener
+    public void onCommentDeleted(CommentDeletedEvent event) {
+        write(COMMENT_AGGREGATE, event.getCommentId(), "COMMENT_DELETED", event);
+    }
+
+    private void write(String aggregateType, long aggregateId, String eventType, Object payload) {
+        String serializedPayload;
+        try {
+            serializedPayload = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize outbox event " + eventType, e);
+        }
+
+        OutboxEvent event = outboxStorage.save(new OutboxEvent(aggregateType, aggregateId, eventType,
+                serializedPayload, LocalDateTime.now()));
+        log.debug("Stored outbox event {} with id = {} for {} with id = {}", eventType, event.getId(), aggregateType,
+                aggregateId);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.outbox.sink;
+
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Consumer of committed domain events. Delivery is at least once: a batch is delivered again to every sink
+ * when any sink fails, so sinks have to tolerate events they have already seen, e.g. by their id.
+ */
+public interface OutboxEventSink {
+    String getName();
+
+    void deliver(List<OutboxEvent> events);
+}
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.outbox.storage;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxStorage extends JpaRepository<OutboxEvent, Long> {
+    List<OutboxEvent> findByPublishedIsNullOrderByIdAsc(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent e set e.published = :published where e.id in :ids")
+    int markPublished(@Param("ids") List<Long> ids, @Param("published") LocalDateTime published);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent e where e.published < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
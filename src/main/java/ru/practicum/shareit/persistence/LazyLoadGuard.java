@@ -0,0 +1,80 @@
+package ru.practicum.shareit.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Watches for entity proxies and collections that Hibernate initialises on first access, which means the query
+ * that read the owning entity did not fetch the association. Every association a request uses has to be fetched
+ * by the repository method, so in fail mode such a load throws, and in sample mode it is counted per entity and a
+ * share of the loads is logged with the stack trace of the code that touched the proxy.
+ */
+@Component
+@Slf4j
+public class LazyLoadGuard implements LoadEventListener, InitializeCollectionEventListener {
+    private final LazyLoadGuardMode mode;
+    private final double sampleRate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public LazyLoadGuard(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry,
+                         @Value("${shareit.lazy-load-guard.mode}") LazyLoadGuardMode mode,
+                         @Value("${shareit.lazy-load-guard.sample-rate}") double sampleRate) {
+        this.mode = mode;
+        this.sampleRate = sampleRate;
+        this.meterRegistry = meterRegistry;
+
+        if (mode != LazyLoadGuardMode.OFF) {
+            EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry()
+                    .getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.LOAD, this);
+            registry.appendListeners(EventType.INIT_COLLECTION, this);
+            log.info("Lazy load guard registered in {} mode", mode);
+        }
+    }
+
+    // an immediate load is what a proxy asks for on first access, queries and finds use the other load types
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) {
+        if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+            report(event.getEntityClassName(), String.valueOf(event.getEntityId()));
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) {
+        report(event.getCollection().getRole(), String.valueOf(event.getAffectedOwnerIdOrNull()));
+    }
+
+    private void report(String entity, String id) {
+        counters.computeIfAbsent(entity, name -> Counter.builder("shareit.lazy-loads")
+                        .description("Associations initialised on first access instead of being fetched by the query")
+                        .tag("entity", name)
+                        .register(meterRegistry))
+                .increment();
+
+        String message = String.format("Unplanned lazy load of %s with id = %s", entity, id);
+        if (mode == LazyLoadGuardMode.FAIL) {
+            throw new UnplannedLazyLoadException(message);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.warn(message, new UnplannedLazyLoadException(message));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.persistence;
+
+public enum LazyLoadGuardMode {
+    OFF,
+    SAMPLE,
+    FAIL
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.persistence;
+
+public class UnplannedLazyLoadException extends IllegalStateException {
+    public UnplannedLazyLoadException(String message) {
+        super(message);
+    }
+}
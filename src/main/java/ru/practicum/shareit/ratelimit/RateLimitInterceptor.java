@@ -0,0 +1,84 @@
+package ru.practicum.shareit.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ru.practicum.shareit.exception.TooManyRequestsException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static ru.practicum.shareit.utils.Constants.TOO_MANY_REQUESTS_MESSAGE;
+
+/**
+ * Charges every request the cost of its handler from the token buckets of its client address and of its user, and
+ * rejects it with 429 when one of them has too few tokens left.
+ */
+@Component
+@Slf4j
+public class RateLimitInterceptor implements HandlerInterceptor {
+    private static final String HEADER_WITH_USER_ID_NAME = "X-Sharer-User-Id";
+    private static final int MAX_USER_ID_LENGTH = 19;
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final Counter rejected;
+    private final Map<Method, Integer> costs = new ConcurrentHashMap<>();
+
+    public RateLimitInterceptor(TokenBucketRateLimiter rateLimiter, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.rejected = Counter.builder("shareit.rate-limit.rejected")
+                .description("Requests rejected because the token bucket of their client was empty")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // streaming responses dispatch the request again when they complete, it was charged on the first dispatch
+        if (!(handler instanceof HandlerMethod) || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        int cost = costs.computeIfAbsent(((HandlerMethod) handler).getMethod(), RateLimitInterceptor::findCost);
+        String userId = userIdOf(request);
+        long waitNanos = rateLimiter.tryAcquire(userId, request.getRemoteAddr(), cost);
+        if (waitNanos > 0) {
+            long retryAfter = TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1;
+            rejected.increment();
+            log.warn("Rejected request {} {} of user with id = {} from {}, retry in {} seconds", request.getMethod(),
+                    request.getRequestURI(), userId, request.getRemoteAddr(), retryAfter);
+            throw new TooManyRequestsException(String.format(TOO_MANY_REQUESTS_MESSAGE, retryAfter), retryAfter);
+        }
+        return true;
+    }
+
+    private static int findCost(Method method) {
+        RequestCost cost = method.getAnnotation(RequestCost.class);
+        return cost == null ? 1 : cost.value();
+    }
+
+    // a malformed header is rejected by the handler anyway, so it is only charged to the address
+    private static String userIdOf(HttpServletRequest request) {
+        String userId = request.getHeader(HEADER_WITH_USER_ID_NAME);
+        return userId != null && isUserId(userId) ? userId : null;
+    }
+
+    private static boolean isUserId(String value) {
+        if (value.isEmpty() || value.length() > MAX_USER_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
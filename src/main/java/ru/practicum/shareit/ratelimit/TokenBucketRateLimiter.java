@@ -0,0 +1,138 @@
+package ru.practicum.shareit.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets of the API clients. A bucket holds up to capacity tokens and gets refill-per-second tokens back,
+ * and a request takes its cost in tokens or is rejected without taking any. The state of a bucket is the single
+ * time at which it is full again, so taking tokens is one compare-and-set and needs no lock. A full bucket is the
+ * same as a missing one, so full buckets are evicted periodically; a request racing with the eviction of its bucket
+ * may be counted against the removed one, which at worst lets that client one request past its limit.
+ * <p>
+ * Every request is charged to the bucket of its remote address, which is larger as several users may share one,
+ * and then to the bucket of its user. The user id header is not authenticated, so a client sending a new id with
+ * every request gets a new user bucket each time but is still held to the limit of its address.
+ */
+@Component
+@Slf4j
+public class TokenBucketRateLimiter {
+    private final Buckets users;
+    private final Buckets addresses;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public TokenBucketRateLimiter(MeterRegistry meterRegistry,
+                                  @Value("${shareit.rate-limit.capacity}") long capacity,
+                                  @Value("${shareit.rate-limit.refill-per-second}") long refillPerSecond,
+                                  @Value("${shareit.rate-limit.address-capacity}") long addressCapacity,
+                                  @Value("${shareit.rate-limit.address-refill-per-second}")
+                                  long addressRefillPerSecond) {
+        this(meterRegistry, capacity, refillPerSecond, addressCapacity, addressRefillPerSecond, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(MeterRegistry meterRegistry, long capacity, long refillPerSecond, long addressCapacity,
+                           long addressRefillPerSecond, LongSupplier nanoClock) {
+        this.users = new Buckets(capacity, refillPerSecond);
+        this.addresses = new Buckets(addressCapacity, addressRefillPerSecond);
+        this.nanoClock = nanoClock;
+
+        Gauge.builder("shareit.rate-limit.buckets", users.fullAt, Map::size)
+                .description("Clients whose token bucket is not full")
+                .tag("client", "user")
+                .register(meterRegistry);
+        Gauge.builder("shareit.rate-limit.buckets", addresses.fullAt, Map::size)
+                .description("Clients whose token bucket is not full")
+                .tag("client", "address")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes cost tokens from the bucket of the address and then from the bucket of the user, if there is one.
+     *
+     * @return zero when the tokens were taken, otherwise the nanoseconds until the bucket has enough of them
+     */
+    public long tryAcquire(String userId, String address, int cost) {
+        long now = nanoClock.getAsLong();
+        long waitNanos = addresses.tryAcquire(address, cost, now);
+        if (waitNanos > 0 || userId == null) {
+            return waitNanos;
+        }
+        waitNanos = users.tryAcquire(userId, cost, now);
+        if (waitNanos > 0) {
+            addresses.release(address, cost);
+        }
+        return waitNanos;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.rate-limit.eviction-interval}")
+    public void evictFullBuckets() {
+        long now = nanoClock.getAsLong();
+        int evictedUsers = users.evictFull(now);
+        int evictedAddresses = addresses.evictFull(now);
+        log.debug("Evicted {} full token buckets of users and {} of addresses", evictedUsers, evictedAddresses);
+    }
+
+    private static final class Buckets {
+        private final Map<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+        private final long capacity;
+        private final long nanosPerToken;
+        private final long burstNanos;
+
+        private Buckets(long capacity, long refillPerSecond) {
+            this.capacity = capacity;
+            this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / refillPerSecond;
+            this.burstNanos = capacity * nanosPerToken;
+        }
+
+        private long tryAcquire(String client, int cost, long now) {
+            AtomicLong bucket = fullAt.get(client);
+            if (bucket == null) {
+                bucket = fullAt.computeIfAbsent(client, key -> new AtomicLong(now));
+            }
+
+            long costNanos = costNanos(cost);
+            while (true) {
+                long current = bucket.get();
+                long next = (current - now > 0 ? current : now) + costNanos;
+                long waitNanos = next - now - burstNanos;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        // gives back the tokens of a request rejected by a later bucket, unless the bucket was evicted meanwhile
+        private void release(String client, int cost) {
+            AtomicLong bucket = fullAt.get(client);
+            if (bucket != null) {
+                bucket.addAndGet(-costNanos(cost));
+            }
+        }
+
+        // a request costing more than the capacity takes the whole bucket instead of never passing
+        private long costNanos(int cost) {
+            return Math.min(cost, capacity) * nanosPerToken;
+        }
+
+        private int evictFull(long now) {
+            int before = fullAt.size();
+            fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+            return before - fullAt.size();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.shareit.reactive;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+import ru.practicum.shareit.ratelimit.RequestCost;
+
+import javax.validation.constraints.Positive;
+
+/**
+ * Newline delimited JSON variants of the booking and item read endpoints, chosen by the client with
+ * Accept: application/x-ndjson. Requests for plain JSON are served by the servlet controllers as before.
+ */
+@RestController
+@Profile("reactive")
+@Validated
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveReadController {
+    private final ReactiveReadService reactiveReadService;
+    private static final String DEFAULT_SEARCH_VALUE = "ALL";
+    private static final String HEADER_WITH_USER_ID_NAME = "X-Sharer-User-Id";
+
+    @RequestCost(5)
+    @GetMapping(path = "/bookings", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookingDto> retrieveBookingsByBookerId(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive
+                                                       long userId,
+                                                       @RequestParam(defaultValue = DEFAULT_SEARCH_VALUE)
+                                                       String state) {
+        log.info("Attempt to stream all bookings with {} status by booking author with id = {}", state, userId);
+        return reactiveReadService.retrieveBookingsByBookerId(userId, state);
+    }
+
+    @RequestCost(5)
+    @GetMapping(path = "/bookings/owner", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookingDto> retrieveBookingsByOwnerId(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId,
+                                                      @RequestParam(defaultValue = DEFAULT_SEARCH_VALUE) String state) {
+        log.info("Attempt to stream all bookings with {} status by item owner with id = {}", state, userId);
+        return reactiveReadService.retrieveBookingsByOwnerId(userId, state);
+    }
+
+    @RequestCost(5)
+    @GetMapping(path = "/items", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ItemWithBookingDto> getUsersItems(@RequestHeader(HEADER_WITH_USER_ID_NAME) @Positive long userId) {
+        log.info("Attempt to stream all items of user with id = {}", userId);
+        return reactiveReadService.getUsersItems(userId);
+    }
+
+    @GetMapping(path = "/items/{itemId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ItemWithBookingDto> retrieveItem(@RequestHeader(HEADER_WITH_USER_ID_NAME) long userId,
+                                                 @PathVariable @Positive long itemId) {
+        log.info("Attempt to get item with id = {} without blocking", itemId);
+        return reactiveReadService.retrieveItem(itemId, userId);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.reactive;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+
+public interface ReactiveReadService {
+    Flux<BookingDto> retrieveBookingsByBookerId(long userId, String state);
+
+    Flux<BookingDto> retrieveBookingsByOwnerId(long userId, String state);
+
+    Flux<ItemWithBookingDto> getUsersItems(long userId);
+
+    Mono<ItemWithBookingDto> retrieveItem(long itemId, long userId);
+}
@@ -0,0 +1,74 @@
+package ru.practicum.shareit.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+import ru.practicum.shareit.item.service.ItemService;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking reads of the booking and item services on a bounded scheduler sized to the connection pool,
+ * so a request waiting for the database does not hold a servlet thread. Lists are emitted element by element
+ * and written only as fast as the client reads them.
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactiveReadServiceImpl implements ReactiveReadService {
+    private final BookingService bookingService;
+    private final ItemService itemService;
+    private final Scheduler jdbcScheduler;
+
+    public ReactiveReadServiceImpl(BookingService bookingService, ItemService itemService,
+                                   @Value("${shareit.reactive.jdbc-threads}") int jdbcThreads,
+                                   @Value("${shareit.reactive.max-queued-reads}") int maxQueuedReads) {
+        this.bookingService = bookingService;
+        this.itemService = itemService;
+        this.jdbcScheduler = Schedulers.newBoundedElastic(jdbcThreads, maxQueuedReads, "jdbc-read");
+    }
+
+    @Override
+    public Flux<BookingDto> retrieveBookingsByBookerId(long userId, String state) {
+        return readMany(() -> bookingService.retrieveBookingsByBookerId(userId, state));
+    }
+
+    @Override
+    public Flux<BookingDto> retrieveBookingsByOwnerId(long userId, String state) {
+        return readMany(() -> bookingService.retrieveBookingsByOwnerId(userId, state));
+    }
+
+    @Override
+    public Flux<ItemWithBookingDto> getUsersItems(long userId) {
+        return readMany(() -> itemService.getUsersItems(userId));
+    }
+
+    @Override
+    public Mono<ItemWithBookingDto> retrieveItem(long itemId, long userId) {
+        return read(() -> itemService.retrieveItem(itemId, userId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jdbcScheduler.dispose();
+    }
+
+    private <T> Mono<T> read(Supplier<T> query) {
+        return Mono.fromSupplier(query).subscribeOn(jdbcScheduler);
+    }
+
+    // the elements are published on the writing thread, which requests the next one after writing the previous
+    private <T> Flux<T> readMany(Supplier<List<T>> query) {
+        return read(query).flatMapIterable(list -> list);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.shareit.shard;
+
+/**
+ * The shard the current thread works with, read by ShardRoutingDataSource when a connection is taken.
+ */
+final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer get() {
+        return CURRENT_SHARD.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(shard);
+        }
+    }
+}
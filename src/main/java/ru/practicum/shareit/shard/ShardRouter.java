@@ -0,0 +1,141 @@
+package ru.practicum.shareit.shard;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Knows the number of shards and runs code against one or all of them. Users, their items and the bookings and
+ * comments of those items live on the shard of the owner id, ids of items, bookings and comments are allocated
+ * so that they point to the same shard. Without shareit.sharding.urls there is a single shard and everything runs
+ * in the calling thread.
+ */
+@Component
+public class ShardRouter {
+    private final int shardCount;
+    private final ExecutorService executor;
+
+    public ShardRouter(@Value("${shareit.sharding.urls}") List<String> shardUrls) {
+        this.shardCount = Math.max(1, shardUrls.size());
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = shardCount == 1 ? null : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(long id) {
+        return (int) Math.floorMod(id - 1, (long) shardCount);
+    }
+
+    // a transaction bound to another shard keeps its connection, so the call is moved to a thread without one
+    public <T> T onShard(int shard, Supplier<T> call) {
+        if (shardCount == 1) {
+            return call.get();
+        }
+
+        Integer currentShard = ShardContext.get();
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !Objects.equals(currentShard, shard)) {
+            return await(executor.submit(() -> runOn(shard, call)));
+        }
+
+        return runOn(shard, call);
+    }
+
+    public <T> List<T> onEachShard(IntFunction<T> call) {
+        if (shardCount == 1) {
+            return Collections.singletonList(call.apply(0));
+        }
+
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> runOn(target, () -> call.apply(target))));
+        }
+
+        List<T> results = new ArrayList<>(shardCount);
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    public void forEachShard(Runnable call) {
+        onEachShard(shard -> {
+            call.run();
+            return null;
+        });
+    }
+
+    // each shard returns its first rows in the given order, so the first rows of the union are among them
+    public <T> List<T> mergeFromShards(Supplier<List<T>> query, Comparator<? super T> order, int limit) {
+        List<List<T>> results = onEachShard(shard -> query.get());
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+
+        return results.stream()
+                .flatMap(List::stream)
+                .sorted(order)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static <T> T runOn(int shard, Supplier<T> call) {
+        Integer previousShard = ShardContext.get();
+        ShardContext.set(shard);
+        try {
+            return call.get();
+        } finally {
+            ShardContext.set(previousShard);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UndeclaredThrowableException(cause);
+        }
+    }
+}
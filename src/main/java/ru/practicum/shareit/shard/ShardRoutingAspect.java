@@ -0,0 +1,207 @@
+package ru.practicum.shareit.shard;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.NewBookingRequest;
+import ru.practicum.shareit.graphql.BookingNode;
+import ru.practicum.shareit.graphql.ItemNode;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemListDto;
+import ru.practicum.shareit.item.dto.ItemWithBookingDto;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Sends item and booking calls to the shard that holds their data. It runs before the transaction advice, so the
+ * transaction of a routed call takes its connection from the right shard. Calls by an owner go to the owner's
+ * shard, calls by an item or booking id to the shard of that id, lists of ids are split by shard, and booker and
+ * search queries are sent to every shard and their results merged in the order of a single database.
+ */
+@Aspect
+@Component
+@Profile("sharded")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ShardRoutingAspect {
+    private static final Comparator<BookingDto> BOOKINGS_NEWEST_FIRST =
+            Comparator.comparing(BookingDto::getStart).reversed();
+    private static final Comparator<BookingNode> BOOKING_NODES_NEWEST_FIRST =
+            Comparator.comparing((BookingNode booking) -> LocalDateTime.parse(booking.getStart())).reversed();
+
+    private final ShardRouter shardRouter;
+
+    @Pointcut("execution(* ru.practicum.shareit.item.service.ItemServiceImpl.*(..))")
+    public void itemService() {
+    }
+
+    @Pointcut("execution(* ru.practicum.shareit.booking.service.BookingServiceImpl.*(..))")
+    public void bookingService() {
+    }
+
+    @Pointcut("execution(* ru.practicum.shareit.graphql.GraphQlDataService.*(..))")
+    public void graphQlDataService() {
+    }
+
+    @Around("(itemService() && (execution(* createItem(..)) || execution(* updateItem(..)) " +
+            "|| execution(* getUsersItems(..))) " +
+            "|| bookingService() && (execution(* updateBookingStatuses(..)) " +
+            "|| execution(* retrieveBookingsByOwnerId(..)) || execution(* retrieveOwnerStats(..))) " +
+            "|| graphQlDataService() && execution(* findOwnerBookings(..)))")
+    public Object routeByOwner(ProceedingJoinPoint joinPoint) {
+        return proceedOn(shardOfArg(joinPoint, 0), joinPoint);
+    }
+
+    @Around("(itemService() && (execution(* retrieveItem(..)) || execution(* retrieveItemCard(..)) " +
+            "|| execution(* getItemAvailability(..)) || execution(* getItemComments(..))) " +
+            "|| bookingService() && execution(* createBookings(..)))")
+    public Object routeByItem(ProceedingJoinPoint joinPoint) {
+        return proceedOn(shardOfArg(joinPoint, 0), joinPoint);
+    }
+
+    @Around("itemService() && execution(* postUserComment(..))")
+    public Object routeCommentByItem(ProceedingJoinPoint joinPoint) {
+        return proceedOn(shardOfArg(joinPoint, 2), joinPoint);
+    }
+
+    @Around("bookingService() && execution(* createBooking(..))")
+    public Object routeNewBooking(ProceedingJoinPoint joinPoint) {
+        NewBookingRequest request = (NewBookingRequest) joinPoint.getArgs()[0];
+        return proceedOn(request.getItemId() == null ? 0 : shardRouter.shardOf(request.getItemId()), joinPoint);
+    }
+
+    @Around("bookingService() && (execution(* updateBookingStatus(..)) || execution(* retrieveBooking(..)))")
+    public Object routeByBooking(ProceedingJoinPoint joinPoint) {
+        return proceedOn(shardOfArg(joinPoint, 1), joinPoint);
+    }
+
+    @Around("graphQlDataService() && execution(* findBooking(..))")
+    public Object routeBookingNode(ProceedingJoinPoint joinPoint) {
+        return proceedOn(shardOfArg(joinPoint, 0), joinPoint);
+    }
+
+    @Around("itemService() && execution(* retrieveItems(..))")
+    public ItemListDto splitItemIds(ProceedingJoinPoint joinPoint) {
+        List<Long> itemIds = castList(joinPoint.getArgs()[0]);
+        long userId = (Long) joinPoint.getArgs()[1];
+        Map<Integer, List<Long>> idsByShard = splitByShard(itemIds);
+        List<ItemListDto> parts = shardRouter.onEachShard(shard -> !idsByShard.containsKey(shard) ? null
+                : (ItemListDto) proceed(joinPoint, new Object[]{idsByShard.get(shard), userId}));
+
+        Map<Long, ItemWithBookingDto> foundItems = new HashMap<>();
+        parts.stream()
+                .filter(Objects::nonNull)
+                .flatMap(part -> part.getItems().stream())
+                .forEach(item -> foundItems.put(item.getId(), item));
+
+        List<ItemWithBookingDto> items = new ArrayList<>(foundItems.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long itemId : new LinkedHashSet<>(itemIds)) {
+            ItemWithBookingDto item = foundItems.get(itemId);
+            if (item != null) {
+                items.add(item);
+            } else {
+                missingIds.add(itemId);
+            }
+        }
+        return new ItemListDto(items, missingIds);
+    }
+
+    // users are the same on every shard, only the tables split by owner are queried per shard
+    @Around("graphQlDataService() && execution(java.util.Map *(java.util.List)) && !execution(* findUsers(..))")
+    public Map<Object, Object> splitIds(ProceedingJoinPoint joinPoint) {
+        List<Long> ids = castList(joinPoint.getArgs()[0]);
+        Map<Integer, List<Long>> idsByShard = splitByShard(ids);
+        List<Map<Object, Object>> parts = shardRouter.onEachShard(shard -> !idsByShard.containsKey(shard) ? null
+                : castMap(proceed(joinPoint, new Object[]{idsByShard.get(shard)})));
+
+        Map<Object, Object> merged = new HashMap<>();
+        parts.stream().filter(Objects::nonNull).forEach(merged::putAll);
+        return merged;
+    }
+
+    @Around("bookingService() && execution(* retrieveBookingsByBookerId(..))")
+    public List<BookingDto> gatherBookerBookings(ProceedingJoinPoint joinPoint) {
+        return merge(joinPoint, BOOKINGS_NEWEST_FIRST, Integer.MAX_VALUE);
+    }
+
+    @Around("graphQlDataService() && execution(* findBookerBookings(..))")
+    public List<BookingNode> gatherBookerBookingNodes(ProceedingJoinPoint joinPoint) {
+        return merge(joinPoint, BOOKING_NODES_NEWEST_FIRST, (Integer) joinPoint.getArgs()[1]);
+    }
+
+    @Around("itemService() && execution(* findItemsByText(..))")
+    public List<ItemDto> gatherFoundItems(ProceedingJoinPoint joinPoint) {
+        return merge(joinPoint, Comparator.comparingLong(ItemDto::getId), Integer.MAX_VALUE);
+    }
+
+    @Around("itemService() && execution(* findAvailableItems(..))")
+    public List<ItemDto> gatherAvailableItems(ProceedingJoinPoint joinPoint) {
+        return merge(joinPoint, Comparator.comparingLong(ItemDto::getId), (Integer) joinPoint.getArgs()[3]);
+    }
+
+    @Around("graphQlDataService() && execution(* searchItems(..))")
+    public List<ItemNode> gatherFoundItemNodes(ProceedingJoinPoint joinPoint) {
+        return merge(joinPoint, Comparator.comparingLong(ItemNode::getId), Integer.MAX_VALUE);
+    }
+
+    // arguments are read from the join point, bound advice arguments are lost when a call is proceeded per shard
+    private int shardOfArg(ProceedingJoinPoint joinPoint, int index) {
+        return shardRouter.shardOf((Long) joinPoint.getArgs()[index]);
+    }
+
+    private Object proceedOn(int shard, ProceedingJoinPoint joinPoint) {
+        return shardRouter.onShard(shard, () -> proceed(joinPoint, joinPoint.getArgs()));
+    }
+
+    private <T> List<T> merge(ProceedingJoinPoint joinPoint, Comparator<? super T> order, int limit) {
+        List<List<T>> parts = shardRouter.onEachShard(shard -> castList(proceed(joinPoint, joinPoint.getArgs())));
+        return parts.stream()
+                .flatMap(List::stream)
+                .sorted(order)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Integer, List<Long>> splitByShard(List<Long> ids) {
+        return ids.stream()
+                .distinct()
+                .collect(Collectors.groupingBy(shardRouter::shardOf));
+    }
+
+    private static Object proceed(ProceedingJoinPoint joinPoint, Object[] args) {
+        try {
+            return joinPoint.proceed(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> castList(Object result) {
+        return (List<T>) result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> castMap(Object result) {
+        return (Map<Object, Object>) result;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.shareit.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single data source with one that routes every connection to the shard of the current thread.
+ * Each shard gets the schema, and the identity columns of the sharded tables are set to step by the number of
+ * shards starting from the shard number, so an id alone tells which shard holds the row.
+ */
+@Configuration
+@Profile("sharded")
+@Slf4j
+public class ShardingConfig {
+    private static final List<String> SHARDED_TABLES = List.of("items", "bookings", "comments");
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRouter shardRouter,
+                                 @Value("${shareit.sharding.urls}") List<String> shardUrls,
+                                 @Value("${shareit.sharding.username}") String username,
+                                 @Value("${shareit.sharding.password}") String password) {
+        Map<Object, Object> shards = new HashMap<>();
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shardUrls.get(shard))
+                    .username(username)
+                    .password(password)
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            alignIdentities(new JdbcTemplate(dataSource), shard, shardRouter.getShardCount());
+            shards.put(shard, dataSource);
+        }
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(shards);
+        routingDataSource.setDefaultTargetDataSource(shards.get(0));
+        routingDataSource.afterPropertiesSet();
+
+        log.info("Routing connections to {} shards", shards.size());
+        return routingDataSource;
+    }
+
+    private void alignIdentities(JdbcTemplate jdbcTemplate, int shard, int shardCount) {
+        for (String table : SHARDED_TABLES) {
+            Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+            long nextId = maxId + 1;
+            nextId += Math.floorMod(shard - (nextId - 1), shardCount);
+
+            jdbcTemplate.execute("alter table " + table + " alter column id set increment by " + shardCount);
+            jdbcTemplate.execute("alter table " + table + " alter column id restart with " + nextId);
+        }
+    }
+}
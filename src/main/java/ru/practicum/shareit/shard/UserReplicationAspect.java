@@ -0,0 +1,86 @@
+package ru.practicum.shareit.shard;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Items, bookings and comments on every shard reference users, so each shard keeps a copy of the users table.
+ * Shard 0 assigns the ids and runs the service, the other shards receive the committed rows afterwards. The copy
+ * is not atomic, a copy that fails leaves the other shards with the previous row until the user is saved again.
+ */
+@Aspect
+@Component
+@Profile("sharded")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class UserReplicationAspect {
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Pointcut("execution(* ru.practicum.shareit.user.service.UserServiceImpl.*(..))")
+    public void userService() {
+    }
+
+    @Around("userService() && (execution(* createUser(..)) || execution(* updateUser(..)))")
+    public UserDto replicateSavedUser(ProceedingJoinPoint joinPoint) {
+        UserDto user = (UserDto) shardRouter.onShard(0, () -> proceed(joinPoint));
+
+        for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+            shardRouter.onShard(shard, () -> saveCopy(user));
+        }
+        log.info("Copied user with id = {} to {} shards", user.getId(), shardRouter.getShardCount() - 1);
+        return user;
+    }
+
+    // a deletion only hides the user, the rows themselves are removed on every shard by the purge worker
+    @Around("userService() && execution(* deleteUser(..))")
+    public Object replicateDeletedUser(ProceedingJoinPoint joinPoint) {
+        long userId = (Long) joinPoint.getArgs()[0];
+        Object result = shardRouter.onShard(0, () -> proceed(joinPoint));
+        UserDto user = shardRouter.onShard(0, () -> jdbcTemplate.queryForObject(
+                "select id, name, email from users where id = ?",
+                (rs, rowNum) -> new UserDto(rs.getLong("id"), rs.getString("name"), rs.getString("email")),
+                userId));
+
+        for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+            shardRouter.onShard(shard, () -> jdbcTemplate.update(
+                    "update users set name = ?, email = ?, deleted = true where id = ?",
+                    user.getName(), user.getEmail(), userId));
+        }
+        log.info("Marked user with id = {} as deleted on {} shards", userId, shardRouter.getShardCount() - 1);
+        return result;
+    }
+
+    private Void saveCopy(UserDto user) {
+        int updated = jdbcTemplate.update("update users set name = ?, email = ? where id = ?",
+                user.getName(), user.getEmail(), user.getId());
+        if (updated == 0) {
+            jdbcTemplate.update("insert into users (id, name, email) values (?, ?, ?)",
+                    user.getId(), user.getName(), user.getEmail());
+        }
+        return null;
+    }
+
+    private static Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
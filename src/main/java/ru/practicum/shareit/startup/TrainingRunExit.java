@@ -0,0 +1,24 @@
+package ru.practicum.shareit.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops the application as soon as it is ready when started as a training run, so the JVM can write the class
+ * data sharing archive of everything loaded during startup on exit.
+ */
+@Component
+@ConditionalOnProperty(name = "shareit.training-run", havingValue = "true")
+@Slf4j
+public class TrainingRunExit {
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        log.info("Training run finished, stopping the application");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
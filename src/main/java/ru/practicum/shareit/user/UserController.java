@@ -4,18 +4,26 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.ratelimit.RequestCost;
+import ru.practicum.shareit.user.dto.UserDeletionDto;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserListDto;
 import ru.practicum.shareit.user.service.UserService;
 import ru.practicum.shareit.utils.Create;
 import ru.practicum.shareit.utils.Update;
 
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
 import java.util.List;
 
 @RestController
 @RequestMapping(path = "/users")
+@Validated
 @RequiredArgsConstructor
 @Slf4j
 public class UserController {
+    private static final int MAX_IDS_PER_REQUEST = 100;
+
     private final UserService userService;
 
     @PostMapping
@@ -24,12 +32,20 @@ public class UserController {
         return userService.createUser(user);
     }
 
+    @RequestCost(5)
     @GetMapping
     public List<UserDto> getAll() {
         log.info("Attempting to retrieve the list of all users");
         return userService.getAll();
     }
 
+    @RequestCost(5)
+    @GetMapping(params = "ids")
+    public UserListDto getUsers(@RequestParam @NotEmpty @Size(max = MAX_IDS_PER_REQUEST) List<Long> ids) {
+        log.info("Attempting to retrieve {} users by ids", ids.size());
+        return userService.getUsers(ids);
+    }
+
     @GetMapping("/{userId}")
     public UserDto getUser(@PathVariable long userId) {
         log.info("Attempting to retrieve user with id = {}", userId);
@@ -42,6 +58,12 @@ public class UserController {
         userService.deleteUser(userId);
     }
 
+    @GetMapping("/{userId}/deletion")
+    public UserDeletionDto getUserDeletion(@PathVariable long userId) {
+        log.info("Attempting to retrieve deletion progress of user with id = {}", userId);
+        return userService.getUserDeletion(userId);
+    }
+
     @PatchMapping("/{userId}")
     public UserDto updateUser(@PathVariable long userId, @Validated({Update.class}) @RequestBody UserDto user) {
         log.info("Attempting to update user with id = {}", userId);
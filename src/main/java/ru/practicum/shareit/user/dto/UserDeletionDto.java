@@ -0,0 +1,20 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDeletionDto {
+    private long userId;
+    private LocalDateTime requested;
+    private long commentsDeleted;
+    private long bookingsDeleted;
+    private long itemsDeleted;
+    private LocalDateTime finished;
+}
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserListDto {
+    private List<UserDto> users;
+    private List<Long> missingIds;
+}
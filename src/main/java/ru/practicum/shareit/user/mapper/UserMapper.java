@@ -1,8 +1,10 @@
 package ru.practicum.shareit.user.mapper;
 
 import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.user.dto.UserDeletionDto;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.model.UserDeletion;
 
 @UtilityClass
 public class UserMapper {
@@ -14,6 +16,17 @@ public class UserMapper {
         );
     }
 
+    public static UserDeletionDto toUserDeletionDto(UserDeletion deletion) {
+        return new UserDeletionDto(
+                deletion.getUserId(),
+                deletion.getRequested(),
+                deletion.getCommentsDeleted(),
+                deletion.getBookingsDeleted(),
+                deletion.getItemsDeleted(),
+                deletion.getFinished()
+        );
+    }
+
     public static User toUser(UserDto userDto) {
         return new User(
                 userDto.getId(),
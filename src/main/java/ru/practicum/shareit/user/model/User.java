@@ -19,11 +19,18 @@ public class User {
     private String name;
     @Column(nullable = false, unique = true)
     private String email;
+    private boolean deleted;
 
     public User(Long id) {
         this.id = id;
     }
 
+    public User(Long id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -34,9 +41,6 @@ public class User {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getId(), getEmail());
+        return getClass().hashCode();
     }
-
-
-
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.user.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Entity
+@Table(name = "user_deletions")
+public class UserDeletion {
+    @Id
+    @Column(name = "user_id")
+    private long userId;
+    @Column(nullable = false)
+    private LocalDateTime requested;
+    @Column(name = "comments_deleted")
+    private long commentsDeleted;
+    @Column(name = "bookings_deleted")
+    private long bookingsDeleted;
+    @Column(name = "items_deleted")
+    private long itemsDeleted;
+    private LocalDateTime finished;
+
+    public UserDeletion(long userId, LocalDateTime requested) {
+        this.userId = userId;
+        this.requested = requested;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UserDeletion deletion = (UserDeletion) o;
+        return userId == deletion.userId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(userId);
+    }
+}
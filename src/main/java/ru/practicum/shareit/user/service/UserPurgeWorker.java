@@ -0,0 +1,243 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.event.CommentDeletedEvent;
+import ru.practicum.shareit.item.event.ItemDeletedEvent;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.CommentStorage;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.item.summary.ItemSummaryProjection;
+import ru.practicum.shareit.shard.ShardRouter;
+import ru.practicum.shareit.user.model.UserDeletion;
+import ru.practicum.shareit.user.storage.UserDeletionStorage;
+import ru.practicum.shareit.user.storage.UserStorage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Removes the comments, bookings and items of deleted users and then the user rows themselves. Every batch is
+ * deleted in a transaction of its own, so no transaction locks more than batch-size rows, and the progress is
+ * stored after each batch. A deletion that fails, for example because a request still added a booking of the
+ * user, is retried on the next run from the first step.
+ * <p>
+ * Every instance runs the worker. Each batch locks the row of its deletion and on PostgreSQL an instance that finds
+ * it locked leaves the deletion to the other one until the next run. The rows of a batch are locked before they are
+ * deleted, so rows removed meanwhile, for example with the items of another deleted user, are neither counted nor
+ * announced.
+ */
+@Component
+@Slf4j
+public class UserPurgeWorker {
+    private final UserDeletionStorage userDeletionStorage;
+    private final UserStorage userStorage;
+    private final ItemStorage itemStorage;
+    private final BookingStorage bookingStorage;
+    private final CommentStorage commentStorage;
+    private final ItemSummaryProjection itemSummaryProjection;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final boolean skipLocked;
+
+    public UserPurgeWorker(UserDeletionStorage userDeletionStorage, UserStorage userStorage, ItemStorage itemStorage,
+                           BookingStorage bookingStorage, CommentStorage commentStorage,
+                           ItemSummaryProjection itemSummaryProjection, ShardRouter shardRouter,
+                           ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                           @Value("${shareit.user-deletion.batch-size}") int batchSize,
+                           @Value("${shareit.user-deletion.skip-locked}") boolean skipLocked) {
+        this.userDeletionStorage = userDeletionStorage;
+        this.userStorage = userStorage;
+        this.itemStorage = itemStorage;
+        this.bookingStorage = bookingStorage;
+        this.commentStorage = commentStorage;
+        this.itemSummaryProjection = itemSummaryProjection;
+        this.shardRouter = shardRouter;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.skipLocked = skipLocked;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.user-deletion.interval}")
+    public void purgeDeletedUsers() {
+        List<UserDeletion> deletions = shardRouter.onShard(0,
+                userDeletionStorage::findByFinishedIsNullOrderByRequestedAsc);
+
+        for (UserDeletion deletion : deletions) {
+            try {
+                purge(deletion.getUserId());
+            } catch (DeletionClaimedException e) {
+                log.info("Deletion of user with id = {} is purged by another instance", deletion.getUserId());
+            } catch (RuntimeException e) {
+                log.warn("Cannot finish deletion of user with id = {}, will retry: {}", deletion.getUserId(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    // items, bookings and comments of a user may be on any shard, and every shard keeps a copy of the user row
+    private void purge(long userId) {
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            int target = shard;
+            shardRouter.onShard(target, () -> {
+                purgeShard(userId, target);
+                return null;
+            });
+        }
+
+        shardRouter.onShard(0, () -> transactionTemplate.execute(status -> {
+            UserDeletion deletion = claim(userId);
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                shardRouter.onShard(shard, () -> {
+                    transactionTemplate.executeWithoutResult(
+                            shardStatus -> userStorage.deleteAllByIdInBatch(List.of(userId)));
+                    return null;
+                });
+            }
+            deletion.setFinished(LocalDateTime.now());
+            userDeletionStorage.save(deletion);
+            log.info("Finished deletion of user with id = {}: removed {} comments, {} bookings and {} items", userId,
+                    deletion.getCommentsDeleted(), deletion.getBookingsDeleted(), deletion.getItemsDeleted());
+            return null;
+        }));
+    }
+
+    private void purgeShard(long userId, int shard) {
+        deleteInBatches(userId, shard, () -> commentStorage.findByAuthor_IdOrderByIdAsc(userId, firstBatch()),
+                this::deleteComments, this::countComments);
+        deleteInBatches(userId, shard, () -> bookingStorage.findByBooker_IdOrderByStartDesc(userId, firstBatch()),
+                this::deleteBookings, this::countBookings);
+
+        List<Item> items;
+        do {
+            items = itemStorage.findByUser_IdOrderByIdAsc(userId, firstBatch());
+            deleteOwnedItems(userId, shard, items);
+        } while (items.size() == batchSize);
+    }
+
+    // bookings and comments of the items are removed first, they may belong to any user
+    private void deleteOwnedItems(long userId, int shard, List<Item> items) {
+        for (Item item : items) {
+            deleteInBatches(userId, shard, () -> bookingStorage.findByItem_IdOrderByIdAsc(item.getId(),
+                    firstBatch()), this::deleteBookings, this::countBookings);
+            deleteInBatches(userId, shard, () -> commentStorage.findByItem_IdOrderByIdDesc(item.getId(),
+                    firstBatch()), this::deleteComments, this::countComments);
+        }
+        deleteBatch(userId, shard, () -> items, this::deleteItems, this::countItems);
+    }
+
+    private <T> void deleteInBatches(long userId, int shard, Supplier<List<T>> findBatch,
+                                     ToIntFunction<List<T>> delete, ObjIntConsumer<UserDeletion> countDeleted) {
+        int found;
+        do {
+            found = deleteBatch(userId, shard, findBatch, delete, countDeleted);
+        } while (found == batchSize);
+    }
+
+    /**
+     * Deletes the rows of a batch on the shard while the deletion is locked on shard 0, so the deleted rows are
+     * added to the stored progress. The rows are read inside the transaction of the batch.
+     *
+     * @return the number of rows found, which includes the rows another transaction removed meanwhile
+     */
+    private <T> int deleteBatch(long userId, int shard, Supplier<List<T>> findBatch, ToIntFunction<List<T>> delete,
+                                ObjIntConsumer<UserDeletion> countDeleted) {
+        AtomicInteger found = new AtomicInteger();
+        shardRouter.onShard(0, () -> transactionTemplate.execute(status -> {
+            UserDeletion deletion = claim(userId);
+            int deleted = shardRouter.onShard(shard, () -> transactionTemplate.execute(batchStatus -> {
+                List<T> batch = findBatch.get();
+                found.set(batch.size());
+                return delete.applyAsInt(batch);
+            }));
+            if (deleted > 0) {
+                countDeleted.accept(deletion, deleted);
+                userDeletionStorage.save(deletion);
+            }
+            return null;
+        }));
+        itemSummaryProjection.applyPendingChanges();
+        return found.get();
+    }
+
+    // H2 cannot skip locked rows, it serves a single instance and the worker waits for the lock there instead
+    private UserDeletion claim(long userId) {
+        Optional<UserDeletion> deletion = skipLocked ? userDeletionStorage.claimUnfinished(userId)
+                : userDeletionStorage.lockUnfinished(userId);
+        return deletion.orElseThrow(DeletionClaimedException::new);
+    }
+
+    private int deleteComments(List<Comment> comments) {
+        if (comments.isEmpty()) {
+            return 0;
+        }
+        List<Comment> locked = commentStorage.lockAllByIds(comments.stream()
+                .map(Comment::getId)
+                .collect(Collectors.toList()));
+        commentStorage.deleteAllByIdInBatch(locked.stream().map(Comment::getId).collect(Collectors.toList()));
+        locked.forEach(comment -> eventPublisher.publishEvent(new CommentDeletedEvent(comment.getId(),
+                comment.getItem().getId(), comment.getAuthor().getId())));
+        return locked.size();
+    }
+
+    private int deleteBookings(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+        List<Booking> locked = bookingStorage.lockAllByIds(bookings.stream()
+                .map(Booking::getId)
+                .collect(Collectors.toList()));
+        bookingStorage.deleteAllByIdInBatch(locked.stream().map(Booking::getId).collect(Collectors.toList()));
+        locked.forEach(booking -> eventPublisher.publishEvent(BookingDeletedEvent.of(booking)));
+        return locked.size();
+    }
+
+    private int deleteItems(List<Item> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        List<Item> locked = itemStorage.lockAllByIds(items.stream().map(Item::getId).collect(Collectors.toList()));
+        itemStorage.deleteAllByIdInBatch(locked.stream().map(Item::getId).collect(Collectors.toList()));
+        locked.forEach(item -> eventPublisher.publishEvent(ItemDeletedEvent.of(item)));
+        return locked.size();
+    }
+
+    private void countComments(UserDeletion deletion, int deleted) {
+        deletion.setCommentsDeleted(deletion.getCommentsDeleted() + deleted);
+    }
+
+    private void countBookings(UserDeletion deletion, int deleted) {
+        deletion.setBookingsDeleted(deletion.getBookingsDeleted() + deleted);
+    }
+
+    private void countItems(UserDeletion deletion, int deleted) {
+        deletion.setItemsDeleted(deletion.getItemsDeleted() + deleted);
+    }
+
+    private PageRequest firstBatch() {
+        return PageRequest.of(0, batchSize);
+    }
+
+    // the deletion is locked by another instance or was finished by it
+    private static class DeletionClaimedException extends RuntimeException {
+    }
+}
@@ -1,6 +1,8 @@
 package ru.practicum.shareit.user.service;
 
+import ru.practicum.shareit.user.dto.UserDeletionDto;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserListDto;
 
 import java.util.List;
 
@@ -11,7 +13,11 @@ public interface UserService {
 
     UserDto getUser(long userId);
 
+    UserListDto getUsers(List<Long> userIds);
+
     UserDto updateUser(UserDto user);
 
     void deleteUser(long userId);
+
+    UserDeletionDto getUserDeletion(long userId);
 }
@@ -2,7 +2,7 @@ package ru.practicum.shareit.user.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -10,13 +10,26 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.user.dto.UserDeletionDto;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserListDto;
+import ru.practicum.shareit.user.event.UserDeletedEvent;
+import ru.practicum.shareit.user.event.UserUpdatedEvent;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.user.model.UserDeletion;
+import ru.practicum.shareit.user.storage.UserDeletionStorage;
+import ru.practicum.shareit.user.storage.UserIdFilter;
 import ru.practicum.shareit.user.storage.UserStorage;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ru.practicum.shareit.utils.Constants.*;
@@ -26,6 +39,9 @@ import static ru.practicum.shareit.utils.Constants.*;
 @Slf4j
 public class UserServiceImpl implements UserService {
     private final UserStorage userStorage;
+    private final UserIdFilter userIdFilter;
+    private final UserDeletionStorage userDeletionStorage;
+    private final ApplicationEventPublisher eventPublisher;
 
     public static final int DEFAULT_PAGE_SIZE = 50;
     public static final int DEFAULT_START_PAGE = 0;
@@ -41,6 +57,7 @@ public class UserServiceImpl implements UserService {
         while (true) {
             Page<User> userPage = userStorage.findAll(page);
             List<UserDto> userDtos = userPage.stream()
+                    .filter(user -> !user.isDeleted())
                     .map(UserMapper::toUserDto)
                     .collect(Collectors.toList());
             allUsers.addAll(userDtos);
@@ -61,6 +78,7 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public UserDto createUser(UserDto user) {
         User savedUser = userStorage.save(UserMapper.toUser(user));
+        userIdFilter.add(savedUser.getId());
         log.info("Created user with id = {}", savedUser.getId());
         return UserMapper.toUserDto(savedUser);
     }
@@ -68,17 +86,44 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional(readOnly = true)
     public UserDto getUser(long userId) {
-        User user = userStorage.findById(userId)
+        User user = findActiveUser(userId)
                 .orElseThrow(() -> new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId)));
 
         log.info("Retrieved user with id = {}", userId);
         return UserMapper.toUserDto(user);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public UserListDto getUsers(List<Long> userIds) {
+        Set<Long> requestedIds = new LinkedHashSet<>(userIds);
+        List<Long> knownIds = requestedIds.stream()
+                .filter(userIdFilter::mightContain)
+                .collect(Collectors.toList());
+        Map<Long, User> foundUsers = userStorage.findAllById(knownIds)
+                .stream()
+                .filter(user -> !user.isDeleted())
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<UserDto> users = new ArrayList<>(foundUsers.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long userId : requestedIds) {
+            User user = foundUsers.get(userId);
+            if (user != null) {
+                users.add(UserMapper.toUserDto(user));
+            } else {
+                missingIds.add(userId);
+            }
+        }
+
+        log.info("Retrieved {} of {} requested users", users.size(), requestedIds.size());
+        return new UserListDto(users, missingIds);
+    }
+
     @Override
     @Transactional
     public UserDto updateUser(UserDto user) {
-        User currentUser = userStorage.findById(user.getId())
+        User currentUser = findActiveUser(user.getId())
                 .orElseThrow(() -> new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, user.getId())));
 
         if (user.getEmail() != null) {
@@ -90,18 +135,46 @@ public class UserServiceImpl implements UserService {
         }
 
         User updatedUser = userStorage.save(currentUser);
+        eventPublisher.publishEvent(new UserUpdatedEvent(updatedUser.getId()));
         log.info("Updated information for user with id = {}", updatedUser.getId());
         return UserMapper.toUserDto(updatedUser);
     }
 
+    /**
+     * Hides the user at once: the row is marked deleted and its name and email are replaced, so the email can be
+     * taken by a new user. The comments, bookings and items of the user are removed later in small batches by
+     * {@link UserPurgeWorker}, which deletes the row when nothing references it any more.
+     */
     @Override
+    @Transactional
     public void deleteUser(long userId) {
-        try {
-            userStorage.deleteById(userId);
-            log.info("Deleted user with id = {}", userId);
-        } catch (EmptyResultDataAccessException e) {
-            log.warn("Attempted to delete non-existent user with id = {}", userId);
-            throw new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId));
-        }
+        User user = findActiveUser(userId)
+                .orElseThrow(() -> {
+                    log.warn("Attempted to delete non-existent user with id = {}", userId);
+                    return new NotFoundException(String.format(USER_NOT_FOUND_MESSAGE, userId));
+                });
+
+        user.setDeleted(true);
+        user.setName(DELETED_USER_NAME);
+        user.setEmail(String.format(DELETED_USER_EMAIL, userId));
+        userStorage.save(user);
+        userDeletionStorage.save(new UserDeletion(userId, LocalDateTime.now()));
+        eventPublisher.publishEvent(new UserDeletedEvent(userId));
+        log.info("Deleted user with id = {}, the data of the user will be removed in the background", userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserDeletionDto getUserDeletion(long userId) {
+        UserDeletion deletion = userDeletionStorage.findById(userId)
+                .orElseThrow(() -> new NotFoundException(String.format(USER_DELETION_NOT_FOUND_MESSAGE, userId)));
+
+        log.info("Retrieved deletion progress of user with id = {}", userId);
+        return UserMapper.toUserDeletionDto(deletion);
+    }
+
+    private Optional<User> findActiveUser(long userId) {
+        return userIdFilter.find(userId, userStorage::findById)
+                .filter(user -> !user.isDeleted());
     }
 }
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.user.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.user.model.UserDeletion;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserDeletionStorage extends JpaRepository<UserDeletion, Long> {
+    List<UserDeletion> findByFinishedIsNullOrderByRequestedAsc();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from UserDeletion d where d.userId = :userId and d.finished is null")
+    Optional<UserDeletion> lockUnfinished(@Param("userId") long userId);
+
+    // a lock timeout of -2 skips the row while another transaction holds it, for update skip locked on PostgreSQL
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select d from UserDeletion d where d.userId = :userId and d.finished is null")
+    Optional<UserDeletion> claimUnfinished(@Param("userId") long userId);
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.user.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.user.event.UserDeletedEvent;
+import ru.practicum.shareit.utils.IdExistenceFilter;
+
+import java.util.List;
+
+@Component
+public class UserIdFilter extends IdExistenceFilter {
+    private final UserStorage userStorage;
+
+    public UserIdFilter(UserStorage userStorage, MeterRegistry meterRegistry,
+                        @Value("${shareit.single-instance}") boolean singleInstance) {
+        super("users", meterRegistry, singleInstance);
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    protected List<Long> loadIds(long afterId, int limit) {
+        return userStorage.findIds(afterId, PageRequest.of(0, limit));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        remove(event.getUserId());
+    }
+}
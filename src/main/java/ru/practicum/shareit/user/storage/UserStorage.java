@@ -1,9 +1,18 @@
 package ru.practicum.shareit.user.storage;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.user.model.User;
 
+import java.util.List;
+
 @Transactional(readOnly = true)
 public interface UserStorage extends JpaRepository<User, Long> {
-}
\ No newline at end of file
+    boolean existsByIdAndDeletedFalse(Long id);
+
+    @Query("select u.id from User u where u.deleted = false and u.id > :afterId order by u.id")
+    List<Long> findIds(@Param("afterId") Long afterId, Pageable pageable);
+}
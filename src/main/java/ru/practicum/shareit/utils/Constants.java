@@ -5,6 +5,9 @@ public class Constants {
     }
 
     public static final String USER_NOT_FOUND_MESSAGE = "User with identifier %d not found";
+    public static final String USER_DELETION_NOT_FOUND_MESSAGE = "No deletion of user with identifier %d was requested";
+    public static final String DELETED_USER_NAME = "Deleted user";
+    public static final String DELETED_USER_EMAIL = "deleted-%d@shareit.invalid";
     public static final String ITEM_NOT_FOUND_MESSAGE = "Item with identifier %d not found";
     public static final String USERS_ITEM_NOT_FOUND_MESSAGE = "Item with identifier %d not found for user with identifier %d";
     public static final String UNKNOWN_ERROR_MESSAGE = "An unknown error occurred, please check the correctness of all request data";
@@ -16,5 +19,14 @@ public class Constants {
     public static final String USER_CANNOT_CHANGE_BOOKING_STATUS_TWICE_MESSAGE = "Cannot change booking status twice";
     public static final String NOT_BOOKING_OR_ITEM_OWNER_CANNOT_GET_BOOKING_MESSAGE = "Only the booking author and item owner can view the booking";
     public static final String UNKNOWN_SEARCHING_STATE_MESSAGE = "Unknown state: %s";
+    public static final String WRONG_AVAILABILITY_PERIOD_MESSAGE = "End of availability period must be after its start";
+    public static final String USER_ID_REQUIRED_MESSAGE = "Header X-Sharer-User-Id is required for this query";
+    public static final String TOO_MANY_IDS_MESSAGE = "Cannot request more than %d ids at once";
+    public static final String WRONG_PAGE_SIZE_MESSAGE = "Page size must be between 1 and %d";
+    public static final String TOO_MANY_REQUESTS_MESSAGE = "Too many requests, retry after %d s";
+    public static final String BOOKING_NOT_CONFIRMED_MESSAGE = "The booking was not confirmed in time, check your bookings before retrying";
+    public static final String BOOKING_INGESTION_STOPPED_MESSAGE = "The service is shutting down, please retry";
+    public static final String BOOKING_CHANGED_CONCURRENTLY_MESSAGE = "The booking was changed by another request, please retry";
+    public static final String BOOKINGS_CHANGED_CONCURRENTLY_MESSAGE = "Some of the bookings were changed by another request, please retry";
     public static final String TIME_NOT_AVAILABLE_FOR_BOOKING_MESSAGE = "Cannot book item from %s to %s as it is already booked for this time";
 }
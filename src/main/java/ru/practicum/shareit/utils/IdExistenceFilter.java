@@ -0,0 +1,187 @@
+package ru.practicum.shareit.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Bitmap of existing ids that answers "definitely missing" without a database round-trip. Ids are added as soon
+ * as they are saved and removed only after the deletion is committed, so a rolled back transaction can only
+ * leave a false positive. The bitmap only knows the ids saved by this instance, and with several instances
+ * another one may create an id below the largest id known here, so a missing id is only answered as missing
+ * when the application runs as a single instance. Otherwise every lookup is passed through to the database and
+ * the ids the bitmap would have rejected are only counted.
+ */
+@Slf4j
+public abstract class IdExistenceFilter {
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+
+    private final String name;
+    private final Roaring64Bitmap ids = new Roaring64Bitmap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong maxKnownId = new AtomicLong();
+    private final boolean trustMissing;
+    private final Counter rejected;
+    private final Counter unconfirmed;
+    private final Counter passed;
+    private final Counter falsePositives;
+    private volatile boolean ready;
+
+    protected IdExistenceFilter(String name, MeterRegistry meterRegistry, boolean singleInstance) {
+        this.name = name;
+        this.trustMissing = singleInstance;
+
+        rejected = Counter.builder("shareit.id.filter.rejected")
+                .description("Lookups of ids answered as missing without a database query")
+                .tag("name", name)
+                .register(meterRegistry);
+        unconfirmed = Counter.builder("shareit.id.filter.unconfirmed")
+                .description("Lookups of ids missing from the bitmap passed through as another instance may own them")
+                .tag("name", name)
+                .register(meterRegistry);
+        passed = Counter.builder("shareit.id.filter.passed")
+                .description("Lookups of ids passed through to the database")
+                .tag("name", name)
+                .register(meterRegistry);
+        falsePositives = Counter.builder("shareit.id.filter.false.positives")
+                .description("Lookups passed through to the database that did not find the id")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("shareit.id.filter.false.positive.rate", this, IdExistenceFilter::getFalsePositiveRate)
+                .description("Share of passed lookups that did not find the id")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("shareit.id.filter.bytes", this, IdExistenceFilter::getSizeInBytes)
+                .description("Memory used by the id bitmap")
+                .tag("name", name)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    protected abstract List<Long> loadIds(long afterId, int limit);
+
+    public boolean mightContain(long id) {
+        if (!ready || id > maxKnownId.get() || contains(id)) {
+            passed.increment();
+            return true;
+        }
+
+        if (!trustMissing) {
+            unconfirmed.increment();
+            return true;
+        }
+
+        rejected.increment();
+        return false;
+    }
+
+    private boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return ids.contains(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public <T> Optional<T> find(long id, LongFunction<Optional<T>> lookup) {
+        if (!mightContain(id)) {
+            return Optional.empty();
+        }
+
+        Optional<T> found = lookup.apply(id);
+        if (found.isEmpty()) {
+            reportMissing(id);
+        }
+        return found;
+    }
+
+    public boolean exists(long id, LongPredicate lookup) {
+        if (!mightContain(id)) {
+            return false;
+        }
+
+        boolean exists = lookup.test(id);
+        if (!exists) {
+            reportMissing(id);
+        }
+        return exists;
+    }
+
+    public void reportMissing(long id) {
+        falsePositives.increment();
+        log.debug("Id {} passed the {} filter but was not found", id, name);
+    }
+
+    public void add(long id) {
+        lock.writeLock().lock();
+        try {
+            ids.addLong(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        maxKnownId.accumulateAndGet(id, Math::max);
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            ids.removeLong(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long afterId = 0;
+        long loaded = 0;
+        List<Long> batch;
+
+        do {
+            batch = loadIds(afterId, REBUILD_BATCH_SIZE);
+            batch.forEach(this::add);
+
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1);
+                loaded += batch.size();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        lock.writeLock().lock();
+        try {
+            ids.runOptimize();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = true;
+        log.info("Built {} id filter from {} ids using {} bytes", name, loaded, getSizeInBytes());
+    }
+
+    private double getFalsePositiveRate() {
+        double passedCount = passed.count();
+        return passedCount == 0 ? 0 : falsePositives.count() / passedCount;
+    }
+
+    private long getSizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return ids.getLongSizeInBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
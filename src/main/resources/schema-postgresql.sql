@@ -0,0 +1,42 @@
+-- runs before schema.sql, which skips the tables that already exist here
+create table if not exists users (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  email VARCHAR(254) NOT NULL,
+  CONSTRAINT UQ_USER_EMAIL UNIQUE (email)
+);
+
+create table if not exists items (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  description VARCHAR(512) NOT NULL,
+  available BOOLEAN NOT NULL,
+  user_id BIGINT NOT NULL,
+  CONSTRAINT fk_item_user FOREIGN KEY(user_id) REFERENCES users(id)
+);
+
+create sequence if not exists bookings_id_seq;
+
+create table if not exists bookings (
+  id bigint NOT NULL DEFAULT nextval('bookings_id_seq'),
+  status VARCHAR(10) NOT NULL,
+  item_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  end_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  CONSTRAINT pk_bookings PRIMARY KEY (id, start_date),
+  CONSTRAINT fk_booking_item FOREIGN KEY(item_id) REFERENCES items(id),
+  CONSTRAINT fk_booking_user FOREIGN KEY(user_id) REFERENCES users(id)
+) PARTITION BY RANGE (start_date);
+alter sequence bookings_id_seq owned by bookings.id;
+create table if not exists bookings_default partition of bookings default;
+create index if not exists idx_bookings_user_start on bookings(user_id, start_date);
+
+create table if not exists bookings_archive (
+  id bigint NOT NULL,
+  status VARCHAR(10) NOT NULL,
+  item_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  end_date TIMESTAMP WITHOUT TIME ZONE NOT NULL
+) PARTITION BY RANGE (start_date);
@@ -2,8 +2,10 @@ create table if not exists users (
   id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   name VARCHAR(255) NOT NULL,
   email VARCHAR(254) NOT NULL,
+  deleted BOOLEAN DEFAULT FALSE NOT NULL,
   CONSTRAINT UQ_USER_EMAIL UNIQUE (email)
 );
+alter table users add column if not exists deleted BOOLEAN DEFAULT FALSE NOT NULL;
 
 create table if not exists items (
   id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -33,4 +35,48 @@ create table if not exists comments (
   created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
   CONSTRAINT fk_comment_item FOREIGN KEY(item_id) REFERENCES items(id),
   CONSTRAINT fk_comment_user FOREIGN KEY(user_id) REFERENCES users(id)
-);
\ No newline at end of file
+);
+create index if not exists idx_comments_item_id on comments(item_id, id);
+create index if not exists idx_bookings_item_end on bookings(item_id, end_date);
+
+-- read table of the owner's item list, kept without foreign keys as the in-memory engine stores items elsewhere
+create table if not exists item_summary (
+  item_id BIGINT PRIMARY KEY,
+  user_id BIGINT NOT NULL,
+  name VARCHAR(255) NOT NULL,
+  description VARCHAR(512) NOT NULL,
+  available BOOLEAN NOT NULL,
+  last_booking_id BIGINT,
+  last_booking_start TIMESTAMP WITHOUT TIME ZONE,
+  last_booking_end TIMESTAMP WITHOUT TIME ZONE,
+  last_booker_id BIGINT,
+  next_booking_id BIGINT,
+  next_booking_start TIMESTAMP WITHOUT TIME ZONE,
+  next_booking_end TIMESTAMP WITHOUT TIME ZONE,
+  next_booker_id BIGINT,
+  comments_count BIGINT NOT NULL,
+  latest_comments VARCHAR NOT NULL
+);
+create index if not exists idx_item_summary_user_id on item_summary(user_id, item_id);
+create index if not exists idx_item_summary_next_start on item_summary(next_booking_start);
+
+create table if not exists outbox_events (
+  id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  aggregate_type VARCHAR(32) NOT NULL,
+  aggregate_id BIGINT NOT NULL,
+  event_type VARCHAR(64) NOT NULL,
+  payload VARCHAR NOT NULL,
+  created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  published TIMESTAMP WITHOUT TIME ZONE
+);
+create index if not exists idx_outbox_events_published on outbox_events(published, id);
+
+-- progress of user deletions, kept after the user row is removed
+create table if not exists user_deletions (
+  user_id BIGINT PRIMARY KEY,
+  requested TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  comments_deleted BIGINT NOT NULL,
+  bookings_deleted BIGINT NOT NULL,
+  items_deleted BIGINT NOT NULL,
+  finished TIMESTAMP WITHOUT TIME ZONE
+);
@@ -0,0 +1,227 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingUpdateResultDto;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.BookingUpdateResult;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingPeriod;
+import ru.practicum.shareit.booking.storage.BookingStatusRow;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.booking.stream.BookingEventBroker;
+import ru.practicum.shareit.exception.AlreadyExistException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemIdFilter;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.shard.ShardRouter;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserIdFilter;
+import ru.practicum.shareit.user.storage.UserStorage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookingServiceImplTest {
+    private static final long OWNER_ID = 1L;
+    private static final long BOOKER_ID = 2L;
+    private static final LocalDateTime DAY = LocalDateTime.now().plusDays(10).withHour(0).withMinute(0).withSecond(0)
+            .withNano(0);
+
+    private final BookingStorage bookingStorage = mock(BookingStorage.class);
+    private final ItemStorage itemStorage = mock(ItemStorage.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final BookingServiceImpl bookingService = new BookingServiceImpl(bookingStorage, itemStorage,
+            mock(UserStorage.class), mock(UserIdFilter.class), mock(ItemIdFilter.class), mock(BookingStatsCache.class),
+            mock(BookingEventBroker.class), eventPublisher, new ShardRouter(List.of()));
+
+    @Test
+    void bulkUpdateReportsResultOfEveryBooking() {
+        givenRows(row(2L, 10L, 99L, Status.WAITING, 10, 12), row(3L, 10L, OWNER_ID, Status.APPROVED, 10, 12),
+                row(4L, 10L, OWNER_ID, Status.WAITING, 14, 16));
+        when(bookingStorage.updateWaitingStatuses(List.of(4L), Status.APPROVED)).thenReturn(1);
+
+        List<BookingUpdateResultDto> results = bookingService.updateBookingStatuses(OWNER_ID,
+                List.of(1L, 2L, 3L, 4L), true);
+
+        assertThat(results).extracting(BookingUpdateResultDto::getBookingId, BookingUpdateResultDto::getResult,
+                BookingUpdateResultDto::getStatus).containsExactly(
+                tuple(1L, BookingUpdateResult.NOT_FOUND, null),
+                tuple(2L, BookingUpdateResult.NOT_OWNER, null),
+                tuple(3L, BookingUpdateResult.ALREADY_DECIDED, Status.APPROVED),
+                tuple(4L, BookingUpdateResult.UPDATED, Status.APPROVED));
+        verify(itemStorage).lockAllByIds(Set.of(10L));
+        assertThat(publishedEvents()).extracting(BookingChangedEvent::getBookingId, BookingChangedEvent::getStatus)
+                .containsExactly(tuple(4L, Status.APPROVED));
+    }
+
+    @Test
+    void bulkApprovalLeavesBookingsOverlappingApprovedOnesWaiting() {
+        givenRows(row(5L, 10L, OWNER_ID, Status.WAITING, 11, 13), row(6L, 10L, OWNER_ID, Status.WAITING, 10, 12),
+                row(7L, 20L, OWNER_ID, Status.WAITING, 10, 12));
+        when(bookingStorage.findPeriodsByItemIdsAndStatusOverlapping(anyCollection(), eq(Status.APPROVED), any(),
+                any())).thenReturn(List.of(period(20L, 11, 15)));
+        when(bookingStorage.updateWaitingStatuses(List.of(6L), Status.APPROVED)).thenReturn(1);
+
+        List<BookingUpdateResultDto> results = bookingService.updateBookingStatuses(OWNER_ID, List.of(5L, 6L, 7L),
+                true);
+
+        assertThat(results).extracting(BookingUpdateResultDto::getBookingId, BookingUpdateResultDto::getResult,
+                BookingUpdateResultDto::getStatus).containsExactly(
+                tuple(5L, BookingUpdateResult.TIME_CONFLICT, Status.WAITING),
+                tuple(6L, BookingUpdateResult.UPDATED, Status.APPROVED),
+                tuple(7L, BookingUpdateResult.TIME_CONFLICT, Status.WAITING));
+    }
+
+    @Test
+    void bulkRejectionDoesNotCheckOverlaps() {
+        givenRows(row(5L, 10L, OWNER_ID, Status.WAITING, 11, 13), row(6L, 10L, OWNER_ID, Status.WAITING, 10, 12));
+        when(bookingStorage.updateWaitingStatuses(List.of(5L, 6L), Status.REJECTED)).thenReturn(2);
+
+        List<BookingUpdateResultDto> results = bookingService.updateBookingStatuses(OWNER_ID, List.of(5L, 6L),
+                false);
+
+        assertThat(results).extracting(BookingUpdateResultDto::getResult).containsOnly(BookingUpdateResult.UPDATED);
+        verify(itemStorage, never()).lockAllByIds(anyCollection());
+    }
+
+    @Test
+    void bulkUpdateFailsWhenBookingsWereDecidedMeanwhile() {
+        givenRows(row(5L, 10L, OWNER_ID, Status.WAITING, 10, 12), row(6L, 20L, OWNER_ID, Status.WAITING, 10, 12));
+        when(bookingStorage.updateWaitingStatuses(List.of(5L, 6L), Status.REJECTED)).thenReturn(1);
+
+        assertThatThrownBy(() -> bookingService.updateBookingStatuses(OWNER_ID, List.of(5L, 6L), false))
+                .isInstanceOf(AlreadyExistException.class);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void approvalChangesStatusWithOneUpdate() {
+        givenBooking(8L);
+        when(bookingStorage.updateWaitingStatuses(List.of(8L), Status.APPROVED)).thenReturn(1);
+
+        BookingDto booking = bookingService.updateBookingStatus(OWNER_ID, 8L, true);
+
+        assertThat(booking.getStatus()).isEqualTo(Status.APPROVED);
+        verify(bookingStorage, never()).save(any());
+        verify(bookingStorage, never()).findByItem_IdAndEndAfterAndStatusOrderByStartAsc(any(Long.class), any(),
+                any());
+        assertThat(publishedEvents()).extracting(BookingChangedEvent::getBookingId, BookingChangedEvent::getOwnerId,
+                BookingChangedEvent::getStatus).containsExactly(tuple(8L, OWNER_ID, Status.APPROVED));
+    }
+
+    @Test
+    void approvalFailsWhenBookingWasDecidedMeanwhile() {
+        givenBooking(8L);
+        when(bookingStorage.updateWaitingStatuses(List.of(8L), Status.REJECTED)).thenReturn(0);
+
+        assertThatThrownBy(() -> bookingService.updateBookingStatus(OWNER_ID, 8L, false))
+                .isInstanceOf(AlreadyExistException.class);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private void givenRows(BookingStatusRow... rows) {
+        when(bookingStorage.findStatusRowsByIds(anyCollection())).thenReturn(List.of(rows));
+    }
+
+    private void givenBooking(long bookingId) {
+        User owner = new User(OWNER_ID, "owner", "owner@example.com");
+        Item item = new Item(10L, "drill", "cordless", true, owner);
+        Booking booking = new Booking(Status.WAITING, item, new User(BOOKER_ID, "booker", "booker@example.com"),
+                at(10), at(12));
+        booking.setId(bookingId);
+        when(bookingStorage.findById(bookingId)).thenReturn(Optional.of(booking));
+        when(itemStorage.existsByUser_IdAndId(OWNER_ID, 10L)).thenReturn(true);
+    }
+
+    private List<BookingChangedEvent> publishedEvents() {
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(1)).publishEvent(events.capture());
+        return List.of((BookingChangedEvent) events.getValue());
+    }
+
+    private static BookingStatusRow row(long id, long itemId, long ownerId, Status status, int startHour,
+                                        int endHour) {
+        return new BookingStatusRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public Long getOwnerId() {
+                return ownerId;
+            }
+
+            @Override
+            public Long getBookerId() {
+                return BOOKER_ID;
+            }
+
+            @Override
+            public Status getStatus() {
+                return status;
+            }
+
+            @Override
+            public LocalDateTime getStart() {
+                return at(startHour);
+            }
+
+            @Override
+            public LocalDateTime getEnd() {
+                return at(endHour);
+            }
+        };
+    }
+
+    private static BookingPeriod period(long itemId, int startHour, int endHour) {
+        return new BookingPeriod() {
+            @Override
+            public Long getId() {
+                return 100L;
+            }
+
+            @Override
+            public Long getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public LocalDateTime getStart() {
+                return at(startHour);
+            }
+
+            @Override
+            public LocalDateTime getEnd() {
+                return at(endHour);
+            }
+        };
+    }
+
+    private static LocalDateTime at(int hour) {
+        return DAY.plusHours(hour);
+    }
+}
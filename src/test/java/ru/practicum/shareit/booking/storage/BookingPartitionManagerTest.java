@@ -0,0 +1,39 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookingPartitionManagerTest {
+
+    @Test
+    void namesPartitionAfterYearAndZeroPaddedMonth() {
+        assertThat(BookingPartitionManager.toPartitionName(YearMonth.of(2026, 3))).isEqualTo("bookings_p2026_03");
+        assertThat(BookingPartitionManager.toPartitionName(YearMonth.of(2026, 12))).isEqualTo("bookings_p2026_12");
+    }
+
+    @Test
+    void readsMonthBackFromPartitionName() {
+        YearMonth month = YearMonth.of(2025, 11);
+
+        assertThat(BookingPartitionManager.toMonth(BookingPartitionManager.toPartitionName(month))).contains(month);
+    }
+
+    @Test
+    void ignoresTablesThatAreNotMonthlyPartitions() {
+        assertThat(BookingPartitionManager.toMonth("bookings_default")).isEmpty();
+        assertThat(BookingPartitionManager.toMonth("bookings_p2026_3")).isEmpty();
+        assertThat(BookingPartitionManager.toMonth("bookings_p2026_13")).isEmpty();
+        assertThat(BookingPartitionManager.toMonth("bookings_p2026_00")).isEmpty();
+        assertThat(BookingPartitionManager.toMonth("old_bookings_p2026_03")).isEmpty();
+    }
+
+    @Test
+    void boundsAreFirstMomentsOfMonths() {
+        assertThat(BookingPartitionManager.toBound(YearMonth.of(2026, 1))).isEqualTo("2026-01-01 00:00:00");
+        assertThat(BookingPartitionManager.toBound(YearMonth.of(2026, 12).plusMonths(1)))
+                .isEqualTo("2027-01-01 00:00:00");
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.graphql;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.storage.CommentStorage;
+import ru.practicum.shareit.item.storage.ItemIdFilter;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserIdFilter;
+import ru.practicum.shareit.user.storage.UserStorage;
+import ru.practicum.shareit.utils.Constants;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GraphQlDataServiceTest {
+    private final UserStorage userStorage = mock(UserStorage.class);
+    private final UserIdFilter userIdFilter = mock(UserIdFilter.class);
+    private final GraphQlDataService dataService = new GraphQlDataService(userStorage, mock(ItemStorage.class),
+            mock(BookingStorage.class), mock(CommentStorage.class), userIdFilter, mock(ItemIdFilter.class));
+
+    @Test
+    void leavesOutDeletedUsers() {
+        when(userIdFilter.mightContain(anyLong())).thenReturn(true);
+        when(userStorage.findAllById(List.of(1L, 2L))).thenReturn(List.of(new User(1L, "a", "a@example.com"),
+                new User(2L, Constants.DELETED_USER_NAME, String.format(Constants.DELETED_USER_EMAIL, 2L), true)));
+
+        Map<Long, UserNode> users = dataService.findUsers(List.of(1L, 2L));
+
+        assertThat(users).containsOnlyKeys(1L);
+        assertThat(users.get(1L).getName()).isEqualTo("a");
+    }
+}
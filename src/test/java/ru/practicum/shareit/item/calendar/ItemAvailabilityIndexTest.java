@@ -0,0 +1,210 @@
+package ru.practicum.shareit.item.calendar;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingPeriod;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.event.ItemDeletedEvent;
+import ru.practicum.shareit.item.event.ItemSavedEvent;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.shard.ShardRouter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemAvailabilityIndexTest {
+    private static final LocalDateTime START = LocalDateTime.now().plusDays(10).withMinute(0).withSecond(0).withNano(0);
+    private static final LocalDateTime END = START.plusHours(2);
+
+    private final BookingStorage bookingStorage = mock(BookingStorage.class);
+    private final ItemStorage itemStorage = mock(ItemStorage.class);
+    private ItemAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ItemAvailabilityIndex(bookingStorage, itemStorage, new ShardRouter(List.of()),
+                new SimpleMeterRegistry(), true);
+        when(bookingStorage.findPeriodsByStatusAndEndAfter(eq(Status.APPROVED), any(), anyLong(), any()))
+                .thenReturn(List.of());
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void loadsAvailableItemsAndBookedSlots() {
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenReturn(List.of(1L, 2L, 3L));
+        when(bookingStorage.findPeriodsByStatusAndEndAfter(eq(Status.APPROVED), any(), anyLong(), any()))
+                .thenReturn(List.of(period(10L, 2L)));
+
+        assertThat(index.isReady()).isFalse();
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.isFree(2L, START, END)).isFalse();
+        assertThat(index.isFree(2L, END, END.plusHours(1))).isTrue();
+        assertThat(index.findFreeAvailableItems(START, END, 10)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void replaysItemChangeCommittedWhileItemsWereLoaded() {
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenAnswer(invocation -> {
+            index.onItemSaved(new ItemSavedEvent(2L, 1L, "drill", "good", true, "drill", "good", false));
+            return List.of(1L, 2L, 3L);
+        });
+
+        index.rebuild();
+
+        assertThat(index.findFreeAvailableItems(START, END, 10)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void replaysItemDeletedWhileItemsWereLoaded() {
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenAnswer(invocation -> {
+            index.onItemDeleted(new ItemDeletedEvent(3L, 1L, "saw", "sharp", true));
+            return List.of(1L, 2L, 3L);
+        });
+
+        index.rebuild();
+
+        assertThat(index.findFreeAvailableItems(START, END, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void replaysBookingDeletedWhileBookingsWereLoaded() {
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenReturn(List.of(1L, 2L));
+        when(bookingStorage.findPeriodsByStatusAndEndAfter(eq(Status.APPROVED), any(), anyLong(), any()))
+                .thenAnswer(invocation -> {
+                    index.onBookingDeleted(new BookingDeletedEvent(10L, 2L, 1L, 5L, Status.APPROVED, START, END));
+                    return List.of(period(10L, 2L));
+                });
+
+        index.rebuild();
+
+        assertThat(index.isFree(2L, START, END)).isTrue();
+        assertThat(index.findFreeAvailableItems(START, END, 10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void replayedChangeAlreadySeenByLoadKeepsIndexUnchanged() {
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenReturn(List.of(1L, 2L));
+        when(bookingStorage.findPeriodsByStatusAndEndAfter(eq(Status.APPROVED), any(), anyLong(), any()))
+                .thenAnswer(invocation -> {
+                    index.onBookingChanged(new BookingChangedEvent(10L, 2L, 1L, 5L, Status.APPROVED, START, END));
+                    return List.of(period(10L, 2L));
+                });
+
+        index.rebuild();
+
+        assertThat(index.isFree(2L, START, END)).isFalse();
+        assertThat(index.findFreeAvailableItems(START, END, 10)).containsExactly(1L);
+    }
+
+    @Test
+    void appliesChangesAfterRebuildToServedIndex() {
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenReturn(List.of(1L));
+        index.rebuild();
+
+        index.onItemSaved(ItemSavedEvent.created(2L, 1L, "tent", "large", true));
+        index.onBookingChanged(new BookingChangedEvent(11L, 1L, 1L, 5L, Status.APPROVED, START, END));
+
+        assertThat(index.isFree(1L, START, END)).isFalse();
+        assertThat(index.findFreeAvailableItems(START, END, 10)).containsExactly(2L);
+    }
+
+    @Test
+    void ignoresBookingsThatAreNotApproved() {
+        index.rebuild();
+
+        index.onBookingChanged(new BookingChangedEvent(12L, 1L, 1L, 5L, Status.REJECTED, START, END));
+
+        assertThat(index.isFree(1L, START, END)).isTrue();
+    }
+
+    @Test
+    void findsFreeItemsAfterGivenId() {
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+        when(bookingStorage.findPeriodsByStatusAndEndAfter(eq(Status.APPROVED), any(), anyLong(), any()))
+                .thenReturn(List.of(period(10L, 3L)));
+        index.rebuild();
+
+        assertThat(index.findFreeAvailableItems(START, END, 0, 2)).containsExactly(1L, 2L);
+        assertThat(index.findFreeAvailableItems(START, END, 2, 2)).containsExactly(4L, 5L);
+        assertThat(index.findFreeAvailableItems(START, END, 5, 2)).isEmpty();
+    }
+
+    @Test
+    void isAuthoritativeOnlyWhenBuiltOnSingleInstance() {
+        assertThat(index.isAuthoritative()).isFalse();
+        index.rebuild();
+        assertThat(index.isAuthoritative()).isTrue();
+
+        ItemAvailabilityIndex sharedIndex = new ItemAvailabilityIndex(bookingStorage, itemStorage,
+                new ShardRouter(List.of()), new SimpleMeterRegistry(), false);
+        sharedIndex.rebuild();
+        assertThat(sharedIndex.isReady()).isTrue();
+        assertThat(sharedIndex.isAuthoritative()).isFalse();
+    }
+
+    @Test
+    void periodicRebuildPicksUpChangesOfOtherInstancesUnlessSingleInstance() {
+        ItemAvailabilityIndex sharedIndex = new ItemAvailabilityIndex(bookingStorage, itemStorage,
+                new ShardRouter(List.of()), new SimpleMeterRegistry(), false);
+        sharedIndex.rebuild();
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenReturn(List.of(7L));
+
+        index.rebuildWithChangesOfOtherInstances();
+        sharedIndex.rebuildWithChangesOfOtherInstances();
+
+        assertThat(index.isReady()).isFalse();
+        assertThat(sharedIndex.findFreeAvailableItems(START, END, 10)).containsExactly(7L);
+    }
+
+    @Test
+    void rebuildStartedDuringRebuildIsSkipped() {
+        when(itemStorage.findAvailableIds(anyLong(), any())).thenAnswer(invocation -> {
+            index.rebuild();
+            return List.of(1L);
+        });
+
+        index.rebuild();
+
+        assertThat(index.findFreeAvailableItems(START, END, 10)).containsExactly(1L);
+        verify(itemStorage, times(1)).findAvailableIds(anyLong(), any());
+    }
+
+    private static BookingPeriod period(long id, long itemId) {
+        return new BookingPeriod() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public LocalDateTime getStart() {
+                return START;
+            }
+
+            @Override
+            public LocalDateTime getEnd() {
+                return END;
+            }
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package ru.practicum.shareit.item.calendar;
+
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.event.BookingChangedEvent;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.dto.TimeSlotDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemCalendarCacheTest {
+    private static final LocalDateTime DAY = LocalDateTime.now().plusDays(10).withHour(0).withMinute(0).withSecond(0)
+            .withNano(0);
+    private static final List<Status> APPROVED = List.of(Status.APPROVED);
+    private static final List<Status> APPROVED_AND_WAITING = List.of(Status.APPROVED, Status.WAITING);
+
+    private final BookingStorage bookingStorage = mock(BookingStorage.class);
+    private final ItemCalendarCache cache = new ItemCalendarCache(bookingStorage, true, Duration.ofSeconds(5));
+
+    @Test
+    void wholeWindowIsFreeWithoutBookings() {
+        givenBookings();
+
+        assertThat(freeSlots(8, 18)).containsExactly(tuple(at(8), at(18)));
+    }
+
+    @Test
+    void mergesOverlappingBookingsIntoOneBusySlot() {
+        givenBookings(booking(10, 12), booking(11, 14));
+
+        assertThat(freeSlots(8, 18)).containsExactly(tuple(at(8), at(10)), tuple(at(14), at(18)));
+    }
+
+    @Test
+    void mergesBookingStartingWhenPreviousEnds() {
+        givenBookings(booking(10, 12), booking(12, 13));
+
+        assertThat(freeSlots(8, 18)).containsExactly(tuple(at(8), at(10)), tuple(at(13), at(18)));
+    }
+
+    @Test
+    void bookingInsideAnotherDoesNotShortenBusySlot() {
+        givenBookings(booking(10, 16), booking(11, 12), booking(13, 14));
+
+        assertThat(freeSlots(8, 18)).containsExactly(tuple(at(8), at(10)), tuple(at(16), at(18)));
+    }
+
+    @Test
+    void keepsGapsBetweenSeparateBookings() {
+        givenBookings(booking(9, 10), booking(12, 13));
+
+        assertThat(freeSlots(8, 18))
+                .containsExactly(tuple(at(8), at(9)), tuple(at(10), at(12)), tuple(at(13), at(18)));
+    }
+
+    @Test
+    void clipsBusySlotsCrossingWindowEdges() {
+        givenBookings(booking(6, 9), booking(17, 20));
+
+        assertThat(freeSlots(8, 18)).containsExactly(tuple(at(9), at(17)));
+    }
+
+    @Test
+    void windowInsideBusySlotHasNoFreeSlots() {
+        givenBookings(booking(6, 20));
+
+        assertThat(freeSlots(8, 18)).isEmpty();
+    }
+
+    @Test
+    void answersLaterWindowFromCachedBusySlots() {
+        givenBookings(booking(10, 12), booking(20, 22));
+
+        freeSlots(8, 18);
+        assertThat(freeSlots(19, 23)).containsExactly(tuple(at(19), at(20)), tuple(at(22), at(23)));
+
+        verify(bookingStorage, times(1)).findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(eq(1L), eq(APPROVED),
+                any());
+    }
+
+    @Test
+    void reloadsForWindowStartingBeforeCachedOne() {
+        givenBookings(booking(10, 12));
+
+        freeSlots(11, 18);
+        freeSlots(8, 18);
+
+        verify(bookingStorage).findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(1L, APPROVED, at(11));
+        verify(bookingStorage).findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(1L, APPROVED, at(8));
+    }
+
+    @Test
+    void reloadsAfterBookingOfItemChanges() {
+        givenBookings(booking(10, 12));
+        freeSlots(8, 18);
+
+        cache.onBookingChanged(new BookingChangedEvent(5L, 1L, 2L, 3L, Status.APPROVED, at(14), at(15)));
+        givenBookings(booking(10, 12), booking(14, 15));
+
+        assertThat(freeSlots(8, 18))
+                .containsExactly(tuple(at(8), at(10)), tuple(at(12), at(14)), tuple(at(15), at(18)));
+    }
+
+    @Test
+    void keepsWaitingBookingsInSeparateCalendar() {
+        when(bookingStorage.findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(anyLong(), eq(APPROVED), any()))
+                .thenReturn(List.of(booking(10, 12)));
+        when(bookingStorage.findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(anyLong(), eq(APPROVED_AND_WAITING),
+                any())).thenReturn(List.of(booking(10, 12), booking(14, 16)));
+
+        assertThat(slots(cache.getFreeSlots(1L, at(8), at(18), false)))
+                .containsExactly(tuple(at(8), at(10)), tuple(at(12), at(18)));
+        assertThat(slots(cache.getFreeSlots(1L, at(8), at(18), true)))
+                .containsExactly(tuple(at(8), at(10)), tuple(at(12), at(14)), tuple(at(16), at(18)));
+    }
+
+    @Test
+    void expiresEntriesWhenOtherInstancesMayChangeBookings() {
+        ItemCalendarCache sharedCache = new ItemCalendarCache(bookingStorage, false, Duration.ZERO);
+        givenBookings(booking(10, 12));
+
+        sharedCache.getFreeSlots(1L, at(8), at(18), false);
+        sharedCache.getFreeSlots(1L, at(8), at(18), false);
+
+        verify(bookingStorage, times(2)).findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(1L, APPROVED, at(8));
+    }
+
+    private void givenBookings(Booking... bookings) {
+        when(bookingStorage.findByItem_IdAndStatusInAndEndAfterOrderByStartAsc(anyLong(), any(), any()))
+                .thenReturn(Arrays.asList(bookings));
+    }
+
+    private List<Tuple> freeSlots(int fromHour, int toHour) {
+        return slots(cache.getFreeSlots(1L, at(fromHour), at(toHour), false));
+    }
+
+    private static List<Tuple> slots(List<TimeSlotDto> slots) {
+        return slots.stream()
+                .map(slot -> tuple(slot.getStart(), slot.getEnd()))
+                .collect(Collectors.toList());
+    }
+
+    private static Booking booking(int startHour, int endHour) {
+        return new Booking(Status.APPROVED, null, null, at(startHour), at(endHour));
+    }
+
+    private static LocalDateTime at(int hour) {
+        return DAY.plusHours(hour);
+    }
+}
@@ -0,0 +1,174 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingPeriod;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.calendar.ItemAvailabilityIndex;
+import ru.practicum.shareit.item.calendar.ItemCalendarCache;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemListDto;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.CommentStorage;
+import ru.practicum.shareit.item.storage.ItemIdFilter;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.item.suggest.ItemSuggestionIndex;
+import ru.practicum.shareit.item.summary.ItemSummaryProjection;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserIdFilter;
+import ru.practicum.shareit.user.storage.UserStorage;
+import ru.practicum.shareit.utils.Constants;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemServiceImplTest {
+    private static final LocalDateTime START = LocalDateTime.now().plusDays(10).withMinute(0).withSecond(0).withNano(0);
+    private static final LocalDateTime END = START.plusHours(2);
+    private static final User OWNER = new User(1L, "owner", "owner@example.com");
+
+    private final ItemStorage itemStorage = mock(ItemStorage.class);
+    private final UserStorage userStorage = mock(UserStorage.class);
+    private final BookingStorage bookingStorage = mock(BookingStorage.class);
+    private final CommentStorage commentStorage = mock(CommentStorage.class);
+    private final UserIdFilter userIdFilter = mock(UserIdFilter.class);
+    private final ItemIdFilter itemIdFilter = mock(ItemIdFilter.class);
+    private final ItemAvailabilityIndex itemAvailabilityIndex = mock(ItemAvailabilityIndex.class);
+    private final ItemServiceImpl itemService = new ItemServiceImpl(itemStorage, userStorage,
+            bookingStorage, commentStorage, userIdFilter, itemIdFilter,
+            mock(ItemSuggestionIndex.class), mock(ItemCalendarCache.class), itemAvailabilityIndex,
+            mock(ItemSummaryProjection.class), mock(ApplicationEventPublisher.class));
+
+    @Test
+    void checksItemsFoundBySharedIndexWithStorage() {
+        when(itemAvailabilityIndex.isReady()).thenReturn(true);
+        when(itemAvailabilityIndex.findFreeAvailableItems(START, END, 0, 2)).thenReturn(List.of(1L, 2L));
+        when(itemAvailabilityIndex.findFreeAvailableItems(START, END, 2, 2)).thenReturn(List.of(3L, 4L));
+        when(bookingStorage.findPeriodsByItemIdsAndStatusOverlapping(List.of(1L, 2L), Status.APPROVED, START, END))
+                .thenReturn(List.of(period(1L)));
+        when(itemStorage.findAllById(List.of(1L, 2L))).thenReturn(List.of(item(1L, true), item(2L, false)));
+        when(itemStorage.findAllById(List.of(3L, 4L))).thenReturn(List.of(item(4L, true), item(3L, true)));
+
+        List<ItemDto> items = itemService.findAvailableItems(START, END, null, 2);
+
+        assertThat(items).extracting(ItemDto::getId).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void stopsWhenSharedIndexHasNoMoreItems() {
+        when(itemAvailabilityIndex.isReady()).thenReturn(true);
+        when(itemAvailabilityIndex.findFreeAvailableItems(START, END, 0, 3)).thenReturn(List.of(5L, 6L));
+        when(itemStorage.findAllById(List.of(5L, 6L))).thenReturn(List.of(item(5L, true), item(6L, true)));
+
+        List<ItemDto> items = itemService.findAvailableItems(START, END, " ", 3);
+
+        assertThat(items).extracting(ItemDto::getId).containsExactly(5L, 6L);
+    }
+
+    @Test
+    void trustsAuthoritativeIndex() {
+        when(itemAvailabilityIndex.isReady()).thenReturn(true);
+        when(itemAvailabilityIndex.isAuthoritative()).thenReturn(true);
+        when(itemAvailabilityIndex.findFreeAvailableItems(START, END, 2)).thenReturn(List.of(2L, 1L));
+        when(itemStorage.findAllById(List.of(2L, 1L)))
+                .thenReturn(new ArrayList<>(List.of(item(2L, true), item(1L, true))));
+
+        List<ItemDto> items = itemService.findAvailableItems(START, END, null, 2);
+
+        assertThat(items).extracting(ItemDto::getId).containsExactly(1L, 2L);
+        verify(bookingStorage, never()).findPeriodsByItemIdsAndStatusOverlapping(anyCollection(), any(), any(),
+                any());
+    }
+
+    @Test
+    void checksTextSearchResultsWithStorageUnlessIndexIsAuthoritative() {
+        when(itemAvailabilityIndex.isReady()).thenReturn(true);
+        when(itemStorage.findByDescriptionContainingAndAvailableTrueOrNameContainingAndAvailableTrueAllIgnoreCase(
+                "drill", "drill")).thenReturn(List.of(item(1L, true), item(2L, true)));
+        when(bookingStorage.existsByItem_IdAndStatusAndStartBeforeAndEndAfter(1L, Status.APPROVED, END, START))
+                .thenReturn(true);
+
+        List<ItemDto> items = itemService.findAvailableItems(START, END, "drill", 10);
+
+        assertThat(items).extracting(ItemDto::getId).containsExactly(2L);
+        verify(itemAvailabilityIndex, never()).isFree(1L, START, END);
+        verify(itemStorage, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    void retrievedItemsShowNamesOfCommentAuthorsLoadedById() {
+        when(userIdFilter.exists(eq(5L), any())).thenReturn(true);
+        when(itemIdFilter.mightContain(1L)).thenReturn(true);
+        Item item = item(1L, true);
+        when(itemStorage.findAllById(List.of(1L))).thenReturn(List.of(item));
+        when(commentStorage.findLatestByItemIds(List.of(1L), ItemServiceImpl.COMMENTS_PREVIEW_SIZE))
+                .thenReturn(List.of(new Comment(8L, "nice", item, new User(3L), START)));
+        when(userStorage.findAllById(Set.of(3L))).thenReturn(List.of(new User(3L, "carol", "carol@example.com")));
+
+        ItemListDto itemList = itemService.retrieveItems(List.of(1L, 2L), 5L);
+
+        assertThat(itemList.getMissingIds()).containsExactly(2L);
+        assertThat(itemList.getItems()).hasSize(1);
+        assertThat(itemList.getItems().get(0).getComments()).extracting(CommentDto::getId, CommentDto::getAuthorName)
+                .containsExactly(tuple(8L, "carol"));
+    }
+
+    @Test
+    void deletedUserCannotComment() {
+        when(bookingStorage.existsByItem_IdAndBooker_IdAndStatusAndEndBefore(eq(1L), eq(2L), eq(Status.APPROVED),
+                any())).thenReturn(true);
+        when(userStorage.findById(2L)).thenReturn(Optional.of(new User(2L, Constants.DELETED_USER_NAME,
+                String.format(Constants.DELETED_USER_EMAIL, 2L), true)));
+
+        assertThatThrownBy(() -> itemService.postUserComment(new CommentDto(null, "nice", null, null), 2L, 1L))
+                .isInstanceOf(NotFoundException.class);
+        verify(commentStorage, never()).save(any());
+    }
+
+    private static Item item(long id, boolean available) {
+        return new Item(id, "drill " + id, "cordless", available, OWNER);
+    }
+
+    private static BookingPeriod period(long itemId) {
+        return new BookingPeriod() {
+            @Override
+            public Long getId() {
+                return 100L;
+            }
+
+            @Override
+            public Long getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public LocalDateTime getStart() {
+                return START;
+            }
+
+            @Override
+            public LocalDateTime getEnd() {
+                return END;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.shareit.item.suggest;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.shard.ShardRouter;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ItemSuggestionIndexTest {
+    private static final User OWNER = new User(1L, "owner", "owner@example.com");
+
+    private final ItemStorage itemStorage = mock(ItemStorage.class);
+    private final ItemSuggestionIndex index = new ItemSuggestionIndex(itemStorage, new ShardRouter(List.of()), true);
+
+    @Test
+    void periodicRebuildPicksUpChangesOfOtherInstancesUnlessSingleInstance() {
+        ItemSuggestionIndex sharedIndex = new ItemSuggestionIndex(itemStorage, new ShardRouter(List.of()), false);
+        when(itemStorage.findByIdGreaterThanAndAvailableTrueOrderByIdAsc(anyLong(), any()))
+                .thenReturn(List.of(item(1L, "drill")));
+        index.rebuild();
+        sharedIndex.rebuild();
+        when(itemStorage.findByIdGreaterThanAndAvailableTrueOrderByIdAsc(anyLong(), any()))
+                .thenReturn(List.of(item(1L, "drill"), item(2L, "drum")));
+
+        index.rebuildWithChangesOfOtherInstances();
+        sharedIndex.rebuildWithChangesOfOtherInstances();
+
+        assertThat(index.suggest("dr", 10)).containsExactly("drill");
+        assertThat(sharedIndex.suggest("dr", 10)).containsExactly("drill", "drum");
+    }
+
+    @Test
+    void rebuildStartedDuringRebuildIsSkipped() {
+        when(itemStorage.findByIdGreaterThanAndAvailableTrueOrderByIdAsc(anyLong(), any())).thenAnswer(invocation -> {
+            index.rebuild();
+            return List.of(item(1L, "drill"));
+        });
+
+        index.rebuild();
+
+        assertThat(index.suggest("dr", 10)).containsExactly("drill");
+        verify(itemStorage, times(1)).findByIdGreaterThanAndAvailableTrueOrderByIdAsc(anyLong(), any());
+    }
+
+    private static Item item(long id, String name) {
+        return new Item(id, name, "cordless", true, OWNER);
+    }
+}
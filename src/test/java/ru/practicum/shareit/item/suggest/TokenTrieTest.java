@@ -0,0 +1,129 @@
+package ru.practicum.shareit.item.suggest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class TokenTrieTest {
+
+    @Test
+    void suggestsTokensWithPrefixByCountThenAlphabetically() {
+        TokenTrie trie = new TokenTrie(10);
+        trie.add("drill", 2);
+        trie.add("drum", 5);
+        trie.add("dryer", 2);
+        trie.add("ladder", 9);
+
+        assertThat(tokens(trie.suggest("dr", 10))).containsExactly("drum", "drill", "dryer");
+        assertThat(trie.suggest("dr", 10)).extracting(TokenTrie.Suggestion::getCount).containsExactly(5, 2, 2);
+    }
+
+    @Test
+    void includesPrefixThatIsItselfToken() {
+        TokenTrie trie = new TokenTrie(10);
+        trie.add("saw", 1);
+        trie.add("sawhorse", 3);
+
+        assertThat(tokens(trie.suggest("saw", 10))).containsExactly("sawhorse", "saw");
+    }
+
+    @Test
+    void keepsOnlyCapacityTopTokensPerPrefix() {
+        TokenTrie trie = new TokenTrie(2);
+        trie.add("tent", 1);
+        trie.add("tea", 4);
+        trie.add("table", 3);
+        trie.add("tape", 2);
+
+        assertThat(tokens(trie.suggest("t", 10))).containsExactly("tea", "table");
+        assertThat(tokens(trie.suggest("ta", 10))).containsExactly("table", "tape");
+        assertThat(trie.size()).isEqualTo(4);
+    }
+
+    @Test
+    void limitsSuggestionsToRequestedCount() {
+        TokenTrie trie = new TokenTrie(10);
+        trie.add("bike", 3);
+        trie.add("bicycle", 2);
+        trie.add("bin", 1);
+
+        assertThat(tokens(trie.suggest("bi", 2))).containsExactly("bike", "bicycle");
+    }
+
+    @Test
+    void reordersTopTokensWhenCountChanges() {
+        TokenTrie trie = new TokenTrie(10);
+        trie.add("hammer", 3);
+        trie.add("hat", 2);
+
+        trie.add("hat", 2);
+        trie.add("hammer", -2);
+
+        assertThat(trie.suggest("h", 10)).extracting(TokenTrie.Suggestion::getToken, TokenTrie.Suggestion::getCount)
+                .containsExactly(tuple("hat", 4), tuple("hammer", 1));
+    }
+
+    @Test
+    void promotesTokenBelowTopWhenTopTokenIsRemoved() {
+        TokenTrie trie = new TokenTrie(2);
+        trie.add("pan", 5);
+        trie.add("pot", 4);
+        trie.add("pump", 1);
+
+        trie.add("pan", -5);
+
+        assertThat(tokens(trie.suggest("p", 10))).containsExactly("pot", "pump");
+    }
+
+    @Test
+    void forgetsTokenWhoseCountDropsToZero() {
+        TokenTrie trie = new TokenTrie(10);
+        trie.add("kayak", 2);
+        trie.add("kettle", 1);
+
+        trie.add("kayak", -2);
+
+        assertThat(trie.size()).isEqualTo(1);
+        assertThat(trie.suggest("ka", 10)).isEmpty();
+        assertThat(tokens(trie.suggest("k", 10))).containsExactly("kettle");
+    }
+
+    @Test
+    void neverCountsBelowZero() {
+        TokenTrie trie = new TokenTrie(10);
+        trie.add("rope", 1);
+
+        trie.add("rope", -3);
+        trie.add("rope", 1);
+
+        assertThat(trie.suggest("ro", 10)).extracting(TokenTrie.Suggestion::getCount).containsExactly(1);
+    }
+
+    @Test
+    void ignoresRemovalOfUnknownToken() {
+        TokenTrie trie = new TokenTrie(10);
+        trie.add("axe", 1);
+
+        trie.add("anvil", -1);
+
+        assertThat(trie.size()).isEqualTo(1);
+        assertThat(tokens(trie.suggest("a", 10))).containsExactly("axe");
+    }
+
+    @Test
+    void returnsNothingForUnknownPrefix() {
+        TokenTrie trie = new TokenTrie(10);
+        trie.add("glue", 1);
+
+        assertThat(trie.suggest("gr", 10)).isEmpty();
+        assertThat(trie.suggest("glues", 10)).isEmpty();
+    }
+
+    private static List<String> tokens(List<TokenTrie.Suggestion> suggestions) {
+        return suggestions.stream().map(TokenTrie.Suggestion::getToken).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,136 @@
+package ru.practicum.shareit.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryStorageExampleTest {
+    private static final ExampleMatcher ANY_STATE = ExampleMatcher.matching().withIgnorePaths("deleted");
+
+    @TempDir
+    Path dataDirectory;
+
+    private MemoryDatabase database;
+    private InMemoryUserStorage userStorage;
+    private InMemoryItemStorage itemStorage;
+    private User alice;
+    private User bob;
+    private User formerAlice;
+
+    @BeforeEach
+    void setUp() {
+        database = new MemoryDatabase(new ObjectMapper().findAndRegisterModules(), dataDirectory, false);
+        database.recover();
+        userStorage = new InMemoryUserStorage(database);
+        itemStorage = new InMemoryItemStorage(database);
+
+        alice = userStorage.save(new User(null, "Alice", "alice@example.com"));
+        bob = userStorage.save(new User(null, "Bob", "bob@mail.org"));
+        formerAlice = userStorage.save(new User(null, "alice", "old-alice@example.com", true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void matchesEveryPropertySetInProbe() {
+        assertThat(userStorage.findAll(Example.of(new User(null, "Alice", null))))
+                .extracting(User::getId).containsExactly(alice.getId());
+    }
+
+    @Test
+    void primitivePropertiesOfProbeAreMatchedUnlessIgnored() {
+        assertThat(userStorage.findAll(Example.of(new User()))).extracting(User::getId)
+                .containsExactly(alice.getId(), bob.getId());
+        assertThat(userStorage.findAll(Example.of(new User(), ANY_STATE))).extracting(User::getId)
+                .containsExactly(alice.getId(), bob.getId(), formerAlice.getId());
+    }
+
+    @Test
+    void appliesStringMatcherAndIgnoredCase() {
+        ExampleMatcher matcher = ANY_STATE.withIgnoreCase()
+                .withMatcher("email", ExampleMatcher.GenericPropertyMatchers.endsWith());
+
+        assertThat(userStorage.findAll(Example.of(new User(null, "ALICE", "EXAMPLE.COM"), matcher)))
+                .extracting(User::getId).containsExactly(alice.getId(), formerAlice.getId());
+    }
+
+    @Test
+    void anyMatchingNeedsOnlyOneProperty() {
+        ExampleMatcher matcher = ExampleMatcher.matchingAny().withIgnorePaths("deleted");
+
+        assertThat(userStorage.findAll(Example.of(new User(null, "Bob", "old-alice@example.com"), matcher)))
+                .extracting(User::getId).containsExactly(bob.getId(), formerAlice.getId());
+    }
+
+    @Test
+    void includedNullsMatchOnlyMissingValues() {
+        ExampleMatcher matcher = ANY_STATE.withIncludeNullValues().withIgnorePaths("id");
+
+        assertThat(userStorage.findAll(Example.of(new User(null, "Bob", null), matcher))).isEmpty();
+    }
+
+    @Test
+    void matchesAssociationByItsProperties() {
+        itemStorage.save(new Item(0, "drill", "cordless", true, alice));
+        Item saw = itemStorage.save(new Item(0, "saw", "sharp", true, bob));
+        itemStorage.save(new Item(0, "tent", "large", false, bob));
+        ExampleMatcher matcher = ExampleMatcher.matching().withIgnorePaths("id", "user.deleted");
+
+        assertThat(itemStorage.findAll(Example.of(new Item(0, null, null, true, new User(bob.getId())), matcher)))
+                .extracting(Item::getId).containsExactly(saw.getId());
+    }
+
+    @Test
+    void sortsAndPagesMatches() {
+        Example<User> example = Example.of(new User(), ANY_STATE);
+
+        assertThat(userStorage.findAll(example, Sort.by(Sort.Direction.DESC, "id"))).extracting(User::getId)
+                .containsExactly(formerAlice.getId(), bob.getId(), alice.getId());
+
+        Page<User> page = userStorage.findAll(example, PageRequest.of(1, 2, Sort.by("id")));
+        assertThat(page.getContent()).extracting(User::getId).containsExactly(formerAlice.getId());
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void countsAndChecksExistence() {
+        assertThat(userStorage.count(Example.of(new User(), ANY_STATE))).isEqualTo(3);
+        assertThat(userStorage.exists(Example.of(new User(null, "Bob", null)))).isTrue();
+        assertThat(userStorage.exists(Example.of(new User(null, "Carol", null)))).isFalse();
+    }
+
+    @Test
+    void findOneFailsWhenSeveralEntitiesMatch() {
+        assertThat(userStorage.findOne(Example.of(new User(null, "Bob", null)))).get()
+                .extracting(User::getId).isEqualTo(bob.getId());
+        assertThat(userStorage.findOne(Example.of(new User(null, "Carol", null)))).isEmpty();
+        assertThatThrownBy(() -> userStorage.findOne(Example.of(new User())))
+                .isInstanceOf(IncorrectResultSizeDataAccessException.class);
+    }
+
+    @Test
+    void fluentQueryAppliesSort() {
+        User last = userStorage.findBy(Example.of(new User(), ANY_STATE),
+                query -> query.sortBy(Sort.by(Sort.Direction.DESC, "id")).firstValue());
+
+        assertThat(last.getId()).isEqualTo(formerAlice.getId());
+    }
+}
@@ -0,0 +1,153 @@
+package ru.practicum.shareit.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.shareit.booking.status.Status;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemoryDatabaseRecoveryTest {
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void replaysJournalWithoutSnapshot() {
+        MemoryDatabase database = open();
+        long ownerId = database.saveUser(user("owner")).getId();
+        long bookerId = database.saveUser(user("booker")).getId();
+        long itemId = database.saveItem(item(ownerId, "drill")).getId();
+        long bookingId = database.saveBooking(booking(itemId, bookerId)).getId();
+        database.updateBookingStatuses(List.of(bookingId), Status.WAITING, Status.APPROVED);
+
+        MemoryDatabase recovered = open();
+
+        assertThat(recovered.users().rows()).extracting(UserRow::getName).containsExactly("owner", "booker");
+        assertThat(recovered.items().get(itemId).getName()).isEqualTo("drill");
+        assertThat(recovered.bookings().get(bookingId).getStatus()).isEqualTo(Status.APPROVED);
+    }
+
+    @Test
+    void replaysUpdatesAndDeletesInOrder() {
+        MemoryDatabase database = open();
+        long ownerId = database.saveUser(user("owner")).getId();
+        ItemRow drill = database.saveItem(item(ownerId, "drill"));
+        long sawId = database.saveItem(item(ownerId, "saw")).getId();
+        database.saveItem(drill.toBuilder().name("hammer drill").build());
+        database.deleteItem(sawId);
+
+        MemoryDatabase recovered = open();
+
+        assertThat(recovered.items().rows()).extracting(ItemRow::getName).containsExactly("hammer drill");
+        assertThat(recovered.findItemIdsByOwner(ownerId)).containsExactly(drill.getId());
+    }
+
+    @Test
+    void rebuildsIndexesAndConstraintsFromJournal() {
+        MemoryDatabase database = open();
+        long ownerId = database.saveUser(user("owner")).getId();
+        long bookerId = database.saveUser(user("booker")).getId();
+        long itemId = database.saveItem(item(ownerId, "drill")).getId();
+        long bookingId = database.saveBooking(booking(itemId, bookerId)).getId();
+
+        MemoryDatabase recovered = open();
+
+        assertThat(recovered.findBookingsByItem(itemId)).extracting(BookingRow::getId).containsExactly(bookingId);
+        assertThat(recovered.findBookingsByBooker(bookerId)).extracting(BookingRow::getId).containsExactly(bookingId);
+        assertThatThrownBy(() -> recovered.saveUser(user("owner")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> recovered.deleteItem(itemId)).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void continuesIdsAfterReplayedRows() {
+        MemoryDatabase database = open();
+        database.saveUser(user("first"));
+        long secondId = database.saveUser(user("second")).getId();
+        database.deleteUser(secondId);
+
+        MemoryDatabase recovered = open();
+
+        assertThat(recovered.saveUser(user("third")).getId()).isEqualTo(secondId + 1);
+    }
+
+    @Test
+    void loadsSnapshotAndReplaysOnlyLaterSegments() throws IOException {
+        MemoryDatabase database = open();
+        long ownerId = database.saveUser(user("owner")).getId();
+        database.saveItem(item(ownerId, "drill"));
+        database.snapshot();
+        database.saveItem(item(ownerId, "saw"));
+
+        assertThat(segments()).containsExactly("journal-1.log");
+
+        MemoryDatabase recovered = open();
+
+        assertThat(recovered.users().rows()).extracting(UserRow::getName).containsExactly("owner");
+        assertThat(recovered.items().rows()).extracting(ItemRow::getName).containsExactly("drill", "saw");
+    }
+
+    @Test
+    void stopsAtTornRecordAndAppendsToNewSegment() throws IOException {
+        MemoryDatabase database = open();
+        database.saveUser(user("owner"));
+        database.saveUser(user("booker"));
+        Files.writeString(dataDirectory.resolve("journal-0.log"), "{\"table\":\"users\",\"id\":3,\"ro",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        MemoryDatabase recovered = open();
+        recovered.saveUser(user("renter"));
+
+        assertThat(recovered.users().rows()).extracting(UserRow::getName).containsExactly("owner", "booker", "renter");
+        assertThat(segments()).containsExactly("journal-0.log", "journal-1.log");
+        assertThat(open().users().rows()).extracting(UserRow::getName).containsExactly("owner", "booker", "renter");
+    }
+
+    private MemoryDatabase open() {
+        MemoryDatabase database = new MemoryDatabase(new ObjectMapper().findAndRegisterModules(), dataDirectory,
+                false);
+        database.recover();
+        return database;
+    }
+
+    private List<String> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dataDirectory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("journal-"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static UserRow user(String name) {
+        return UserRow.builder().name(name).email(name + "@example.com").build();
+    }
+
+    private static ItemRow item(long ownerId, String name) {
+        return ItemRow.builder().name(name).description(name).available(true).ownerId(ownerId).build();
+    }
+
+    private static BookingRow booking(long itemId, long bookerId) {
+        return BookingRow.builder()
+                .itemId(itemId)
+                .bookerId(bookerId)
+                .start(START)
+                .end(START.plusDays(1))
+                .status(Status.WAITING)
+                .build();
+    }
+}
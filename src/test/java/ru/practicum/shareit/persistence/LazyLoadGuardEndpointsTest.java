@@ -0,0 +1,162 @@
+package ru.practicum.shareit.persistence;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.user.storage.UserStorage;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls the endpoints that read bookings, items and comments together with the lazy load guard in fail mode, so
+ * a repository method that stops fetching an association the response uses fails the request.
+ */
+@SpringBootTest(properties = "shareit.lazy-load-guard.mode=fail")
+@AutoConfigureMockMvc
+class LazyLoadGuardEndpointsTest {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private ItemStorage itemStorage;
+    @Autowired
+    private BookingStorage bookingStorage;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private long ownerId;
+    private long bookerId;
+    private long itemId;
+    private long pastBookingId;
+    private long nextBookingId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ownerId = createUser("owner");
+        bookerId = createUser("booker");
+        itemId = createItem(ownerId);
+
+        // a finished booking cannot be created through the API, it lets the booker comment on the item
+        LocalDateTime now = LocalDateTime.now();
+        pastBookingId = bookingStorage.save(new Booking(Status.APPROVED, itemStorage.findById(itemId).orElseThrow(),
+                userStorage.findById(bookerId).orElseThrow(), now.minusDays(2), now.minusDays(1))).getId();
+
+        nextBookingId = id(mockMvc.perform(post("/bookings")
+                        .header(USER_ID_HEADER, bookerId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format("{\"itemId\":%d,\"start\":\"%s\",\"end\":\"%s\"}", itemId,
+                                now.plusDays(1).withNano(0), now.plusDays(2).withNano(0))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        mockMvc.perform(patch("/bookings/{bookingId}", nextBookingId)
+                        .header(USER_ID_HEADER, ownerId)
+                        .param("approved", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("APPROVED"));
+
+        mockMvc.perform(post("/items/{itemId}/comment", itemId)
+                        .header(USER_ID_HEADER, bookerId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\":\"works well\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.authorName").value("booker"));
+    }
+
+    @Test
+    void guardFailsOnUnplannedLazyLoad() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(transaction ->
+                itemStorage.findById(itemId).orElseThrow().getUser().getName()))
+                .isInstanceOf(UnplannedLazyLoadException.class);
+    }
+
+    @Test
+    void ownerItemsShowBookingsAndComments() throws Exception {
+        mockMvc.perform(get("/items").header(USER_ID_HEADER, ownerId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].lastBooking.id").value(pastBookingId))
+                .andExpect(jsonPath("$[0].nextBooking.id").value(nextBookingId))
+                .andExpect(jsonPath("$[0].comments[0].authorName").value("booker"));
+    }
+
+    @Test
+    void itemCardShowsBookingsAndComments() throws Exception {
+        mockMvc.perform(get("/items/{itemId}", itemId).header(USER_ID_HEADER, ownerId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastBooking.id").value(pastBookingId))
+                .andExpect(jsonPath("$.nextBooking.id").value(nextBookingId))
+                .andExpect(jsonPath("$.comments[0].text").value("works well"));
+    }
+
+    @Test
+    void ownerBookingsShowItemAndBooker() throws Exception {
+        mockMvc.perform(get("/bookings/owner").header(USER_ID_HEADER, ownerId).param("state", "ALL"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(nextBookingId))
+                .andExpect(jsonPath("$[0].item.name").value("drill"))
+                .andExpect(jsonPath("$[0].booker.name").value("booker"))
+                .andExpect(jsonPath("$[1].id").value(pastBookingId));
+    }
+
+    @Test
+    void bookerBookingsShowItemAndBooker() throws Exception {
+        mockMvc.perform(get("/bookings").header(USER_ID_HEADER, bookerId).param("state", "PAST"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].item.name").value("drill"))
+                .andExpect(jsonPath("$[0].booker.name").value("booker"));
+    }
+
+    @Test
+    void itemCommentsShowAuthor() throws Exception {
+        mockMvc.perform(get("/items/{itemId}/comments", itemId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].authorName").value("booker"));
+    }
+
+    private long createUser(String name) throws Exception {
+        return id(mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format("{\"name\":\"%s\",\"email\":\"%s@example.com\"}", name,
+                                UUID.randomUUID())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private long createItem(long userId) throws Exception {
+        return id(mockMvc.perform(post("/items")
+                        .header(USER_ID_HEADER, userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"drill\",\"description\":\"cordless drill\",\"available\":true}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static long id(String json) {
+        return ((Number) JsonPath.read(json, "$.id")).longValue();
+    }
+}
@@ -0,0 +1,92 @@
+package ru.practicum.shareit.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import ru.practicum.shareit.exception.TooManyRequestsException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimitInterceptorTest {
+    private static final String ADDRESS = "10.0.0.1";
+
+    private final TokenBucketRateLimiter rateLimiter = mock(TokenBucketRateLimiter.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimitInterceptor interceptor = new RateLimitInterceptor(rateLimiter, meterRegistry);
+
+    @Test
+    void chargesCostOfHandlerToUserAndAddress() throws Exception {
+        assertThat(interceptor.preHandle(request("42"), new MockHttpServletResponse(), handler("search")))
+                .isTrue();
+
+        verify(rateLimiter).tryAcquire("42", ADDRESS, 5);
+    }
+
+    @Test
+    void chargesHandlerWithoutCostOneToken() throws Exception {
+        interceptor.preHandle(request("42"), new MockHttpServletResponse(), handler("read"));
+
+        verify(rateLimiter).tryAcquire("42", ADDRESS, 1);
+    }
+
+    @Test
+    void chargesMalformedUserIdToAddressOnly() throws Exception {
+        interceptor.preHandle(request("42; drop"), new MockHttpServletResponse(), handler("read"));
+        interceptor.preHandle(request("12345678901234567890"), new MockHttpServletResponse(), handler("read"));
+
+        verify(rateLimiter, times(2)).tryAcquire(isNull(), eq(ADDRESS), eq(1));
+    }
+
+    @Test
+    void rejectsWithRetryAfterRoundedUpToWholeSeconds() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyString(), anyInt()))
+                .thenReturn(TimeUnit.MILLISECONDS.toNanos(1500));
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("42"), new MockHttpServletResponse(), handler("read")))
+                .isInstanceOf(TooManyRequestsException.class)
+                .extracting("retryAfterSeconds").isEqualTo(2L);
+        assertThat(meterRegistry.get("shareit.rate-limit.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void waitOfWholeSecondsIsNotRoundedUp() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyString(), anyInt())).thenReturn(TimeUnit.SECONDS.toNanos(1));
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("42"), new MockHttpServletResponse(), handler("read")))
+                .isInstanceOf(TooManyRequestsException.class)
+                .extracting("retryAfterSeconds").isEqualTo(1L);
+    }
+
+    private static MockHttpServletRequest request(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items");
+        request.setRemoteAddr(ADDRESS);
+        request.addHeader("X-Sharer-User-Id", userId);
+        return request;
+    }
+
+    private static HandlerMethod handler(String method) throws NoSuchMethodException {
+        return new HandlerMethod(new Handlers(), Handlers.class.getDeclaredMethod(method));
+    }
+
+    private static class Handlers {
+        void read() {
+        }
+
+        @RequestCost(5)
+        void search() {
+        }
+    }
+}
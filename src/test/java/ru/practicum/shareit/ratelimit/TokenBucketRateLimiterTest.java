@@ -0,0 +1,120 @@
+package ru.practicum.shareit.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketRateLimiterTest {
+    private static final long TOKEN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String ADDRESS = "10.0.0.1";
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(meterRegistry, 3, 10, 5, 10,
+            clock::get);
+
+    @Test
+    void letsFullBucketThroughUpToCapacity() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isZero();
+        }
+
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isEqualTo(TOKEN_NANOS);
+    }
+
+    @Test
+    void waitCoversMissingTokensOfExpensiveRequest() {
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 2)).isZero();
+
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 3)).isEqualTo(2 * TOKEN_NANOS);
+    }
+
+    @Test
+    void rejectedRequestTakesNoTokens() {
+        rateLimiter.tryAcquire("1", ADDRESS, 3);
+        rateLimiter.tryAcquire("1", ADDRESS, 1);
+        rateLimiter.tryAcquire("1", ADDRESS, 1);
+
+        clock.addAndGet(TOKEN_NANOS);
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isZero();
+    }
+
+    @Test
+    void refillsOneTokenPerPeriod() {
+        rateLimiter.tryAcquire("1", ADDRESS, 3);
+
+        clock.addAndGet(TOKEN_NANOS / 2);
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isEqualTo(TOKEN_NANOS / 2);
+        clock.addAndGet(TOKEN_NANOS / 2);
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isZero();
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isEqualTo(TOKEN_NANOS);
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        rateLimiter.tryAcquire("1", ADDRESS, 3);
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 3)).isZero();
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isEqualTo(TOKEN_NANOS);
+    }
+
+    @Test
+    void requestCostingMoreThanCapacityTakesWholeBucket() {
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 10)).isZero();
+
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isEqualTo(TOKEN_NANOS);
+    }
+
+    @Test
+    void usersBehindOneAddressHaveOwnBucketsWithinAddressLimit() {
+        rateLimiter.tryAcquire("1", ADDRESS, 3);
+
+        assertThat(rateLimiter.tryAcquire("1", ADDRESS, 1)).isPositive();
+        assertThat(rateLimiter.tryAcquire("2", ADDRESS, 1)).isZero();
+        assertThat(rateLimiter.tryAcquire("2", ADDRESS, 1)).isZero();
+        assertThat(rateLimiter.tryAcquire("3", ADDRESS, 1)).isPositive();
+        assertThat(rateLimiter.tryAcquire("3", "10.0.0.2", 1)).isZero();
+    }
+
+    @Test
+    void rotatingUserIdsAreHeldToAddressLimit() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(rateLimiter.tryAcquire(String.valueOf(i), ADDRESS, 1)).isZero();
+        }
+
+        assertThat(rateLimiter.tryAcquire("5", ADDRESS, 1)).isEqualTo(TOKEN_NANOS);
+        assertThat(buckets("user")).isEqualTo(5);
+    }
+
+    @Test
+    void requestWithoutUserIsChargedToAddressOnly() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(rateLimiter.tryAcquire(null, ADDRESS, 1)).isZero();
+        }
+
+        assertThat(rateLimiter.tryAcquire(null, ADDRESS, 1)).isEqualTo(TOKEN_NANOS);
+        assertThat(buckets("user")).isZero();
+    }
+
+    @Test
+    void evictsOnlyFullBuckets() {
+        rateLimiter.tryAcquire("1", ADDRESS, 1);
+        rateLimiter.tryAcquire("2", "10.0.0.2", 3);
+
+        clock.addAndGet(TOKEN_NANOS);
+        rateLimiter.evictFullBuckets();
+
+        assertThat(buckets("user")).isEqualTo(1);
+        assertThat(buckets("address")).isEqualTo(1);
+        assertThat(rateLimiter.tryAcquire("2", "10.0.0.2", 3)).isEqualTo(2 * TOKEN_NANOS);
+    }
+
+    private double buckets(String client) {
+        return meterRegistry.get("shareit.rate-limit.buckets").tag("client", client).gauge().value();
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.shareit.shard;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRouterTest {
+    private final ShardRouter router = new ShardRouter(List.of("jdbc:shard0", "jdbc:shard1", "jdbc:shard2"));
+
+    @AfterEach
+    void tearDown() {
+        router.shutdown();
+    }
+
+    @Test
+    void spreadsConsecutiveIdsOverShards() {
+        assertThat(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L)).extracting(router::shardOf)
+                .containsExactly(0, 1, 2, 0, 1, 2, 0);
+    }
+
+    @Test
+    void singleShardHoldsEveryId() {
+        ShardRouter singleShard = new ShardRouter(List.of());
+
+        assertThat(singleShard.getShardCount()).isEqualTo(1);
+        assertThat(List.of(1L, 2L, 1000L)).extracting(singleShard::shardOf).containsOnly(0);
+        assertThat(singleShard.onShard(0, ShardContext::get)).isNull();
+    }
+
+    @Test
+    void runsCallOnShardAndRestoresCurrentShard() {
+        assertThat(router.onShard(2, ShardContext::get)).isEqualTo(2);
+        assertThat(router.onShard(1, () -> router.onShard(2, ShardContext::get) + "," + ShardContext.get()))
+                .isEqualTo("2,1");
+        assertThat(ShardContext.get()).isNull();
+    }
+
+    @Test
+    void movesCallToOtherThreadWhenTransactionIsBoundToAnotherShard() {
+        Thread caller = Thread.currentThread();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThat(router.onShard(1, () -> Thread.currentThread() != caller)).isTrue();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @Test
+    void runsCallOnEachShardInShardOrder() {
+        assertThat(router.onEachShard(shard -> shard + ":" + ShardContext.get()))
+                .containsExactly("0:0", "1:1", "2:2");
+    }
+
+    @Test
+    void mergesFirstRowsOfShards() {
+        Map<Integer, List<Long>> idsByShard = Map.of(0, List.of(1L, 4L, 7L), 1, List.of(2L, 5L), 2, List.of(3L));
+
+        List<Long> ids = router.mergeFromShards(() -> idsByShard.get(ShardContext.get()),
+                Comparator.reverseOrder(), 4);
+
+        assertThat(ids).containsExactly(7L, 5L, 4L, 3L);
+    }
+
+    @Test
+    void throwsExceptionOfShardCall() {
+        IllegalStateException failure = new IllegalStateException("shard is down");
+
+        assertThatThrownBy(() -> router.onEachShard(shard -> {
+            if (shard == 1) {
+                throw failure;
+            }
+            return shard;
+        })).isSameAs(failure);
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.shareit.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardingConfigTest {
+    private final String database = UUID.randomUUID().toString();
+    private final List<String> shardUrls = IntStream.range(0, 3)
+            .mapToObj(shard -> "jdbc:h2:mem:" + database + "-" + shard)
+            .collect(Collectors.toList());
+    private final ShardRouter router = new ShardRouter(shardUrls);
+    private final List<ShardRoutingDataSource> dataSources = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (ShardRoutingDataSource dataSource : dataSources) {
+            dataSource.getResolvedDataSources().values().forEach(shard -> ((HikariDataSource) shard).close());
+        }
+        router.shutdown();
+    }
+
+    @Test
+    void identitiesOfShardedTablesPointToTheirShard() {
+        ShardRoutingDataSource dataSource = start();
+
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            int target = shard;
+            List<Long> itemIds = router.onShard(shard, () -> insertItems(dataSource, 3));
+
+            assertThat(itemIds).extracting(router::shardOf).containsOnly(target);
+            assertThat(itemIds).isSorted().doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void restartContinuesAfterExistingRowsOnSameShard() {
+        ShardRoutingDataSource first = start();
+        List<Long> before = router.onShard(1, () -> insertItems(first, 2));
+
+        ShardRoutingDataSource restarted = start();
+        List<Long> after = router.onShard(1, () -> insertItems(restarted, 2));
+
+        assertThat(after).extracting(router::shardOf).containsOnly(1);
+        assertThat(after.get(0)).isGreaterThan(before.get(before.size() - 1));
+    }
+
+    private ShardRoutingDataSource start() {
+        ShardRoutingDataSource dataSource = (ShardRoutingDataSource) new ShardingConfig()
+                .dataSource(router, shardUrls, "sa", "");
+        dataSources.add(dataSource);
+        return dataSource;
+    }
+
+    // users are copied to every shard, so the owner has the same id on each of them
+    private static List<Long> insertItems(DataSource dataSource, int count) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("merge into users (id, name, email) key (id) values (1, 'owner', 'owner@example.com')");
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> connection.prepareStatement("insert into items " +
+                    "(name, description, available, user_id) values ('drill', 'cordless', true, 1)",
+                    new String[]{"id"}), keyHolder);
+            ids.add(keyHolder.getKey().longValue());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,137 @@
+package ru.practicum.shareit.user.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.event.BookingDeletedEvent;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.event.CommentDeletedEvent;
+import ru.practicum.shareit.item.event.ItemDeletedEvent;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.CommentStorage;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.item.summary.ItemSummaryProjection;
+import ru.practicum.shareit.shard.ShardRouter;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.model.UserDeletion;
+import ru.practicum.shareit.user.storage.UserDeletionStorage;
+import ru.practicum.shareit.user.storage.UserStorage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserPurgeWorkerTest {
+    private static final long USER_ID = 1L;
+    private static final User USER = new User(USER_ID, "deleted", "deleted@example.com");
+    private static final User OTHER_USER = new User(2L, "other", "other@example.com");
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    private final UserDeletionStorage userDeletionStorage = mock(UserDeletionStorage.class);
+    private final UserStorage userStorage = mock(UserStorage.class);
+    private final ItemStorage itemStorage = mock(ItemStorage.class);
+    private final BookingStorage bookingStorage = mock(BookingStorage.class);
+    private final CommentStorage commentStorage = mock(CommentStorage.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final UserPurgeWorker worker = new UserPurgeWorker(userDeletionStorage, userStorage, itemStorage,
+            bookingStorage, commentStorage, mock(ItemSummaryProjection.class), new ShardRouter(List.of()),
+            eventPublisher, mock(PlatformTransactionManager.class), 10, true);
+
+    private final UserDeletion deletion = new UserDeletion(USER_ID, NOW.minusMinutes(1));
+
+    @Test
+    void countsAndAnnouncesOnlyRowsItDeleted() {
+        givenDeletion();
+        Item otherItem = new Item(5L, "drill", "cordless", true, OTHER_USER);
+        Comment first = new Comment(7L, "fine", otherItem, USER, NOW);
+        Comment second = new Comment(8L, "good", otherItem, USER, NOW);
+        when(commentStorage.findByAuthor_IdOrderByIdAsc(eq(USER_ID), any())).thenReturn(List.of(first, second));
+        when(commentStorage.lockAllByIds(List.of(7L, 8L))).thenReturn(List.of(second));
+
+        worker.purgeDeletedUsers();
+
+        verify(commentStorage).deleteAllByIdInBatch(List.of(8L));
+        assertThat(publishedEvents()).usingRecursiveComparison()
+                .isEqualTo(List.of(new CommentDeletedEvent(8L, 5L, USER_ID)));
+        assertThat(deletion.getCommentsDeleted()).isEqualTo(1);
+        assertThat(deletion.getFinished()).isNotNull();
+        verify(userStorage).deleteAllByIdInBatch(List.of(USER_ID));
+    }
+
+    @Test
+    void deletesOwnedItemsAfterTheirBookings() {
+        givenDeletion();
+        Item item = new Item(5L, "drill", "cordless", true, USER);
+        Booking booking = new Booking(9L, Status.APPROVED, item, OTHER_USER, NOW.minusDays(2), NOW.minusDays(1));
+        when(itemStorage.findByUser_IdOrderByIdAsc(eq(USER_ID), any())).thenReturn(List.of(item));
+        when(bookingStorage.findByItem_IdOrderByIdAsc(eq(5L), any())).thenReturn(List.of(booking));
+        when(bookingStorage.lockAllByIds(List.of(9L))).thenReturn(List.of(booking));
+        when(itemStorage.lockAllByIds(List.of(5L))).thenReturn(List.of(item));
+
+        worker.purgeDeletedUsers();
+
+        verify(bookingStorage).deleteAllByIdInBatch(List.of(9L));
+        verify(itemStorage).deleteAllByIdInBatch(List.of(5L));
+        assertThat(publishedEvents()).usingRecursiveComparison()
+                .isEqualTo(List.of(BookingDeletedEvent.of(booking), ItemDeletedEvent.of(item)));
+        assertThat(deletion.getBookingsDeleted()).isEqualTo(1);
+        assertThat(deletion.getItemsDeleted()).isEqualTo(1);
+        assertThat(deletion.getFinished()).isNotNull();
+    }
+
+    @Test
+    void leavesDeletionLockedByAnotherInstance() {
+        when(userDeletionStorage.findByFinishedIsNullOrderByRequestedAsc()).thenReturn(List.of(deletion));
+        when(userDeletionStorage.claimUnfinished(USER_ID)).thenReturn(Optional.empty());
+
+        worker.purgeDeletedUsers();
+
+        verify(commentStorage, never()).findByAuthor_IdOrderByIdAsc(any(), any());
+        verify(commentStorage, never()).deleteAllByIdInBatch(anyIterable());
+        verify(bookingStorage, never()).lockAllByIds(anyCollection());
+        verify(userStorage, never()).deleteAllByIdInBatch(anyIterable());
+        verify(userDeletionStorage, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        assertThat(deletion.getFinished()).isNull();
+    }
+
+    @Test
+    void waitsForLockWhereLockedRowsCannotBeSkipped() {
+        UserPurgeWorker waitingWorker = new UserPurgeWorker(userDeletionStorage, userStorage, itemStorage,
+                bookingStorage, commentStorage, mock(ItemSummaryProjection.class), new ShardRouter(List.of()),
+                eventPublisher, mock(PlatformTransactionManager.class), 10, false);
+        when(userDeletionStorage.findByFinishedIsNullOrderByRequestedAsc()).thenReturn(List.of(deletion));
+        when(userDeletionStorage.lockUnfinished(USER_ID)).thenReturn(Optional.of(deletion));
+
+        waitingWorker.purgeDeletedUsers();
+
+        verify(userDeletionStorage, never()).claimUnfinished(USER_ID);
+        assertThat(deletion.getFinished()).isNotNull();
+    }
+
+    private List<Object> publishedEvents() {
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeast(0)).publishEvent(events.capture());
+        return events.getAllValues();
+    }
+
+    private void givenDeletion() {
+        when(userDeletionStorage.findByFinishedIsNullOrderByRequestedAsc()).thenReturn(List.of(deletion));
+        when(userDeletionStorage.claimUnfinished(USER_ID)).thenReturn(Optional.of(deletion));
+    }
+}
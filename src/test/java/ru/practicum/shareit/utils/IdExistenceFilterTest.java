@@ -0,0 +1,138 @@
+package ru.practicum.shareit.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdExistenceFilterTest {
+
+    @Test
+    void passesEveryIdBeforeRebuild() {
+        IdExistenceFilter filter = new ListFilter(true, 1, 2, 3);
+
+        assertThat(filter.mightContain(2)).isTrue();
+        assertThat(filter.mightContain(42)).isTrue();
+    }
+
+    @Test
+    void rejectsMissingIdsBelowLargestKnownIdOnSingleInstance() {
+        IdExistenceFilter filter = new ListFilter(true, 1, 3, 5);
+        filter.rebuild();
+
+        assertThat(filter.mightContain(1)).isTrue();
+        assertThat(filter.mightContain(5)).isTrue();
+        assertThat(filter.mightContain(2)).isFalse();
+        assertThat(filter.mightContain(4)).isFalse();
+    }
+
+    @Test
+    void passesIdsAboveLargestKnownId() {
+        IdExistenceFilter filter = new ListFilter(true, 1, 3, 5);
+        filter.rebuild();
+
+        assertThat(filter.mightContain(6)).isTrue();
+    }
+
+    @Test
+    void passesMissingIdsWhenOtherInstancesMayCreateThem() {
+        IdExistenceFilter filter = new ListFilter(false, 1, 3, 5);
+        filter.rebuild();
+
+        assertThat(filter.mightContain(2)).isTrue();
+        assertThat(filter.mightContain(4)).isTrue();
+    }
+
+    @Test
+    void addedIdIsKnownAndRaisesLargestKnownId() {
+        IdExistenceFilter filter = new ListFilter(true, 1, 3);
+        filter.rebuild();
+
+        filter.add(10);
+
+        assertThat(filter.mightContain(10)).isTrue();
+        assertThat(filter.mightContain(7)).isFalse();
+        assertThat(filter.mightContain(11)).isTrue();
+    }
+
+    @Test
+    void removedIdIsMissing() {
+        IdExistenceFilter filter = new ListFilter(true, 1, 3, 5);
+        filter.rebuild();
+
+        filter.remove(3);
+
+        assertThat(filter.mightContain(3)).isFalse();
+        assertThat(filter.mightContain(5)).isTrue();
+    }
+
+    @Test
+    void removingLargestIdKeepsLargestKnownId() {
+        IdExistenceFilter filter = new ListFilter(true, 1, 3, 5);
+        filter.rebuild();
+
+        filter.remove(5);
+
+        assertThat(filter.mightContain(5)).isFalse();
+        assertThat(filter.mightContain(6)).isTrue();
+    }
+
+    @Test
+    void rebuildLoadsIdsInBatches() {
+        long[] ids = LongStream.rangeClosed(1, 25_000).map(id -> id * 2).toArray();
+        ListFilter filter = new ListFilter(true, ids);
+        filter.rebuild();
+
+        assertThat(filter.loads.get()).isEqualTo(3);
+        assertThat(filter.mightContain(2)).isTrue();
+        assertThat(filter.mightContain(50_000)).isTrue();
+        assertThat(filter.mightContain(49_999)).isFalse();
+    }
+
+    @Test
+    void findSkipsLookupOfRejectedId() {
+        IdExistenceFilter filter = new ListFilter(true, 1, 3);
+        filter.rebuild();
+        AtomicInteger lookups = new AtomicInteger();
+
+        Optional<Long> found = filter.find(2, id -> {
+            lookups.incrementAndGet();
+            return Optional.of(id);
+        });
+
+        assertThat(found).isEmpty();
+        assertThat(lookups.get()).isZero();
+    }
+
+    @Test
+    void existsAsksLookupForPassedId() {
+        IdExistenceFilter filter = new ListFilter(false, 1, 3);
+        filter.rebuild();
+
+        assertThat(filter.exists(2, id -> true)).isTrue();
+        assertThat(filter.exists(3, id -> false)).isFalse();
+    }
+
+    private static class ListFilter extends IdExistenceFilter {
+        private final TreeSet<Long> ids;
+        private final AtomicInteger loads = new AtomicInteger();
+
+        ListFilter(boolean singleInstance, long... ids) {
+            super("test", new SimpleMeterRegistry(), singleInstance);
+            this.ids = LongStream.of(ids).boxed().collect(Collectors.toCollection(TreeSet::new));
+        }
+
+        @Override
+        protected List<Long> loadIds(long afterId, int limit) {
+            loads.incrementAndGet();
+            return ids.tailSet(afterId, false).stream().limit(limit).collect(Collectors.toList());
+        }
+    }
+}
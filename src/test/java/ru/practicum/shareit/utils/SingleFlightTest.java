@@ -0,0 +1,126 @@
+package ru.practicum.shareit.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsWithSameKeyShareOneExecution() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = callConcurrently(1L, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "card";
+        });
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("card");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(count("shareit.singleflight.executions")).isEqualTo(1);
+        assertThat(count("shareit.singleflight.coalesced")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void exceptionOfLoaderIsThrownToEveryCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("storage is down");
+
+        List<Future<String>> results = callConcurrently(1L, () -> {
+            await(release);
+            throw failure;
+        });
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCause(failure);
+        }
+    }
+
+    @Test
+    void callWithOtherKeyIsNotJoinedToRunningExecution() {
+        String card = singleFlight.execute(1L, () -> "item-" + singleFlight.execute(2L, () -> "owner"));
+
+        assertThat(card).isEqualTo("item-owner");
+        assertThat(count("shareit.singleflight.executions")).isEqualTo(2);
+        assertThat(count("shareit.singleflight.coalesced")).isZero();
+    }
+
+    @Test
+    void resultIsNotKeptAfterExecutionCompletes() {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.execute(1L, () -> "load-" + loads.incrementAndGet());
+        String second = singleFlight.execute(1L, () -> "load-" + loads.incrementAndGet());
+
+        assertThat(second).isEqualTo("load-2");
+        assertThat(count("shareit.singleflight.executions")).isEqualTo(2);
+    }
+
+    @Test
+    void failedExecutionDoesNotBlockNextCall() {
+        assertThatThrownBy(() -> singleFlight.execute(1L, () -> {
+            throw new IllegalArgumentException("bad id");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(singleFlight.execute(1L, () -> "card")).isEqualTo("card");
+    }
+
+    // the loader of the first caller waits for the others to join it before it may finish
+    private List<Future<String>> callConcurrently(long key, Supplier<String> loader) throws InterruptedException {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute(key, loader)));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("shareit.singleflight.coalesced") < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return results;
+    }
+
+    private double count(String counter) {
+        return meterRegistry.get(counter).tag("name", "test").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}